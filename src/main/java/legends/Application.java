@@ -21,6 +21,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.velocity.app.Velocity;
 
+import legends.helper.PageCache;
 import legends.helper.TemplateLoader;
 import legends.model.World;
 
@@ -31,6 +32,10 @@ public class Application {
 	private static boolean serverMode = false;
 	private static String subUri = null;
 	private static Integer port = null;
+	private static boolean nio = false;
+	private static String executor = "pool";
+	private static int workers = 16;
+	private static int queueSize = 64;
 
 	public static void main(String[] args) throws Exception {
 		loadProperties();
@@ -99,6 +104,12 @@ public class Application {
 		options.addOption("w", "world", true, "path to legends.xml or archive");
 		options.addOption("p", "port", true, "use specific port");
 		options.addOption("u", "subUri", true, "run on /<subUri>");
+		options.addOption("t", "threads", true, "parse legends.xml with <threads> threads, 0 for all cores");
+		options.addOption("n", "nio", false, "read and write connections with a non-blocking selector, for many concurrent users");
+		options.addOption("e", "executor", true, "handle requests with a thread pool (pool, default), virtual threads (virtual) or one thread per connection (thread)");
+		options.addOption(null, "workers", true, "number of threads of the request pool, default 16");
+		options.addOption(null, "queue", true, "number of connections waiting for a worker before answering 503, default 64");
+		options.addOption(null, "page-cache", true, "size of the rendered page cache in MB, 0 disables it, default 64");
 		options.addOption("h", "help", false, "display this help and exit");
 
 		HelpFormatter formatter = new HelpFormatter();
@@ -115,6 +126,25 @@ public class Application {
 			subUri = cmd.getOptionValue("subUri");
 			port = cmd.hasOption("port") ? Integer.parseInt(cmd.getOptionValue("port")) : null;
 			serverMode = cmd.hasOption("serverMode");
+			nio = cmd.hasOption("nio");
+			if (cmd.hasOption("executor")) {
+				executor = cmd.getOptionValue("executor");
+				if (!executor.equals("pool") && !executor.equals("virtual") && !executor.equals("thread")) {
+					LOG.error("Unknown executor: " + executor);
+					formatter.printHelp("legends", options);
+					System.exit(1);
+				}
+			}
+			if (cmd.hasOption("workers"))
+				workers = Math.max(1, Integer.parseInt(cmd.getOptionValue("workers")));
+			if (cmd.hasOption("queue"))
+				queueSize = Math.max(1, Integer.parseInt(cmd.getOptionValue("queue")));
+			if (cmd.hasOption("page-cache"))
+				PageCache.setMaxSize(Math.max(0, Long.parseLong(cmd.getOptionValue("page-cache"))) << 20);
+			if (cmd.hasOption("threads")) {
+				int threads = Integer.parseInt(cmd.getOptionValue("threads"));
+				LegendsReader.setThreads(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+			}
 
 			String world = cmd.getOptionValue("world");
 			if (world != null) {
@@ -141,6 +171,22 @@ public class Application {
 		return port;
 	}
 	
+	public static boolean isNio() {
+		return nio;
+	}
+
+	public static String getExecutor() {
+		return executor;
+	}
+
+	public static int getWorkers() {
+		return workers;
+	}
+
+	public static int getQueueSize() {
+		return queueSize;
+	}
+
 	public static boolean hasSubUri() {
 		return subUri != null;
 	}
@@ -7,6 +7,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -18,17 +19,48 @@ import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import legends.model.LegendsXml;
+import legends.xml.MappedXmlReader;
 import legends.xml.handlers.AnnotationContentHandler;
 
 public class LegendsReader {
 	private static final Log LOG = LogFactory.getLog(LegendsReader.class);
 
+	private static int threads = 1;
+
+	public static int getThreads() {
+		return threads;
+	}
+
+	public static void setThreads(int threads) {
+		LegendsReader.threads = threads;
+	}
+
+	/**
+	 * The memory mapped reader is used if the system property
+	 * legends.xml.reader is set to "mapped".
+	 */
+	public static boolean isMappedReader() {
+		return "mapped".equals(System.getProperty("legends.xml.reader"));
+	}
+
 	public static void read(Path path, Charset cs) throws SAXException, IOException, InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+		if (threads > 1 && path.getFileSystem() == FileSystems.getDefault()) {
+			ParallelLegendsReader.read(path, cs, threads);
+			return;
+		}
+
 		LOG.info("load legends: "+path);
-		XMLReader xmlReader = XMLReaderFactory.createXMLReader();
+		boolean mapped = isMappedReader() && path.getFileSystem() == FileSystems.getDefault();
+		XMLReader xmlReader = mapped ? new MappedXmlReader(cs) : XMLReaderFactory.createXMLReader();
 		AnnotationContentHandler contentHandler = new AnnotationContentHandler(LegendsXml.class);
 		contentHandler.setXmlReader(xmlReader);
 		xmlReader.setContentHandler(contentHandler);
+
+		if (mapped) {
+			((MappedXmlReader) xmlReader).parse(path);
+			contentHandler.printMappedValues();
+			return;
+		}
 		
 		CharsetDecoder decoder = cs.newDecoder();
         decoder.onMalformedInput(CodingErrorAction.IGNORE);
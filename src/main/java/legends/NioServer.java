@@ -0,0 +1,333 @@
+package legends;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Non-blocking front end of the {@link WebServer}.
+ *
+ * One selector thread accepts connections, reads requests and writes
+ * responses. Only complete requests are handed to the workers, which render
+ * them with {@link RequestThread} into a buffer, so idle and slow
+ * connections do not occupy a worker.
+ */
+class NioServer {
+	private static final Log LOG = LogFactory.getLog(NioServer.class);
+
+	private static final int MAX_HEADER_SIZE = 1 << 16;
+
+	private final ServerSocketChannel serverChannel;
+	private final ExecutorService executor;
+	private final int port;
+	private final Selector selector;
+	private final Queue<Connection> responded = new ConcurrentLinkedQueue<>();
+
+	NioServer(ServerSocketChannel serverChannel, ExecutorService executor, int port) throws IOException {
+		this.serverChannel = serverChannel;
+		this.executor = executor;
+		this.port = port;
+		selector = Selector.open();
+	}
+
+	void run() throws IOException {
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		LOG.info("handling connections with a selector");
+
+		long lastCheck = System.currentTimeMillis();
+		for (;;) {
+			selector.select(1000);
+
+			Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+			while (it.hasNext()) {
+				SelectionKey key = it.next();
+				it.remove();
+				if (!key.isValid())
+					continue;
+				if (key.isAcceptable()) {
+					accept();
+					continue;
+				}
+				Connection connection = (Connection) key.attachment();
+				try {
+					if (key.isReadable())
+						connection.read();
+					else if (key.isWritable())
+						connection.write();
+				} catch (IOException e) {
+					connection.close();
+				}
+			}
+
+			Connection connection;
+			while ((connection = responded.poll()) != null) {
+				try {
+					connection.write();
+				} catch (IOException e) {
+					connection.close();
+				}
+			}
+
+			long now = System.currentTimeMillis();
+			if (now - lastCheck >= 1000) {
+				lastCheck = now;
+				for (SelectionKey key : selector.keys())
+					if (key.attachment() != null)
+						((Connection) key.attachment()).closeIfIdle(now);
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			Connection connection = new Connection(channel);
+			connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+		}
+	}
+
+	private class Connection {
+		private final SocketChannel channel;
+		private SelectionKey key;
+		private ByteBuffer in = ByteBuffer.allocate(4096);
+		private ByteBuffer[] response;
+		private FileChannel file;
+		private long filePosition;
+		private long fileRemaining;
+		private boolean keepAlive;
+		private boolean busy = false;
+		private int count = 0;
+		private long lastActive = System.currentTimeMillis();
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		void read() throws IOException {
+			if (!in.hasRemaining()) {
+				if (in.capacity() >= MAX_HEADER_SIZE) {
+					close();
+					return;
+				}
+				ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+				in.flip();
+				larger.put(in);
+				in = larger;
+			}
+			if (channel.read(in) == -1) {
+				close();
+				return;
+			}
+			lastActive = System.currentTimeMillis();
+			dispatch();
+		}
+
+		/**
+		 * Hands the next complete request to a worker. Further pipelined
+		 * requests wait in the buffer until the response is written.
+		 */
+		private void dispatch() throws IOException {
+			int end = headerEnd();
+			if (end < 0)
+				return;
+
+			String head = new String(in.array(), 0, end, StandardCharsets.ISO_8859_1);
+			in.flip();
+			in.position(end);
+			in.compact();
+
+			BufferedReader lines = new BufferedReader(new StringReader(head));
+			final String request = lines.readLine();
+			final Map<String, String> headers = RequestThread.readHeaders(lines);
+			final int number = ++count;
+
+			busy = true;
+			key.interestOps(0);
+			try {
+				executor.execute(() -> {
+					ResponseBuffer out = new ResponseBuffer();
+					boolean open = false;
+					try {
+						open = new RequestThread(out, port).respond(request, headers, number);
+					} catch (Exception e) {
+						LOG.error("error in request: " + request, e);
+					}
+					respond(out, open);
+				});
+			} catch (RejectedExecutionException e) {
+				ResponseBuffer out = new ResponseBuffer();
+				RequestThread.sendUnavailable(out);
+				response = out.getBuffers();
+				file = null;
+				keepAlive = false;
+				write();
+			}
+		}
+
+		/**
+		 * @return the end of the request headers in the buffer, or -1
+		 */
+		private int headerEnd() {
+			byte[] b = in.array();
+			for (int i = 3; i < in.position(); i++)
+				if (b[i] == '\n' && b[i - 1] == '\r' && b[i - 2] == '\n' && b[i - 3] == '\r')
+					return i + 1;
+			return -1;
+		}
+
+		/**
+		 * Called by the worker, the response is written by the selector
+		 * thread.
+		 */
+		private void respond(ResponseBuffer out, boolean open) {
+			response = out.getBuffers();
+			file = out.file;
+			filePosition = out.filePosition;
+			fileRemaining = out.fileRemaining;
+			keepAlive = open;
+			responded.add(this);
+			selector.wakeup();
+		}
+
+		void write() throws IOException {
+			if (!channel.isOpen()) {
+				closeFile();
+				return;
+			}
+			if (channel.write(response) > 0)
+				lastActive = System.currentTimeMillis();
+			if (response[response.length - 1].hasRemaining()) {
+				key.interestOps(SelectionKey.OP_WRITE);
+				return;
+			}
+			while (fileRemaining > 0) {
+				long n = file.transferTo(filePosition, fileRemaining, channel);
+				if (n == 0) {
+					key.interestOps(SelectionKey.OP_WRITE);
+					return;
+				}
+				lastActive = System.currentTimeMillis();
+				filePosition += n;
+				fileRemaining -= n;
+			}
+			closeFile();
+
+			response = null;
+			busy = false;
+			if (!keepAlive) {
+				close();
+				return;
+			}
+			key.interestOps(SelectionKey.OP_READ);
+			dispatch();
+		}
+
+		void closeIfIdle(long now) {
+			if ((!busy && now - lastActive > RequestThread.KEEP_ALIVE_TIMEOUT)
+					|| (response != null && now - lastActive > 30000))
+				close();
+		}
+
+		private void closeFile() {
+			if (file == null)
+				return;
+			try {
+				file.close();
+			} catch (IOException e) {
+			}
+			file = null;
+			fileRemaining = 0;
+		}
+
+		void close() {
+			closeFile();
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Collects a response in fixed size buffers, which are then written with
+	 * one gathering write. Files are sent from the file channel after the
+	 * buffers. Pages streamed by the template are collected as a whole too,
+	 * so a response is held in memory until it is written.
+	 */
+	private static class ResponseBuffer extends OutputStream implements RequestThread.FileOutput {
+		private static final int FIRST_BUFFER_SIZE = 1 << 13;
+		private static final int BUFFER_SIZE = 1 << 16;
+
+		private List<ByteBuffer> buffers = new ArrayList<>();
+		private ByteBuffer current;
+		private FileChannel file;
+		private long filePosition;
+		private long fileRemaining;
+
+		@Override
+		public void write(int b) throws IOException {
+			if (current == null || !current.hasRemaining())
+				next();
+			current.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (current == null || !current.hasRemaining())
+					next();
+				int n = Math.min(len, current.remaining());
+				current.put(b, off, n);
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void sendFile(Path path, long position, long count) throws IOException {
+			if (file != null)
+				file.close();
+			file = FileChannel.open(path, StandardOpenOption.READ);
+			filePosition = position;
+			fileRemaining = count;
+		}
+
+		private void next() {
+			current = ByteBuffer.allocate(buffers.isEmpty() ? FIRST_BUFFER_SIZE : BUFFER_SIZE);
+			buffers.add(current);
+		}
+
+		ByteBuffer[] getBuffers() {
+			if (buffers.isEmpty())
+				next();
+			for (ByteBuffer buffer : buffers)
+				buffer.flip();
+			return buffers.toArray(new ByteBuffer[buffers.size()]);
+		}
+	}
+}
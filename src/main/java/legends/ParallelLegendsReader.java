@@ -0,0 +1,229 @@
+package legends;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.xml.sax.SAXException;
+
+import legends.SectionScanner.Section;
+import legends.model.LegendsXml;
+import legends.model.World;
+import legends.model.basic.AbstractObject;
+import legends.xml.annotation.Xml;
+import legends.xml.handlers.AnnotationContentHandler;
+import legends.xml.handlers.ListContentHandler;
+import legends.xml.handlers.SectionContentHandler;
+import legends.xml.handlers.StackContentHandler;
+
+/**
+ * Reads a legends file on several threads.
+ *
+ * A pre-scan finds the byte ranges of the top-level sections of the
+ * document. Every section is parsed as a document of its own, so each world
+ * map is filled by exactly one thread in document order. Large sections of
+ * objects stored by id are additionally split at element boundaries; their
+ * chunks are parsed into lists and put into the world map in file order
+ * afterwards. Splitting is skipped in plus mode, where elements are merged
+ * into already loaded objects.
+ */
+public class ParallelLegendsReader {
+	private static final Log LOG = LogFactory.getLog(ParallelLegendsReader.class);
+
+	private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+	private static class ChunkTarget {
+		Field field;
+		String element;
+		Class<?> elementClass;
+	}
+
+	private static class Task {
+		Section section;
+		long start, end;
+		List<Object> elements;
+
+		long size() {
+			return end - start;
+		}
+	}
+
+	private Path path;
+	private Charset cs;
+	private int threads;
+	private FileChannel channel;
+
+	private String root;
+	private Map<String, ChunkTarget> chunkTargets = new HashMap<>();
+
+	private ThreadLocal<Map<String, StackContentHandler>> threadHandlers = ThreadLocal.withInitial(HashMap::new);
+	private ConcurrentLinkedQueue<StackContentHandler> handlers = new ConcurrentLinkedQueue<>();
+
+	private ParallelLegendsReader(Path path, Charset cs, int threads) {
+		this.path = path;
+		this.cs = cs;
+		this.threads = threads;
+	}
+
+	public static void read(Path path, Charset cs, int threads) throws SAXException, IOException {
+		new ParallelLegendsReader(path, cs, threads).read();
+	}
+
+	private void read() throws SAXException, IOException {
+		LOG.info("load legends with " + threads + " threads: " + path);
+		if (!World.isPlusMode())
+			findChunkTargets();
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			this.channel = channel;
+
+			long start = System.currentTimeMillis();
+			long chunkSize = Math.max(MIN_CHUNK_SIZE, channel.size() / (threads * 4));
+			SectionScanner scanner = new SectionScanner(channel);
+			List<Section> sections = scanner.scan(chunkTargets.keySet(), chunkSize);
+			root = scanner.getRoot();
+			LOG.info("found " + sections.size() + " sections in " + (System.currentTimeMillis() - start) + " ms");
+
+			List<Task> tasks = new ArrayList<>();
+			for (Section section : sections) {
+				if (section.boundaries.isEmpty()) {
+					tasks.add(task(section, section.start, section.end));
+				} else {
+					long chunkStart = section.contentStart;
+					for (long boundary : section.boundaries) {
+						tasks.add(task(section, chunkStart, boundary));
+						chunkStart = boundary;
+					}
+					tasks.add(task(section, chunkStart, section.contentEnd));
+				}
+			}
+
+			List<Task> bySize = new ArrayList<>(tasks);
+			bySize.sort(Comparator.comparingLong(Task::size).reversed());
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<?>> futures = new ArrayList<>();
+				for (Task task : bySize)
+					futures.add(executor.submit(() -> {
+						parse(task);
+						return null;
+					}));
+				for (Future<?> future : futures)
+					future.get();
+			} catch (InterruptedException e) {
+				throw new IOException("interrupted", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof SAXException)
+					throw (SAXException) e.getCause();
+				if (e.getCause() instanceof IOException)
+					throw (IOException) e.getCause();
+				throw new SAXException(e);
+			} finally {
+				executor.shutdownNow();
+			}
+
+			merge(tasks);
+		}
+
+		for (StackContentHandler handler : handlers)
+			handler.printMappedValues();
+	}
+
+	private Task task(Section section, long start, long end) {
+		Task task = new Task();
+		task.section = section;
+		task.start = start;
+		task.end = end;
+		if (!section.boundaries.isEmpty())
+			task.elements = new ArrayList<>();
+		return task;
+	}
+
+	private void findChunkTargets() {
+		for (Field field : World.class.getDeclaredFields()) {
+			Xml xml = field.getAnnotation(Xml.class);
+			if (xml == null || !Map.class.isAssignableFrom(field.getType()) || xml.multiple())
+				continue;
+			field.setAccessible(true);
+			for (String element : xml.value().split(",")) {
+				ChunkTarget target = new ChunkTarget();
+				target.field = field;
+				target.element = xml.element();
+				target.elementClass = xml.elementClass();
+				chunkTargets.put(element, target);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void merge(List<Task> tasks) throws SAXException {
+		for (Task task : tasks) {
+			if (task.elements == null)
+				continue;
+			try {
+				Map<Integer, Object> map = (Map<Integer, Object>) chunkTargets.get(task.section.name).field.get(null);
+				for (Object element : task.elements)
+					map.put(((AbstractObject) element).getId(), element);
+			} catch (IllegalAccessException e) {
+				throw new SAXException(e);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void parse(Task task) throws Exception {
+		String enclosing;
+		StackContentHandler contentHandler;
+		if (task.elements == null) {
+			enclosing = root;
+			contentHandler = getHandler("", () -> new AnnotationContentHandler(LegendsXml.class));
+		} else {
+			String name = task.section.name;
+			ChunkTarget target = chunkTargets.get(name);
+			enclosing = name;
+			SectionContentHandler sectionHandler = (SectionContentHandler) getHandler(name, () -> {
+				AnnotationContentHandler elementHandler = new AnnotationContentHandler(target.element,
+						target.elementClass);
+				return new SectionContentHandler(new ListContentHandler(name, elementHandler));
+			});
+			((ListContentHandler) sectionHandler.getSubHandlers().iterator().next())
+					.setConsumer(list -> task.elements.addAll((List<Object>) list));
+			contentHandler = sectionHandler;
+		}
+
+		SectionScanner.parse(channel, task.start, task.end, enclosing, cs, contentHandler);
+	}
+
+	private interface HandlerFactory {
+		StackContentHandler create() throws Exception;
+	}
+
+	/**
+	 * Handlers are expensive to create and are reused by each worker thread.
+	 */
+	private StackContentHandler getHandler(String key, HandlerFactory factory) throws Exception {
+		Map<String, StackContentHandler> map = threadHandlers.get();
+		StackContentHandler handler = map.get(key);
+		if (handler == null) {
+			handler = factory.create();
+			map.put(key, handler);
+			handlers.add(handler);
+		}
+		return handler;
+	}
+}
@@ -1,313 +1,828 @@
 package legends;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.StringWriter;
-import java.lang.reflect.AnnotatedElement;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.net.MalformedURLException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PushbackInputStream;
+import java.io.Writer;
 import java.net.Socket;
-import java.net.URLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
-import java.util.Set;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.zip.DeflaterOutputStream;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.reflections.ReflectionUtils;
 import org.reflections.Reflections;
 
-import com.google.common.base.Predicate;
-
+import legends.helper.ContentEncoding;
 import legends.helper.EventHelper;
+import legends.helper.PageCache;
+import legends.helper.PageCache.Page;
+import legends.helper.StaticResource;
 import legends.helper.Templates;
 import legends.model.Entity;
 import legends.model.HistoricalFigure;
 import legends.model.World;
 import legends.web.basic.Controller;
-import legends.web.basic.RequestMapping;
+import legends.web.basic.RouteTable;
+import legends.web.basic.RouteTable.Route;
 
-public class RequestThread extends Thread {
+public class RequestThread implements Runnable {
 	private static final Log LOG = LogFactory.getLog(RequestThread.class);
 
-	private static Reflections reflections;
+	static final int KEEP_ALIVE_TIMEOUT = 5000;
+	private static final int IDLE_CHECK_INTERVAL = 100;
+	private static final long CHUNKED = -2;
+	private static final long NO_BODY = -3;
+	private static final int MAX_REQUESTS = 100;
+
+	private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+	private static final String REVALIDATE = "no-cache";
+	private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter
+			.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+	private static final Queue<ByteBuffer> COPY_BUFFERS = new ConcurrentLinkedQueue<>();
+
+	private static Map<WorldState, RouteTable> routes;
 
 	private final int port;
 	
 	static {
-		reflections = Reflections.collect();
+		Reflections reflections = Reflections.collect();
 		if (reflections == null) {
 			LOG.warn("reflections unavailable");
 			reflections = new Reflections("legends.web");
 		}
+		try {
+			routes = RouteTable.build(reflections.getTypesAnnotatedWith(Controller.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
 	}
 
-	private static void sendError(final BufferedOutputStream out, final int code, String message) throws IOException {
-		message = message + "<hr>" + WebServer.VERSION;
-		sendHeader(out, code, "text/html", message.length(), System.currentTimeMillis());
-		out.write(message.getBytes());
+	private void sendError(final int code, String message) throws IOException {
+		final byte[] content = (message + "<hr>" + WebServer.VERSION).getBytes(StandardCharsets.UTF_8);
+		sendHeader(code, "text/html", content.length, System.currentTimeMillis());
+		out.write(content);
 		out.flush();
-		out.close();
 	}
 
-	private static void sendHeader(final BufferedOutputStream out, final int code, final String contentType,
-			final long contentLength, final long lastModified) throws IOException {
-		out.write(("HTTP/1.0 " + code + " OK\r\n" + "Date: " + new Date().toString() + "\r\n"
-				+ "Server: Legends Browser/1.0\r\n" + "Content-Type: " + contentType + "\r\n"
-				+ "Expires: Thu, 01 Dec 1994 16:00:00 GMT\r\n" + "Expires: Thu, 01 Dec 1994 16:00:00 GMT\r\n"
-				+ ((contentLength != -1) ? "Content-Length: " + contentLength + "\r\n" : "") + "Last-modified: "
-				+ new Date(lastModified).toString() + "\r\n" + "\r\n").getBytes());
+	/**
+	 * Turns away a connection while all workers are busy.
+	 */
+	static void sendUnavailable(final Socket socket) {
+		try {
+			socket.setSoTimeout(1000);
+			final OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+			sendUnavailable(out);
+		} catch (IOException e) {
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	static void sendUnavailable(final OutputStream out) throws IOException {
+		new RequestThread(out, 0).sendError(503, "Server busy, please retry.");
+	}
+
+	/**
+	 * Responses without a content length end the connection, unless the
+	 * length is {@link #CHUNKED} or {@link #NO_BODY}. Responses without a
+	 * cache control must not be cached.
+	 */
+	private void sendHeader(final int code, final String contentType, final long contentLength,
+			final long lastModified) throws IOException {
+		if (contentLength == -1)
+			keepAlive = false;
+		if (contentLength == CHUNKED)
+			addHeader("Transfer-Encoding", "chunked");
+		if (cacheControl != null)
+			addHeader("Cache-Control", cacheControl);
+		else
+			addHeader("Cache-Control", "no-cache").addHeader("Expires", "Thu, 01 Dec 1994 16:00:00 GMT");
+		if (lastModified > 0)
+			addHeader("Last-Modified", HTTP_DATE.format(Instant.ofEpochMilli(lastModified)));
+		String connection;
+		if (keepAlive)
+			connection = (http11 ? "" : "Connection: keep-alive\r\n") + "Keep-Alive: timeout="
+					+ KEEP_ALIVE_TIMEOUT / 1000 + "\r\n";
+		else
+			connection = http11 ? "Connection: close\r\n" : "";
+		out.write(((http11 ? "HTTP/1.1 " : "HTTP/1.0 ") + code + " " + reason(code) + "\r\n" + "Date: "
+				+ HTTP_DATE.format(Instant.now()) + "\r\n" + "Server: Legends Browser/1.0\r\n"
+				+ (contentType != null ? "Content-Type: " + contentType + "\r\n" : "")
+				+ ((contentLength >= 0) ? "Content-Length: " + contentLength + "\r\n" : "") + connection
+				+ responseHeaders + "\r\n").getBytes());
+		responseHeaders.setLength(0);
+		cacheControl = null;
+	}
+
+	private static String reason(final int code) {
+		switch (code) {
+		case 200:
+			return "OK";
+		case 206:
+			return "Partial Content";
+		case 304:
+			return "Not Modified";
+		case 400:
+			return "Bad Request";
+		case 404:
+			return "Not Found";
+		case 416:
+			return "Range Not Satisfiable";
+		case 500:
+			return "Internal Server Error";
+		case 503:
+			return "Service Unavailable";
+		default:
+			return "OK";
+		}
+	}
+
+	/**
+	 * Adds a header to the next response.
+	 */
+	private RequestThread addHeader(final String name, final String value) {
+		responseHeaders.append(name).append(": ").append(value).append("\r\n");
+		return this;
+	}
+
+	/**
+	 * Checks the conditional headers of the request against the current
+	 * version of a resource. If-None-Match takes precedence over
+	 * If-Modified-Since.
+	 */
+	private boolean isNotModified(final String etag, final long lastModified) {
+		final String ifNoneMatch = headers.get("if-none-match");
+		if (ifNoneMatch != null) {
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if (tag.startsWith("W/"))
+					tag = tag.substring(2);
+				if (tag.equals("*") || tag.equals(etag))
+					return true;
+			}
+			return false;
+		}
+		final String ifModifiedSince = headers.get("if-modified-since");
+		if (ifModifiedSince != null && lastModified > 0) {
+			try {
+				long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+						.toEpochMilli();
+				return lastModified / 1000 <= since / 1000;
+			} catch (DateTimeParseException e) {
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the validators of a cacheable response and answers with 304 Not
+	 * Modified if the client already has it.
+	 *
+	 * @return true if the response is sent
+	 */
+	private boolean sendNotModified(final String etag, final long lastModified, final String cacheControl)
+			throws IOException {
+		addHeader("ETag", etag);
+		this.cacheControl = cacheControl;
+		if (!isNotModified(etag, lastModified))
+			return false;
+		sendHeader(304, null, NO_BODY, lastModified);
+		return true;
+	}
+
+	/**
+	 * Parses a Range header with a single byte range.
+	 *
+	 * @return the first and last byte, null if the header is to be ignored or
+	 *         an empty array if the range cannot be satisfied
+	 */
+	static long[] parseRange(final String range, final long length) {
+		if (range == null || !range.startsWith("bytes=") || range.indexOf(',') >= 0)
+			return null;
+		final String spec = range.substring("bytes=".length());
+		final int dash = spec.indexOf('-');
+		if (dash < 0)
+			return null;
+		try {
+			final String first = spec.substring(0, dash).trim();
+			final String last = spec.substring(dash + 1).trim();
+			long from, to;
+			if (first.isEmpty()) {
+				final long suffix = Long.parseLong(last);
+				if (suffix < 0)
+					return null;
+				if (suffix == 0)
+					return new long[0];
+				from = Math.max(0, length - suffix);
+				to = length - 1;
+			} else {
+				from = Long.parseLong(first);
+				to = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+				if (from < 0 || to < from)
+					return null;
+				to = Math.min(to, length - 1);
+			}
+			return from < length ? new long[] { from, to } : new long[0];
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * An If-Range header only keeps the range if it names the current version.
+	 */
+	private static boolean isCurrent(final String ifRange, final String etag, final long lastModified) {
+		return ifRange == null || ifRange.equals(etag)
+				|| ifRange.equals(HTTP_DATE.format(Instant.ofEpochMilli(lastModified)));
 	}
 
 	private final Socket _socket;
+	private OutputStream out;
+	private Map<String, String> headers = Collections.emptyMap();
+	private final StringBuilder responseHeaders = new StringBuilder();
+	private String cacheControl;
+	private boolean http11 = false;
+	private boolean keepAlive = false;
+	private final ThreadPoolExecutor pool;
 
 	public RequestThread(final Socket socket, final int port) {
+		this(socket, port, null);
+	}
+
+	/**
+	 * @param pool
+	 *            the bounded pool running this thread, idle connections give
+	 *            up their worker as soon as other connections wait for one
+	 */
+	public RequestThread(final Socket socket, final int port, final ThreadPoolExecutor pool) {
 		_socket = socket;
 		this.port = port;
+		this.pool = pool;
+	}
+
+	/**
+	 * Writes the responses to out, for servers that read the requests
+	 * themselves.
+	 */
+	RequestThread(final OutputStream out, final int port) {
+		_socket = null;
+		this.out = out;
+		this.port = port;
+		this.pool = null;
 	}
 
+	/**
+	 * Answers requests until the client closes the connection, asks to close
+	 * it, or sends nothing for {@link #KEEP_ALIVE_TIMEOUT} ms or while other
+	 * connections wait for a worker of the pool.
+	 */
 	@Override
 	public void run() {
-		InputStream reader = null;
 		try {
 			_socket.setSoTimeout(30000);
-			final BufferedReader in = new BufferedReader(new InputStreamReader(_socket.getInputStream()));
-			final BufferedOutputStream out = new BufferedOutputStream(_socket.getOutputStream());
-
-			final String request = in.readLine();
-			if (request == null || !request.startsWith("GET ")
-					|| !(request.endsWith(" HTTP/1.0") || request.endsWith("HTTP/1.1"))) {
-				// Invalid request type (no "GET")
-				sendError(out, 500, "Invalid Method.");
-				return;
+			// responses are flushed as a whole, small packets would wait for
+			// delayed acks of the client on persistent connections
+			_socket.setTcpNoDelay(true);
+			final PushbackInputStream raw = new PushbackInputStream(_socket.getInputStream());
+			final BufferedReader in = new BufferedReader(new InputStreamReader(raw));
+			out = new BufferedOutputStream(_socket.getOutputStream(), 1 << 16);
+
+			String request;
+			for (int count = 1; (request = in.readLine()) != null; count++) {
+				if (!respond(request, readHeaders(in), count) || !awaitRequest(in, raw))
+					break;
 			}
-			String path = request.substring(4, request.length() - 9);
-			
-			if(Application.hasSubUri()) {
-				if(!path.startsWith(Application.getSubUri())) {
-					sendError(out, 400, "Not found.");
-					return;
-				}
-				
-				path = path.substring(Application.getSubUri().length());
+		} catch (final IOException e) {
+		} finally {
+			try {
+				_socket.close();
+			} catch (final IOException e) {
 			}
+		}
+	}
 
-			VelocityContext context = new VelocityContext();
-			HistoricalFigure.setContext(null);
-
-			String arguments = "";
-			HashMap<String, String> params = new HashMap<>();
-			if (path.contains("?")) {
-				arguments = path.substring(path.indexOf("?") + 1);
-				path = path.substring(0, path.indexOf("?"));
-
-				for (String kv : arguments.split("&")) {
-					String[] d = kv.split("=");
-					if (d.length == 2) {
-						String key = URLDecoder.decode(d[0], "UTF-8");
-						String value = URLDecoder.decode(d[1], "UTF-8");
-						params.put(key, value);
-						context.put(key, value);
-					}
-				}
+	/**
+	 * Waits up to {@link #KEEP_ALIVE_TIMEOUT} ms for the next request on the
+	 * connection. On a bounded pool the wait ends early when every worker is
+	 * busy and other connections are queued for one.
+	 *
+	 * @return false if the connection should be closed
+	 */
+	private boolean awaitRequest(final BufferedReader in, final PushbackInputStream raw) throws IOException {
+		if (pool == null) {
+			_socket.setSoTimeout(KEEP_ALIVE_TIMEOUT);
+			return true;
+		}
+		if (in.ready())
+			return true;
+		final long deadline = System.currentTimeMillis() + KEEP_ALIVE_TIMEOUT;
+		_socket.setSoTimeout(IDLE_CHECK_INTERVAL);
+		while (pool.getQueue().isEmpty() || pool.getActiveCount() < pool.getMaximumPoolSize()) {
+			try {
+				final int b = raw.read();
+				if (b == -1)
+					return false;
+				raw.unread(b);
+				_socket.setSoTimeout(KEEP_ALIVE_TIMEOUT);
+				return true;
+			} catch (final SocketTimeoutException e) {
+				if (System.currentTimeMillis() >= deadline)
+					return false;
 			}
-			path = path.replace("+", "%2B");
-			path = URLDecoder.decode(path, "UTF-8");
+		}
+		return false;
+	}
 
-			File file = new File(path).getCanonicalFile();
+	/**
+	 * Answers a single request.
+	 * 
+	 * @param count
+	 *            number of the request on its connection
+	 * @return true if the connection stays open for further requests
+	 */
+	boolean respond(final String request, final Map<String, String> headers, final int count) throws IOException {
+		this.headers = headers;
+		responseHeaders.setLength(0);
+		http11 = request.endsWith(" HTTP/1.1");
+		final String connection = headers.getOrDefault("connection", "").toLowerCase();
+		keepAlive = count < MAX_REQUESTS && !connection.contains("close")
+				&& (http11 || connection.contains("keep-alive")) && !headers.containsKey("content-length");
+
+		final String path = handleRequest(request);
+		out.flush();
 
-			if (file.isDirectory()) {
-				// Check to see if there is an index file in the directory.
-				final File indexFile = new File(file, "index.html");
-				if (indexFile.exists() && !indexFile.isDirectory()) {
-					file = indexFile;
-				}
-			}
+		if (!Application.isServerMode() && path != null && path.startsWith("/exit"))
+			System.exit(0);
+		return keepAlive;
+	}
 
-			if (path.startsWith("/map")) {
-				if (World.getMapFile() != null)
-					writeFile(out, World.getMapFile());
-				else
-					sendError(out, 400, "Map image not loaded");
-			} else if (path.startsWith("/sitemap/")) {
-				int id = Integer.parseInt(path.substring(path.lastIndexOf("/") + 1));
-				Path siteMapPath = World.getSiteMapPath(id);
-				if (Files.exists(siteMapPath))
-					writeFile(out, siteMapPath.toFile());
-				else
-					sendError(out, 400, "Map image not loaded");
-
-			} else if (path.startsWith("/favicon.ico")) {
-				sendError(out, 400, "no favicon");
-
-			} else if (!path.startsWith("/resources")) {
-				try {
-					StringWriter sw = new StringWriter();
-
-					context.put("serverMode", Application.isServerMode());
-					context.put("suburi", Application.getSubUri() != null ? Application.getSubUri() : "");
-					context.put("World", World.class);
-					context.put("Port", port);
-					context.put("Event", EventHelper.class);
-					context.put("Entity", Entity.class);
-
-					context.put("contentType", "text/html; charset=utf-8");
-
-					String content;
-					Object result = findMapping(path, context);
-					if (result instanceof String) {
-						content = (String) result;
-					} else {
-						Template template = (Template) result;
-						if (template == null)
-							template = Templates.get("index.vm");
-
-						template.merge(context, sw);
-						content = sw.toString();
-					}
-					sendHeader(out, 200, (String) context.get("contentType"), content.length(), file.lastModified());
-					out.write(content.getBytes());
-				} catch (Exception e) {
-					LOG.error("error in request: " + path, e);
-					String content = e.toString();
-					sendHeader(out, 200, "text/html", content.length(), new Date().getTime());
-					out.write(content.getBytes());
-				}
-			} else {
-				String contentType = WebServer.MIME_TYPES.get(path.substring(path.lastIndexOf(".")).toLowerCase());
-				if (contentType == null) {
-					contentType = "application/octet-stream";
-				}
+	static Map<String, String> readHeaders(final BufferedReader in) throws IOException {
+		Map<String, String> headers = new HashMap<>();
+		String line;
+		while ((line = in.readLine()) != null && !line.isEmpty()) {
+			int colon = line.indexOf(':');
+			if (colon > 0)
+				headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+		}
+		return headers;
+	}
 
-				try {
-					final URLConnection c = ClassLoader.getSystemResource(path.substring("/resources/".length()))
-							.openConnection();
-					sendHeader(out, 200, contentType, c.getContentLength(), c.getLastModified());
-					reader = new BufferedInputStream(c.getInputStream());
-
-					final byte[] buffer = new byte[4096];
-					int bytesRead;
-					while ((bytesRead = reader.read(buffer)) != -1) {
-						out.write(buffer, 0, bytesRead);
-					}
-					reader.close();
-				} catch (final Exception e) {
-					LOG.error("error in request: " + path, e);
-				}
+	/**
+	 * @return the path of the request, or null if it was invalid
+	 */
+	private String handleRequest(final String request) throws IOException {
+		if (!request.startsWith("GET ") || !(request.endsWith(" HTTP/1.0") || request.endsWith(" HTTP/1.1"))) {
+			// Invalid request type (no "GET")
+			keepAlive = false;
+			sendError(500, "Invalid Method.");
+			return null;
+		}
+		String path = request.substring(4, request.length() - 9);
+
+		if (Application.hasSubUri()) {
+			if (!path.startsWith(Application.getSubUri())) {
+				sendError(400, "Not found.");
+				return path;
 			}
 
-			out.flush();
-			out.close();
+			path = path.substring(Application.getSubUri().length());
+		}
 
-			if (!Application.isServerMode() && path.startsWith("/exit"))
-				System.exit(0);
-		} catch (final IOException e) {
-			if (reader != null) {
-				try {
-					reader.close();
-				} catch (final Exception anye) {
+		VelocityContext context = new VelocityContext();
+		HistoricalFigure.setContext(null);
+
+		String arguments = "";
+		HashMap<String, String> params = new HashMap<>();
+		if (path.contains("?")) {
+			arguments = path.substring(path.indexOf("?") + 1);
+			path = path.substring(0, path.indexOf("?"));
+
+			for (String kv : arguments.split("&")) {
+				String[] d = kv.split("=");
+				if (d.length == 2) {
+					String key = URLDecoder.decode(d[0], "UTF-8");
+					String value = URLDecoder.decode(d[1], "UTF-8");
+					params.put(key, value);
+					context.put(key, value);
 				}
 			}
 		}
-	}
+		path = path.replace("+", "%2B");
+		path = URLDecoder.decode(path, "UTF-8");
 
-	@SuppressWarnings("unchecked")
-	private Object findMapping(final String path, final VelocityContext context)
-			throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+		File file = new File(path).getCanonicalFile();
 
-		Predicate<AnnotatedElement> withMapping = ReflectionUtils.withAnnotation(RequestMapping.class);
-
-		Set<Class<?>> controllers = reflections.getTypesAnnotatedWith(Controller.class);
+		if (file.isDirectory()) {
+			// Check to see if there is an index file in the directory.
+			final File indexFile = new File(file, "index.html");
+			if (indexFile.exists() && !indexFile.isDirectory()) {
+				file = indexFile;
+			}
+		}
 
-		List<Method> methods = new ArrayList<Method>();
+		if (path.startsWith("/map")) {
+			if (World.getMapFile() != null)
+				writeFile(World.getMapFile());
+			else
+				sendError(400, "Map image not loaded");
+		} else if (path.startsWith("/sitemap/")) {
+			Path siteMapPath = null;
+			try {
+				siteMapPath = World.getSiteMapPath(Integer.parseInt(path.substring(path.lastIndexOf("/") + 1)));
+			} catch (NumberFormatException e) {
+			}
+			if (siteMapPath != null && Files.exists(siteMapPath))
+				writeFile(siteMapPath.toFile());
+			else
+				sendError(400, "Map image not loaded");
+
+		} else if (path.startsWith("/favicon.ico")) {
+			sendError(400, "no favicon");
+
+		} else if (!path.startsWith("/resources")) {
+			final WorldState state = World.getState();
+			final Route route = routes.get(state).find(path);
+			final String cacheKey = state == WorldState.READY && PageCache.isEnabled()
+					&& (route == null || route.isCacheable()) ? path + (arguments.isEmpty() ? "" : "?" + arguments)
+							: null;
+			if (cacheKey != null) {
+				final Page page = PageCache.get(cacheKey);
+				if (page != null) {
+					writePage(page);
+					return path;
+				}
+			}
+			final int generation = PageCache.getGeneration();
+
+			Object result;
+			String contentType;
+			long lastModified;
+			boolean failed = false;
+			try {
+				context.put("serverMode", Application.isServerMode());
+				context.put("suburi", Application.getSubUri() != null ? Application.getSubUri() : "");
+				context.put("Resource", StaticResource.class);
+				context.put("World", World.class);
+				context.put("Port", port);
+				context.put("Event", EventHelper.class);
+				context.put("Entity", Entity.class);
+
+				context.put("contentType", "text/html; charset=utf-8");
+
+				result = route != null ? route.invoke(context, path) : null;
+				if (result == null)
+					result = Templates.get("index.vm");
+				contentType = (String) context.get("contentType");
+				lastModified = file.lastModified();
+			} catch (Exception e) {
+				LOG.error("error in request: " + path, e);
+				result = e.toString();
+				contentType = "text/html";
+				lastModified = new Date().getTime();
+				failed = true;
+			}
 
-		for (Class<?> controller : controllers) {
-			WorldState state = controller.getAnnotation(Controller.class).state();
-			if (state != World.getState() && state != WorldState.ANY)
-				continue;
+			String encoding = null;
+			if (ContentEncoding.isCompressible(contentType)) {
+				addHeader("Vary", "Accept-Encoding");
+				encoding = ContentEncoding.negotiate(headers.get("accept-encoding"));
+			}
+			byte[] rendered;
+			if (result instanceof Template) {
+				rendered = writeTemplate((Template) result, context, path, contentType, encoding, lastModified,
+						cacheKey != null);
+			} else {
+				byte[] content = ((String) result).getBytes(StandardCharsets.UTF_8);
+				rendered = failed ? null : content;
+				if (encoding != null && content.length >= ContentEncoding.MIN_SIZE) {
+					content = ContentEncoding.encode(content, encoding);
+					addHeader("Content-Encoding", encoding);
+				}
+				sendHeader(200, contentType, content.length, lastModified);
+				out.write(content);
+			}
+			if (cacheKey != null && rendered != null)
+				PageCache.put(cacheKey, generation, new Page(rendered, contentType));
+		} else {
+			String contentType = WebServer.MIME_TYPES.get(path.substring(path.lastIndexOf(".")).toLowerCase());
+			if (contentType == null) {
+				contentType = "application/octet-stream";
+			}
 
-			methods.addAll(ReflectionUtils.getAllMethods(controller, withMapping));
+			final URL resource = ClassLoader.getSystemResource(path.substring("/resources/".length()));
+			if (resource == null) {
+				sendError(404, "Not found.");
+				return path;
+			}
+			final StaticResource staticResource = StaticResource.get(resource);
+			byte[] content = staticResource.getContent();
+			String encoding = null;
+			if (ContentEncoding.isCompressible(contentType)) {
+				addHeader("Vary", "Accept-Encoding");
+				encoding = ContentEncoding.negotiate(headers.get("accept-encoding"));
+				byte[] compressed = encoding != null ? staticResource.getEncoded(encoding) : null;
+				if (compressed != null)
+					content = compressed;
+				else
+					encoding = null;
+			}
+			if (sendNotModified(staticResource.getETag(encoding), staticResource.getLastModified(),
+					staticResource.getHash().equals(params.get("v")) ? IMMUTABLE : REVALIDATE))
+				return path;
+			if (encoding != null)
+				addHeader("Content-Encoding", encoding);
+			sendHeader(200, contentType, content.length, staticResource.getLastModified());
+			out.write(content);
 		}
+		return path;
+	}
 
-		Collections.sort(methods, (m1, m2) -> {
-			String map1 = m1.getAnnotation(RequestMapping.class).value();
-			String map2 = m2.getAnnotation(RequestMapping.class).value();
-			return map1.length() < map2.length() ? 1 : -1;
-		});
+	/**
+	 * Sends a page from the {@link PageCache}.
+	 */
+	private void writePage(final Page page) throws IOException {
+		byte[] content = page.getContent();
+		if (ContentEncoding.isCompressible(page.getContentType())) {
+			addHeader("Vary", "Accept-Encoding");
+			final String encoding = ContentEncoding.negotiate(headers.get("accept-encoding"));
+			if (encoding != null && content.length >= ContentEncoding.MIN_SIZE) {
+				content = PageCache.getEncoded(page, encoding);
+				addHeader("Content-Encoding", encoding);
+			}
+		}
+		sendHeader(200, page.getContentType(), content.length, 0);
+		out.write(content);
+	}
 
-		Method defaultMethod = null;
-		for (Method method : methods) {
-			String mapping = method.getAnnotation(RequestMapping.class).value();
+	/**
+	 * Writes the template while it is merged instead of collecting the page
+	 * first. Pages up to {@link ContentEncoding#MIN_SIZE} bytes are sent as a
+	 * whole. Larger pages are compressed if possible and chunked for HTTP/1.1
+	 * clients; HTTP/1.0 clients get them without a length and the connection
+	 * is closed afterwards.
+	 *
+	 * @return the page for the {@link PageCache} if captured, or null
+	 */
+	private byte[] writeTemplate(final Template template, final VelocityContext context, final String path,
+			final String contentType, final String encoding, final long lastModified, final boolean capture)
+			throws IOException {
+		TemplateOutputStream body = new TemplateOutputStream(contentType, encoding, lastModified, capture);
+		Writer writer = new OutputStreamWriter(body, StandardCharsets.UTF_8);
+		try {
+			template.merge(context, writer);
+		} catch (Exception e) {
+			// the header may be sent already, the error ends the page
+			LOG.error("error in request: " + path, e);
+			writer.write(e.toString());
+			body.captured = null;
+		}
+		try {
+			writer.flush();
+			body.finish();
+		} finally {
+			body.close();
+		}
+		return body.captured != null ? body.captured.toByteArray() : null;
+	}
 
-			if (mapping.equals("")) {
-				defaultMethod = method;
-				continue;
+	private class TemplateOutputStream extends OutputStream {
+		private final String contentType;
+		private final String encoding;
+		private final long lastModified;
+		private byte[] start = new byte[ContentEncoding.MIN_SIZE];
+		private int startLength = 0;
+		private ChunkedOutputStream chunked;
+		private DeflaterOutputStream compressed;
+		private OutputStream body;
+		private ByteArrayOutputStream captured;
+		private int captureLimit;
+
+		TemplateOutputStream(String contentType, String encoding, long lastModified, boolean capture) {
+			this.contentType = contentType;
+			this.encoding = encoding;
+			this.lastModified = lastModified;
+			if (capture) {
+				captured = new ByteArrayOutputStream(1 << 13);
+				captureLimit = PageCache.getMaxPageSize();
 			}
+		}
 
-			if (mapping.endsWith("{id}")) {
-				mapping = mapping.substring(0, mapping.length() - ("{id}".length()));
-
-				if (path.startsWith(mapping)) {
-					int id = Integer.parseInt(path.substring(mapping.length()));
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
 
-					return method.invoke(method.getDeclaringClass().newInstance(), context, id);
-				} else {
-					continue;
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (captured != null) {
+				if (captured.size() + len <= captureLimit)
+					captured.write(b, off, len);
+				else
+					captured = null;
+			}
+			if (body == null) {
+				if (startLength + len <= start.length) {
+					System.arraycopy(b, off, start, startLength, len);
+					startLength += len;
+					return;
 				}
+				open();
+			}
+			body.write(b, off, len);
+		}
 
-			} else if (mapping.endsWith("{name}")) {
-				mapping = mapping.substring(0, mapping.length() - ("{name}".length()));
-
-				if (path.startsWith(mapping)) {
-					String name = path.substring(mapping.length());
+		/**
+		 * Sends the header once the page is too large to be sent as a whole.
+		 */
+		private void open() throws IOException {
+			if (encoding != null)
+				addHeader("Content-Encoding", encoding);
+			sendHeader(200, contentType, http11 ? CHUNKED : -1, lastModified);
+			if (http11)
+				chunked = new ChunkedOutputStream(out);
+			body = chunked != null ? chunked : out;
+			if (encoding != null)
+				body = compressed = ContentEncoding.encode(body, encoding);
+			body.write(start, 0, startLength);
+		}
 
-					return method.invoke(method.getDeclaringClass().newInstance(), context, name);
-				} else {
-					continue;
-				}
+		void finish() throws IOException {
+			if (body == null) {
+				sendHeader(200, contentType, startLength, lastModified);
+				out.write(start, 0, startLength);
+				return;
+			}
+			if (compressed != null)
+				compressed.close();
+			if (chunked != null)
+				chunked.finish();
+		}
 
-			} else if (!path.startsWith(mapping)) {
-				continue;
+		/**
+		 * Releases the deflater if the page was not finished.
+		 */
+		@Override
+		public void close() {
+			if (compressed == null)
+				return;
+			try {
+				compressed.close();
+			} catch (IOException e) {
 			}
+		}
+	}
 
-			return method.invoke(method.getDeclaringClass().newInstance(), context);
+	/**
+	 * Sends a file, or the requested range of it, without copying it through
+	 * the heap where the output allows.
+	 */
+	private void writeFile(File file) throws IOException {
+		final String contentType = WebServer.MIME_TYPES
+				.get(file.getName().substring(file.getName().lastIndexOf(".")).toLowerCase());
+		final long length = file.length();
+		final long lastModified = file.lastModified();
+		final String etag = "\"" + Integer.toHexString(file.getPath().hashCode()) + "-"
+				+ Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+		addHeader("Accept-Ranges", "bytes");
+		if (sendNotModified(etag, lastModified, REVALIDATE))
+			return;
+
+		long from = 0;
+		long to = length - 1;
+		int code = 200;
+		final long[] range = isCurrent(headers.get("if-range"), etag, lastModified)
+				? parseRange(headers.get("range"), length)
+				: null;
+		if (range != null && range.length == 0) {
+			addHeader("Content-Range", "bytes */" + length);
+			sendHeader(416, null, 0, lastModified);
+			return;
+		}
+		if (range != null) {
+			from = range[0];
+			to = range[1];
+			code = 206;
+			addHeader("Content-Range", "bytes " + from + "-" + to + "/" + length);
+		}
+		sendHeader(code, contentType, to - from + 1, lastModified);
+		transfer(file.toPath(), from, to - from + 1);
+	}
 
+	private void transfer(final Path path, long position, long count) throws IOException {
+		if (out instanceof FileOutput) {
+			((FileOutput) out).sendFile(path, position, count);
+			return;
 		}
+		try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+			final SocketChannel channel = _socket != null ? _socket.getChannel() : null;
+			if (channel != null) {
+				out.flush();
+				while (count > 0) {
+					final long n = file.transferTo(position, count, channel);
+					if (n <= 0)
+						break;
+					position += n;
+					count -= n;
+				}
+				return;
+			}
 
-		if (defaultMethod != null) {
-			return defaultMethod.invoke(defaultMethod.getDeclaringClass().newInstance(), context);
+			ByteBuffer buffer = COPY_BUFFERS.poll();
+			if (buffer == null)
+				buffer = ByteBuffer.allocate(1 << 16);
+			try {
+				while (count > 0) {
+					buffer.clear();
+					if (count < buffer.capacity())
+						buffer.limit((int) count);
+					final int n = file.read(buffer, position);
+					if (n < 0)
+						break;
+					out.write(buffer.array(), 0, n);
+					position += n;
+					count -= n;
+				}
+			} finally {
+				COPY_BUFFERS.offer(buffer);
+			}
 		}
+	}
 
-		return null;
+	/**
+	 * An output that sends files by itself.
+	 */
+	interface FileOutput {
+		/**
+		 * Sends a part of a file after everything written so far. Nothing may
+		 * be written after it.
+		 */
+		void sendFile(Path path, long position, long count) throws IOException;
 	}
 
-	private void writeFile(BufferedOutputStream out, File file) throws MalformedURLException, IOException {
-		String contentType = WebServer.MIME_TYPES
-				.get(file.getName().substring(file.getName().lastIndexOf(".")).toLowerCase());
-		final URLConnection c = file.toURI().toURL().openConnection();
-		sendHeader(out, 200, contentType, c.getContentLength(), c.getLastModified());
-		BufferedInputStream reader = new BufferedInputStream(c.getInputStream());
+	/**
+	 * Writes each block as one chunk of the chunked transfer coding and passes
+	 * it on to the socket, so the client gets the page while it is rendered.
+	 */
+	private static class ChunkedOutputStream extends FilterOutputStream {
+		private static final byte[] CRLF = { '\r', '\n' };
+		private static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
 
-		final byte[] buffer = new byte[640000];
-		int bytesRead;
-		while ((bytesRead = reader.read(buffer)) != -1) {
-			out.write(buffer, 0, bytesRead);
+		ChunkedOutputStream(OutputStream out) {
+			super(out);
 		}
-		reader.close();
-	}
 
-}
\ No newline at end of file
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return;
+			out.write(Integer.toHexString(len).getBytes(StandardCharsets.US_ASCII));
+			out.write(CRLF);
+			out.write(b, off, len);
+			out.write(CRLF);
+			out.flush();
+		}
+
+		void finish() throws IOException {
+			out.write(LAST_CHUNK);
+		}
+	}
+}
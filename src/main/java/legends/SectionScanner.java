@@ -0,0 +1,281 @@
+package legends;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLReaderFactory;
+
+import legends.xml.MappedXmlReader;
+import legends.xml.handlers.StackContentHandler;
+
+/**
+ * Finds the top-level sections of a legends file and parses byte ranges of
+ * it as documents of their own.
+ */
+class SectionScanner {
+	static class Section {
+		String name;
+		long start, end;
+		long contentStart, contentEnd;
+		List<Long> boundaries = new ArrayList<>();
+	}
+
+	private FileChannel channel;
+	private String root;
+
+	SectionScanner(FileChannel channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Name of the root element, known after {@link #scan(Set, long)}.
+	 */
+	String getRoot() {
+		return root;
+	}
+
+	/**
+	 * Finds the elements below the root element. Sections in splittable get a
+	 * boundary after the first element ending at least chunkSize bytes after
+	 * the previous boundary.
+	 */
+	List<Section> scan(Set<String> splittable, long chunkSize) throws IOException {
+		List<Section> sections = new ArrayList<>();
+		ByteScanner in = new ByteScanner(channel);
+		Section current = null;
+		long lastBoundary = 0;
+		int depth = 0;
+
+		while (in.nextTag()) {
+			byte[] b = in.buffer;
+			int start = in.tagStart;
+			int end = in.tagEnd;
+			byte type = b[start + 1];
+			if (type == '?' || type == '!')
+				continue;
+
+			long tagStart = in.offset + start;
+			long tagEnd = in.offset + end;
+			if (type == '/') {
+				depth--;
+				if (depth == 1 && current != null) {
+					current.contentEnd = tagStart;
+					current.end = tagEnd;
+					sections.add(current);
+					current = null;
+				} else if (depth == 2 && current != null && current.boundaries != null
+						&& tagEnd - lastBoundary >= chunkSize) {
+					lastBoundary = tagEnd;
+					current.boundaries.add(lastBoundary);
+				}
+				continue;
+			}
+
+			boolean empty = b[end - 2] == '/';
+			if (depth <= 1) {
+				int nameEnd = start + 1;
+				while (b[nameEnd] != '>' && b[nameEnd] != '/' && !Character.isWhitespace(b[nameEnd]))
+					nameEnd++;
+				String name = new String(b, start + 1, nameEnd - start - 1, StandardCharsets.UTF_8);
+				if (depth == 0) {
+					root = name;
+				} else {
+					current = new Section();
+					current.name = name;
+					current.start = tagStart;
+					current.contentStart = tagEnd;
+					lastBoundary = tagEnd;
+					if (!splittable.contains(name))
+						current.boundaries = null;
+					if (empty) {
+						current.end = current.contentEnd = tagEnd;
+						sections.add(current);
+						current = null;
+					}
+				}
+			}
+			if (!empty)
+				depth++;
+		}
+
+		for (Section section : sections)
+			if (section.boundaries == null)
+				section.boundaries = Collections.emptyList();
+		return sections;
+	}
+
+	/**
+	 * Parses the bytes from start to end wrapped in an enclosing element.
+	 */
+	static void parse(FileChannel channel, long start, long end, String enclosing, Charset cs,
+			StackContentHandler contentHandler) throws SAXException, IOException {
+		if (LegendsReader.isMappedReader()) {
+			MappedXmlReader xmlReader = new MappedXmlReader(cs);
+			contentHandler.setXmlReader(xmlReader);
+			xmlReader.setContentHandler(contentHandler);
+			xmlReader.parse(channel, start, end, enclosing);
+			return;
+		}
+
+		XMLReader xmlReader = XMLReaderFactory.createXMLReader();
+		contentHandler.setXmlReader(xmlReader);
+		xmlReader.setContentHandler(contentHandler);
+
+		CharsetDecoder decoder = cs.newDecoder();
+		decoder.onMalformedInput(CodingErrorAction.IGNORE);
+
+		String open = "<" + enclosing + ">";
+		String close = "</" + enclosing + ">";
+		InputStream in = new SequenceInputStream(
+				new SequenceInputStream(new ByteArrayInputStream(open.getBytes(StandardCharsets.US_ASCII)),
+						new RangeInputStream(channel, start, end)),
+				new ByteArrayInputStream(close.getBytes(StandardCharsets.US_ASCII)));
+		xmlReader.parse(new InputSource(new BufferedReader(new InputStreamReader(in, decoder), 1 << 16)));
+	}
+
+	/**
+	 * Iterates over the tags of a file, keeping every tag completely in the
+	 * buffer.
+	 */
+	private static class ByteScanner {
+		private static final byte[] PI_END = "?>".getBytes(StandardCharsets.US_ASCII);
+		private static final byte[] COMMENT_END = "-->".getBytes(StandardCharsets.US_ASCII);
+		private static final byte[] CDATA_END = "]]>".getBytes(StandardCharsets.US_ASCII);
+
+		private FileChannel channel;
+		byte[] buffer = new byte[1 << 22];
+		long offset = 0;
+		int position = 0, limit = 0;
+		int tagStart, tagEnd;
+
+		ByteScanner(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		boolean nextTag() throws IOException {
+			for (;;) {
+				int i = position;
+				byte[] b = buffer;
+				int l = limit;
+				while (i < l && b[i] != '<')
+					i++;
+				position = i;
+				if (i < l) {
+					int end = findTagEnd(i);
+					if (end >= 0) {
+						tagStart = i;
+						tagEnd = end;
+						position = end;
+						return true;
+					}
+				}
+				if (!fill())
+					return false;
+			}
+		}
+
+		private int findTagEnd(int start) {
+			if (start + 3 >= limit)
+				return -1;
+			byte type = buffer[start + 1];
+			if (type == '?')
+				return find(PI_END, start + 2);
+			if (type == '!') {
+				if (buffer[start + 2] == '-')
+					return find(COMMENT_END, start + 2);
+				if (buffer[start + 2] == '[')
+					return find(CDATA_END, start + 2);
+			}
+
+			byte quote = 0;
+			for (int i = start + 1; i < limit; i++) {
+				byte c = buffer[i];
+				if (quote != 0) {
+					if (c == quote)
+						quote = 0;
+				} else if (c == '"' || c == '\'') {
+					quote = c;
+				} else if (c == '>') {
+					return i + 1;
+				}
+			}
+			return -1;
+		}
+
+		private int find(byte[] pattern, int from) {
+			outer: for (int i = from; i + pattern.length <= limit; i++) {
+				for (int j = 0; j < pattern.length; j++)
+					if (buffer[i + j] != pattern[j])
+						continue outer;
+				return i + pattern.length;
+			}
+			return -1;
+		}
+
+		/**
+		 * Moves the unprocessed rest to the start of the buffer and reads
+		 * more data, growing the buffer if a single tag does not fit.
+		 */
+		private boolean fill() throws IOException {
+			if (position > 0) {
+				System.arraycopy(buffer, position, buffer, 0, limit - position);
+				offset += position;
+				limit -= position;
+				position = 0;
+			}
+			if (limit == buffer.length)
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			int n = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit), offset + limit);
+			if (n <= 0)
+				return false;
+			limit += n;
+			return true;
+		}
+	}
+
+	private static class RangeInputStream extends InputStream {
+		private FileChannel channel;
+		private long position, end;
+
+		RangeInputStream(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.position = start;
+			this.end = end;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (position >= end)
+				return -1;
+			len = (int) Math.min(len, end - position);
+			int n = channel.read(ByteBuffer.wrap(b, off, len), position);
+			if (n > 0)
+				position += n;
+			return n;
+		}
+	}
+}
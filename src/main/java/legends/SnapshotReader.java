@@ -0,0 +1,77 @@
+package legends;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import legends.helper.GraphInput;
+import legends.helper.WorldConfig;
+import legends.model.World;
+
+public class SnapshotReader {
+	private static final Log LOG = LogFactory.getLog(SnapshotReader.class);
+
+	/**
+	 * Loads the world from the snapshot of the given config if it exists and
+	 * was written by this build for the current source files.
+	 *
+	 * @return false if the world has to be loaded from the xml files
+	 */
+	public static boolean read(WorldConfig config) {
+		Path path = config.getSnapshotPath();
+		if (!Files.exists(path))
+			return false;
+
+		long start = System.currentTimeMillis();
+		try (GraphInput in = new GraphInput(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+			if (!SnapshotWriter.getBuild().equals(in.readString())) {
+				LOG.info("snapshot " + path + " was written by another build");
+				return false;
+			}
+			if (!readSources(in, config.getSourcePaths())) {
+				LOG.info("snapshot " + path + " is outdated");
+				return false;
+			}
+
+			Object[] values = new Object[SnapshotWriter.WORLD_FIELDS.length];
+			for (int i = 0; i < values.length; i++)
+				values[i] = in.readObject();
+
+			for (int i = 0; i < values.length; i++) {
+				Field field = World.class.getDeclaredField(SnapshotWriter.WORLD_FIELDS[i]);
+				field.setAccessible(true);
+				field.set(null, values[i]);
+			}
+			LOG.info("snapshot loaded from " + path + " in " + (System.currentTimeMillis() - start) + " ms");
+			return true;
+		} catch (IOException | ReflectiveOperationException | RuntimeException e) {
+			LOG.warn("error reading snapshot " + path, e);
+			return false;
+		}
+	}
+
+	private static boolean readSources(GraphInput in, List<Path> sources) throws IOException {
+		if (in.readInt() != sources.size())
+			return false;
+		boolean valid = true;
+		for (Path source : sources) {
+			String name = in.readString();
+			long size = in.readLong();
+			long modified = in.readLong();
+			if (source != null && Files.exists(source)) {
+				valid &= Objects.equals(name, source.toAbsolutePath().toString()) && size == Files.size(source)
+						&& modified == Files.getLastModifiedTime(source).toMillis();
+			} else {
+				valid &= name == null;
+			}
+		}
+		return valid;
+	}
+}
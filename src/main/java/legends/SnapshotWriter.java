@@ -0,0 +1,114 @@
+package legends;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import legends.helper.GraphOutput;
+import legends.helper.WorldConfig;
+import legends.model.World;
+
+public class SnapshotWriter {
+	private static final Log LOG = LogFactory.getLog(SnapshotWriter.class);
+
+	static final String[] WORLD_FIELDS = { "name", "altName", "endYear", "plusMode", "regions", "undergroundRegions",
+			"worldConstructions", "sites", "artifacts", "historicalFigures", "historicalFigureNames", "identities",
+			"entityPopulations", "entities", "historicalEventsMap", "historicalEventCollectionsMap", "eventIndex",
+			"eventColumns", "historicalEras", "populations", "landmasses", "mountainPeaks", "poeticFormsMap",
+			"musicalFormsMap", "danceFormsMap", "writtenContentsMap", "mapTileWidth", "mapTileHeight",
+			"populationAvailable" };
+
+	private static String build;
+
+	public static void write(WorldConfig config) {
+		long start = System.currentTimeMillis();
+		Path path = config.getSnapshotPath();
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			try (GraphOutput out = new GraphOutput(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+				out.writeString(getBuild());
+				writeSources(out, config.getSourcePaths());
+
+				out.addConstants(World.class);
+				for (String fieldName : WORLD_FIELDS) {
+					Field field = World.class.getDeclaredField(fieldName);
+					field.setAccessible(true);
+					out.writeObject(field.get(null));
+				}
+			}
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+			LOG.info("snapshot written to " + path + " in " + (System.currentTimeMillis() - start) + " ms");
+		} catch (IOException | ReflectiveOperationException e) {
+			LOG.warn("error writing snapshot " + path, e);
+			try {
+				Files.deleteIfExists(tmp);
+			} catch (IOException e1) {
+			}
+		}
+	}
+
+	private static void writeSources(GraphOutput out, List<Path> sources) throws IOException {
+		out.writeInt(sources.size());
+		for (Path source : sources) {
+			if (source != null && Files.exists(source)) {
+				out.writeString(source.toAbsolutePath().toString());
+				out.writeLong(Files.size(source));
+				out.writeLong(Files.getLastModifiedTime(source).toMillis());
+			} else {
+				out.writeString(null);
+				out.writeLong(-1);
+				out.writeLong(-1);
+			}
+		}
+	}
+
+	/**
+	 * Identifies the classes the application runs with. The snapshot holds
+	 * data computed while loading, so it is only valid for the same build.
+	 */
+	static synchronized String getBuild() {
+		if (build == null) {
+			String version = Application.class.getPackage().getImplementationVersion();
+			build = version + "/" + hashClasses();
+		}
+		return build;
+	}
+
+	/**
+	 * @return the size and modification time of the jar, or a checksum of
+	 *         the class files when running from a directory
+	 */
+	private static String hashClasses() {
+		try {
+			Path code = Paths.get(Application.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+			if (!Files.isDirectory(code))
+				return Files.size(code) + "/" + Files.getLastModifiedTime(code).toMillis();
+
+			CRC32 crc = new CRC32();
+			try (Stream<Path> files = Files.walk(code)) {
+				Iterator<Path> it = files.filter(p -> p.toString().endsWith(".class")).sorted().iterator();
+				while (it.hasNext()) {
+					Path file = it.next();
+					crc.update(code.relativize(file).toString().getBytes());
+					crc.update(Files.readAllBytes(file));
+				}
+			}
+			return Long.toHexString(crc.getValue());
+		} catch (IOException | URISyntaxException | RuntimeException e) {
+			LOG.warn("cannot identify the build", e);
+			return "unknown";
+		}
+	}
+}
@@ -1,10 +1,20 @@
 package legends;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.ServerSocketChannel;
 import java.util.Hashtable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -27,6 +37,16 @@ public class WebServer extends Thread {
 		MIME_TYPES.put(".htm", text + "html");
 		MIME_TYPES.put(".txt", text + "plain");
 		MIME_TYPES.put(".css", text + "css");
+		MIME_TYPES.put(".js", "application/javascript");
+		MIME_TYPES.put(".json", "application/json");
+		MIME_TYPES.put(".map", "application/json");
+		MIME_TYPES.put(".svg", image + "svg+xml");
+		MIME_TYPES.put(".ico", image + "x-icon");
+		MIME_TYPES.put(".eot", "application/vnd.ms-fontobject");
+		MIME_TYPES.put(".ttf", "font/ttf");
+		MIME_TYPES.put(".otf", "font/otf");
+		MIME_TYPES.put(".woff", "font/woff");
+		MIME_TYPES.put(".woff2", "font/woff2");
 	}
 
 	private static WebServer server;
@@ -59,10 +79,13 @@ public class WebServer extends Thread {
 
 	private int port;
 
+	private ServerSocketChannel _serverChannel;
 	private ServerSocket _serverSocket;
 
 	private final boolean _running = true;
 
+	private ExecutorService executor;
+
 	public WebServer(final int port) throws IOException {
 		this.port = port;
 		
@@ -75,8 +98,11 @@ public class WebServer extends Thread {
 			msg = "";
 			trycount++;
 			try {
-				_serverSocket = new ServerSocket(this.port);
+				_serverChannel = ServerSocketChannel.open();
+				_serverChannel.bind(new InetSocketAddress(this.port));
+				_serverSocket = _serverChannel.socket();
 			} catch (final SocketException e) {
+				_serverChannel.close();
 				LOG.error("cannot start portal server on port " + this.port + ": " + e.getMessage());
 				msg = e.getMessage();
 				if (trycount == 10 || Application.getPort() != null) {
@@ -88,21 +114,83 @@ public class WebServer extends Thread {
 				}
 			}
 		}
+		executor = createExecutor();
 		LOG.info("server started on localhost:" + this.port);
 		start();
 	}
 
+	/**
+	 * Creates the executor for requests as selected on the command line.
+	 * Returns null for one new thread per connection.
+	 */
+	private static ExecutorService createExecutor() {
+		switch (Application.getExecutor()) {
+		case "thread":
+			LOG.info("handling requests with one thread per connection");
+			return null;
+		case "virtual":
+			try {
+				ExecutorService executor = (ExecutorService) Executors.class
+						.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+				LOG.info("handling requests with virtual threads");
+				return executor;
+			} catch (ReflectiveOperationException e) {
+				LOG.warn("virtual threads need java 21 or later, using a thread pool");
+				return createPool();
+			}
+		default:
+			return createPool();
+		}
+	}
+
+	private static ExecutorService createPool() {
+		int workers = Application.getWorkers();
+		int queueSize = Application.getQueueSize();
+		LOG.info("handling requests with " + workers + " threads and " + queueSize + " queued connections");
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, queueSize)), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable r) {
+						return new Thread(r, "request-" + count.incrementAndGet());
+					}
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
 	public int getPort() {
 		return port;
 	}
 
 	@Override
 	public void run() {
+		if (Application.isNio()) {
+			try {
+				new NioServer(_serverChannel, executor != null ? executor : Executors.newCachedThreadPool(), port)
+						.run();
+			} catch (final IOException e) {
+				LOG.error("error in webserver", e);
+				System.exit(1);
+			}
+			return;
+		}
+
 		while (_running) {
 			try {
 				final Socket socket = _serverSocket.accept();
-				final RequestThread requestThread = new RequestThread(socket, port);
-				requestThread.start();
+				final RequestThread requestThread = new RequestThread(socket, port,
+						executor instanceof ThreadPoolExecutor ? (ThreadPoolExecutor) executor : null);
+				if (executor == null) {
+					new Thread(requestThread).start();
+					continue;
+				}
+				try {
+					executor.execute(requestThread);
+				} catch (RejectedExecutionException e) {
+					RequestThread.sendUnavailable(socket);
+				}
 			} catch (final IOException e) {
 				System.exit(1);
 			}
@@ -0,0 +1,113 @@
+package legends.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of responses with gzip or deflate.
+ *
+ * Static resources are compressed once by {@link StaticResource}.
+ */
+public class ContentEncoding {
+	public static final String GZIP = "gzip";
+	public static final String DEFLATE = "deflate";
+
+	/**
+	 * Smaller responses are sent uncompressed.
+	 */
+	public static final int MIN_SIZE = 1024;
+
+	private ContentEncoding() {
+	}
+
+	/**
+	 * Picks gzip or deflate from an Accept-Encoding header.
+	 *
+	 * @return the encoding, or null to send the content as it is
+	 */
+	public static String negotiate(String acceptEncoding) {
+		if (acceptEncoding == null)
+			return null;
+		boolean deflate = false;
+		for (String part : acceptEncoding.split(",")) {
+			String[] params = part.split(";");
+			String coding = params[0].trim().toLowerCase();
+			if (params.length > 1 && params[1].trim().matches("q=0(\\.0*)?"))
+				continue;
+			if (coding.equals(GZIP) || coding.equals("x-gzip") || coding.equals("*"))
+				return GZIP;
+			if (coding.equals(DEFLATE))
+				deflate = true;
+		}
+		return deflate ? DEFLATE : null;
+	}
+
+	public static boolean isCompressible(String contentType) {
+		return contentType != null && (contentType.startsWith("text/") || contentType.contains("javascript")
+				|| contentType.contains("json") || contentType.contains("xml") || contentType.contains("svg")
+				|| contentType.equals("application/vnd.ms-fontobject") || contentType.equals("font/ttf")
+				|| contentType.equals("font/otf"));
+	}
+
+	/**
+	 * Wraps out. The compressed stream has to be closed, which finishes it
+	 * and releases the native memory of its deflater but leaves out open.
+	 */
+	public static DeflaterOutputStream encode(OutputStream out, String encoding) throws IOException {
+		return encode(new FilterOutputStream(out) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() {
+			}
+		}, encoding, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	private static DeflaterOutputStream encode(OutputStream out, String encoding, int level) throws IOException {
+		if (encoding.equals(GZIP))
+			return new GZIPOutputStream(out, 1 << 13) {
+				{
+					def.setLevel(level);
+				}
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						def.end();
+					}
+				}
+			};
+		return new DeflaterOutputStream(out, new Deflater(level), 1 << 13) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					def.end();
+				}
+			}
+		};
+	}
+
+	public static byte[] encode(byte[] content, String encoding) throws IOException {
+		return encode(content, encoding, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	static byte[] encode(byte[] content, String encoding, int level) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 4 + 64);
+		try (DeflaterOutputStream out = encode(bytes, encoding, level)) {
+			out.write(content);
+		}
+		return bytes.toByteArray();
+	}
+}
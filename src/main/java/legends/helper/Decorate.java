@@ -1,13 +1,13 @@
 package legends.helper;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
 
 import org.apache.velocity.context.InternalContextAdapter;
 import org.apache.velocity.exception.MethodInvocationException;
 import org.apache.velocity.exception.ParseErrorException;
 import org.apache.velocity.exception.ResourceNotFoundException;
+import org.apache.velocity.runtime.Renderable;
 import org.apache.velocity.runtime.directive.Parse;
 import org.apache.velocity.runtime.parser.node.Node;
 
@@ -20,12 +20,27 @@ public class Decorate extends Parse {
 		return BLOCK;
 	}
 
+	/**
+	 * The body is rendered where the layout shows $body_content, straight to
+	 * the writer of the page. Inside the body $body_content is the content of
+	 * an enclosing decorate again, so layouts can be nested.
+	 */
 	public boolean render(InternalContextAdapter context, Writer writer, Node node)
 			throws IOException, ResourceNotFoundException, ParseErrorException, MethodInvocationException {
-		StringWriter sw = new StringWriter();
-		node.jjtGetChild(1).render(context, sw);
-		// store the contents against the variable
-		context.put("body_content", sw.toString());
+		final Node body = node.jjtGetChild(1);
+		final Object outer = context.get("body_content");
+		context.put("body_content", new Renderable() {
+			@Override
+			public boolean render(InternalContextAdapter context, Writer writer)
+					throws IOException, MethodInvocationException, ParseErrorException, ResourceNotFoundException {
+				Object content = context.put("body_content", outer);
+				try {
+					return body.render(context, writer);
+				} finally {
+					context.put("body_content", content);
+				}
+			}
+		});
 		return super.render(context, writer, node);
 	}
-}
\ No newline at end of file
+}
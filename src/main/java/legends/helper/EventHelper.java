@@ -14,6 +14,8 @@ import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.apache.commons.lang.StringEscapeUtils;
+
 import legends.model.Artifact;
 import legends.model.Entity;
 import legends.model.EntityPosition;
@@ -223,6 +225,13 @@ public class EventHelper {
 		return events.stream().map(Event::getType).distinct().sorted().collect(Collectors.toList());
 	}
 	
+	/**
+	 * Escapes a value for a JSON string.
+	 */
+	public static String json(Object value) {
+		return value == null ? "" : StringEscapeUtils.escapeJava(value.toString());
+	}
+
 	public static String escapePath(Path path) {
 		try {
 			return URLEncoder.encode(path.toString(), "UTF-8");
@@ -0,0 +1,76 @@
+package legends.helper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared tags and field layout of the binary object graph format used by
+ * {@link GraphOutput} and {@link GraphInput}.
+ */
+public class GraphFormat {
+	public static final int MAGIC = 0x4C425347; // "LBSG"
+	public static final int VERSION = 3;
+
+	static final byte NULL = 0;
+	static final byte REF = 1;
+	static final byte OBJECT = 2;
+	static final byte CONSTANT = 3;
+	static final byte STRING = 4;
+	static final byte STRING_REF = 5;
+	static final byte INTEGER = 6;
+	static final byte LONG = 7;
+	static final byte BOOLEAN = 8;
+	static final byte DOUBLE = 9;
+	static final byte FLOAT = 10;
+	static final byte ENUM = 11;
+	static final byte INT_ARRAY = 12;
+	static final byte ARRAY_LIST = 13;
+	static final byte LINKED_LIST = 14;
+	static final byte HASH_SET = 15;
+	static final byte LINKED_HASH_SET = 16;
+	static final byte TREE_SET = 17;
+	static final byte HASH_MAP = 18;
+	static final byte LINKED_HASH_MAP = 19;
+	static final byte TREE_MAP = 20;
+	static final byte INT_ARRAYS = 21;
+	static final byte ID_MAP = 22;
+
+	private GraphFormat() {
+	}
+
+	/**
+	 * Instance fields written for an object, superclass fields first. Static
+	 * and transient fields are skipped.
+	 */
+	static List<Field> getFields(Class<?> objectClass) {
+		List<Class<?>> hierarchy = new ArrayList<>();
+		for (Class<?> c = objectClass; c != null && c != Object.class; c = c.getSuperclass())
+			hierarchy.add(0, c);
+
+		List<Field> fields = new ArrayList<>();
+		for (Class<?> c : hierarchy) {
+			for (Field field : c.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers))
+					continue;
+				field.setAccessible(true);
+				fields.add(field);
+			}
+		}
+		return fields;
+	}
+
+	static String getFieldKey(Field field) {
+		return field.getDeclaringClass().getName() + "." + field.getName() + ":" + field.getType().getName();
+	}
+
+	/**
+	 * Only classes of the application itself are written field by field,
+	 * everything else has to be one of the supported value types.
+	 */
+	static boolean isGraphClass(Class<?> c) {
+		return c.getName().startsWith("legends.") && !c.isSynthetic() && !c.isAnonymousClass();
+	}
+}
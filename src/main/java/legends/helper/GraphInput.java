@@ -0,0 +1,342 @@
+package legends.helper;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Reads an object graph written by {@link GraphOutput}.
+ *
+ * The class layout in the stream has to match the loaded classes exactly,
+ * otherwise an {@link IOException} is thrown and the caller is expected to
+ * fall back to the original source.
+ */
+public class GraphInput implements Closeable {
+	private DataInputStream in;
+
+	private List<Object> handles = new ArrayList<>();
+	private List<ClassInfo> classes = new ArrayList<>();
+	private Map<Class<?>, ClassInfo> classInfos = new HashMap<>();
+	private List<String> strings = new ArrayList<>();
+	private Deque<Object> pending = new ArrayDeque<>();
+	private List<Object[]> deferred = new ArrayList<>();
+
+	private static class ClassInfo {
+		Class<?> objectClass;
+		Field[] fields;
+		Constructor<?> constructor;
+	}
+
+	public GraphInput(InputStream in) throws IOException {
+		this.in = new DataInputStream(in);
+		if (this.in.readInt() != GraphFormat.MAGIC)
+			throw new IOException("not a snapshot file");
+		if (this.in.readInt() != GraphFormat.VERSION)
+			throw new IOException("unsupported snapshot version");
+	}
+
+	public int readInt() throws IOException {
+		int value = readVarInt();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public long readLong() throws IOException {
+		return in.readLong();
+	}
+
+	public boolean readBoolean() throws IOException {
+		return in.readBoolean();
+	}
+
+	public String readString() throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+		case GraphFormat.NULL:
+			return null;
+		case GraphFormat.STRING:
+			return readNewString();
+		case GraphFormat.STRING_REF:
+			return strings.get(readVarInt());
+		default:
+			throw new IOException("string expected, found tag " + tag);
+		}
+	}
+
+	private String readNewString() throws IOException {
+		byte[] bytes = new byte[readVarInt()];
+		in.readFully(bytes);
+		String value = new String(bytes, StandardCharsets.UTF_8);
+		strings.add(value);
+		return value;
+	}
+
+	/**
+	 * Reads a value and the fields of all objects reachable from it.
+	 */
+	public Object readObject() throws IOException {
+		Object value = readValue();
+		readPending();
+		return value;
+	}
+
+	private void readPending() throws IOException {
+		while (!pending.isEmpty()) {
+			Object object = pending.poll();
+			for (Field field : classInfos.get(object.getClass()).fields) {
+				try {
+					readField(field, object);
+				} catch (IllegalAccessException e) {
+					throw new IOException("cannot set " + field, e);
+				}
+			}
+		}
+		fillDeferred();
+	}
+
+	/**
+	 * Sets and maps are filled after all objects are complete, so keys hash
+	 * with their final state.
+	 */
+	@SuppressWarnings("unchecked")
+	private void fillDeferred() {
+		for (Object[] d : deferred) {
+			if (d[0] instanceof Map) {
+				Map<Object, Object> map = (Map<Object, Object>) d[0];
+				Object[] entries = (Object[]) d[1];
+				for (int i = 0; i < entries.length; i += 2)
+					map.put(entries[i], entries[i + 1]);
+			} else {
+				Collection<Object> set = (Collection<Object>) d[0];
+				for (Object element : (Object[]) d[1])
+					set.add(element);
+			}
+		}
+		deferred.clear();
+	}
+
+	private void readField(Field field, Object object) throws IOException, IllegalAccessException {
+		Class<?> type = field.getType();
+		if (type == int.class)
+			field.setInt(object, readInt());
+		else if (type == boolean.class)
+			field.setBoolean(object, in.readBoolean());
+		else if (type == long.class)
+			field.setLong(object, in.readLong());
+		else if (type == double.class)
+			field.setDouble(object, in.readDouble());
+		else if (type == float.class)
+			field.setFloat(object, in.readFloat());
+		else if (type == short.class)
+			field.setShort(object, (short) readInt());
+		else if (type == byte.class)
+			field.setByte(object, in.readByte());
+		else if (type == char.class)
+			field.setChar(object, in.readChar());
+		else
+			field.set(object, readValue());
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object readValue() throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+		case GraphFormat.NULL:
+			return null;
+		case GraphFormat.STRING:
+			return readNewString();
+		case GraphFormat.STRING_REF:
+			return strings.get(readVarInt());
+		case GraphFormat.INTEGER:
+			return readInt();
+		case GraphFormat.LONG:
+			return in.readLong();
+		case GraphFormat.BOOLEAN:
+			return in.readBoolean();
+		case GraphFormat.DOUBLE:
+			return in.readDouble();
+		case GraphFormat.FLOAT:
+			return in.readFloat();
+		case GraphFormat.ENUM:
+			return Enum.valueOf((Class<Enum>) loadClass(readString()), readString());
+		case GraphFormat.INT_ARRAY:
+			return readIntArray();
+		case GraphFormat.INT_ARRAYS: {
+			int[][] arrays = new int[readVarInt()][];
+			for (int i = 0; i < arrays.length; i++)
+				if (in.readBoolean())
+					arrays[i] = readIntArray();
+			return arrays;
+		}
+		case GraphFormat.ARRAY_LIST: {
+			int size = readVarInt();
+			List<Object> list = new ArrayList<>(size);
+			for (int i = 0; i < size; i++)
+				list.add(readValue());
+			return list;
+		}
+		case GraphFormat.LINKED_LIST: {
+			int size = readVarInt();
+			List<Object> list = new LinkedList<>();
+			for (int i = 0; i < size; i++)
+				list.add(readValue());
+			return list;
+		}
+		case GraphFormat.HASH_SET:
+		case GraphFormat.LINKED_HASH_SET:
+		case GraphFormat.TREE_SET: {
+			int size = readVarInt();
+			Collection<Object> set;
+			if (tag == GraphFormat.TREE_SET)
+				set = new TreeSet<>();
+			else if (tag == GraphFormat.LINKED_HASH_SET)
+				set = new LinkedHashSet<>(size * 4 / 3 + 1);
+			else
+				set = new HashSet<>(size * 4 / 3 + 1);
+			Object[] elements = new Object[size];
+			for (int i = 0; i < size; i++)
+				elements[i] = readValue();
+			deferred.add(new Object[] { set, elements });
+			return set;
+		}
+		case GraphFormat.HASH_MAP:
+		case GraphFormat.LINKED_HASH_MAP:
+		case GraphFormat.TREE_MAP: {
+			int size = readVarInt();
+			Map<Object, Object> map;
+			if (tag == GraphFormat.TREE_MAP)
+				map = new TreeMap<>();
+			else if (tag == GraphFormat.LINKED_HASH_MAP)
+				map = new LinkedHashMap<>(size * 4 / 3 + 1);
+			else
+				map = new HashMap<>(size * 4 / 3 + 1);
+			Object[] entries = new Object[size * 2];
+			for (int i = 0; i < entries.length; i++)
+				entries[i] = readValue();
+			deferred.add(new Object[] { map, entries });
+			return map;
+		}
+		case GraphFormat.ID_MAP: {
+			int size = readVarInt();
+			IdMap<Object> map = new IdMap<>();
+			for (int i = 0; i < size; i++) {
+				int id = readInt();
+				map.put(id, readValue());
+			}
+			return map;
+		}
+		case GraphFormat.REF:
+			return handles.get(readVarInt());
+		case GraphFormat.OBJECT: {
+			ClassInfo info = readClass();
+			Object object;
+			try {
+				object = info.constructor.newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw new IOException("cannot create " + info.objectClass.getName(), e);
+			}
+			handles.add(object);
+			pending.add(object);
+			return object;
+		}
+		case GraphFormat.CONSTANT: {
+			String className = readString();
+			String fieldName = readString();
+			Object object;
+			try {
+				Field field = loadClass(className).getDeclaredField(fieldName);
+				field.setAccessible(true);
+				object = field.get(null);
+			} catch (ReflectiveOperationException e) {
+				throw new IOException("unknown constant " + className + "." + fieldName, e);
+			}
+			ClassInfo info = readClass();
+			if (object == null || object.getClass() != info.objectClass)
+				throw new IOException("constant " + className + "." + fieldName + " changed");
+			handles.add(object);
+			pending.add(object);
+			return object;
+		}
+		default:
+			throw new IOException("unknown tag " + tag);
+		}
+	}
+
+	private int[] readIntArray() throws IOException {
+		int[] array = new int[readVarInt()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = readInt();
+		return array;
+	}
+
+	private ClassInfo readClass() throws IOException {
+		int id = readVarInt();
+		if (id < classes.size())
+			return classes.get(id);
+		if (id != classes.size())
+			throw new IOException("invalid class id " + id);
+
+		ClassInfo info = new ClassInfo();
+		info.objectClass = loadClass(readString());
+
+		List<Field> fields = GraphFormat.getFields(info.objectClass);
+		int count = readVarInt();
+		if (count != fields.size())
+			throw new IOException("class " + info.objectClass.getName() + " changed");
+		for (Field field : fields)
+			if (!GraphFormat.getFieldKey(field).equals(readString()))
+				throw new IOException("class " + info.objectClass.getName() + " changed");
+		info.fields = fields.toArray(new Field[fields.size()]);
+
+		try {
+			info.constructor = info.objectClass.getDeclaredConstructor();
+			info.constructor.setAccessible(true);
+		} catch (NoSuchMethodException e) {
+			throw new IOException("class " + info.objectClass.getName() + " has no default constructor", e);
+		}
+
+		classes.add(info);
+		classInfos.put(info.objectClass, info);
+		return info;
+	}
+
+	private Class<?> loadClass(String name) throws IOException {
+		try {
+			return Class.forName(name, false, GraphInput.class.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			throw new IOException("unknown class " + name, e);
+		}
+	}
+
+	private int readVarInt() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("malformed varint");
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,302 @@
+package legends.helper;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Writes an object graph in a compact binary form.
+ *
+ * Objects are written once and referenced by handle afterwards. Their fields
+ * are written breadth first from a queue, so deeply linked models do not
+ * recurse on the stack. Objects held in static final fields are written as
+ * constants and resolved to the same instance when reading.
+ */
+public class GraphOutput implements Closeable {
+	private DataOutputStream out;
+
+	private Map<Object, Integer> handles = new IdentityHashMap<>();
+	private Map<Class<?>, Integer> classIds = new HashMap<>();
+	private Map<Class<?>, List<Field>> classFields = new HashMap<>();
+	private Map<String, Integer> strings = new HashMap<>();
+	private Map<Object, Field> constants = new IdentityHashMap<>();
+	private Set<Class<?>> constantClasses = new LinkedHashSet<>();
+	private Deque<Object> pending = new ArrayDeque<>();
+
+	public GraphOutput(OutputStream out) throws IOException {
+		this.out = new DataOutputStream(out);
+		this.out.writeInt(GraphFormat.MAGIC);
+		this.out.writeInt(GraphFormat.VERSION);
+	}
+
+	/**
+	 * Objects in static final fields of the given class are written as
+	 * references to that field instead of as new instances.
+	 */
+	public void addConstants(Class<?> constantClass) {
+		if (!constantClasses.add(constantClass))
+			return;
+		for (Field field : constantClass.getDeclaredFields()) {
+			int modifiers = field.getModifiers();
+			if (!Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers) || field.getType().isPrimitive())
+				continue;
+			try {
+				field.setAccessible(true);
+				Object value = field.get(null);
+				if (value != null && GraphFormat.isGraphClass(value.getClass()))
+					constants.putIfAbsent(value, field);
+			} catch (IllegalAccessException e) {
+				// not a constant we can resolve again
+			}
+		}
+	}
+
+	public void writeInt(int value) throws IOException {
+		writeVarInt(value << 1 ^ value >> 31);
+	}
+
+	public void writeLong(long value) throws IOException {
+		out.writeLong(value);
+	}
+
+	public void writeBoolean(boolean value) throws IOException {
+		out.writeBoolean(value);
+	}
+
+	public void writeString(String value) throws IOException {
+		if (value == null) {
+			out.writeByte(GraphFormat.NULL);
+			return;
+		}
+		Integer handle = strings.get(value);
+		if (handle != null) {
+			out.writeByte(GraphFormat.STRING_REF);
+			writeVarInt(handle);
+			return;
+		}
+		strings.put(value, strings.size());
+		out.writeByte(GraphFormat.STRING);
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Writes a value and, once the value is completely referenced, the fields
+	 * of all objects reachable from it.
+	 */
+	public void writeObject(Object value) throws IOException {
+		writeValue(value);
+		flushPending();
+	}
+
+	private void flushPending() throws IOException {
+		while (!pending.isEmpty()) {
+			Object object = pending.poll();
+			for (Field field : classFields.get(object.getClass())) {
+				try {
+					writeField(field, object);
+				} catch (IllegalAccessException e) {
+					throw new IOException("cannot read " + field, e);
+				}
+			}
+		}
+	}
+
+	private void writeField(Field field, Object object) throws IOException, IllegalAccessException {
+		Class<?> type = field.getType();
+		if (type == int.class)
+			writeInt(field.getInt(object));
+		else if (type == boolean.class)
+			out.writeBoolean(field.getBoolean(object));
+		else if (type == long.class)
+			out.writeLong(field.getLong(object));
+		else if (type == double.class)
+			out.writeDouble(field.getDouble(object));
+		else if (type == float.class)
+			out.writeFloat(field.getFloat(object));
+		else if (type == short.class)
+			writeInt(field.getShort(object));
+		else if (type == byte.class)
+			out.writeByte(field.getByte(object));
+		else if (type == char.class)
+			out.writeChar(field.getChar(object));
+		else
+			writeValue(field.get(object));
+	}
+
+	private void writeValue(Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(GraphFormat.NULL);
+		} else if (value instanceof String) {
+			writeString((String) value);
+		} else if (value instanceof Integer) {
+			out.writeByte(GraphFormat.INTEGER);
+			writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(GraphFormat.LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(GraphFormat.BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof Double) {
+			out.writeByte(GraphFormat.DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Float) {
+			out.writeByte(GraphFormat.FLOAT);
+			out.writeFloat((Float) value);
+		} else if (value instanceof Enum) {
+			out.writeByte(GraphFormat.ENUM);
+			writeString(((Enum<?>) value).getDeclaringClass().getName());
+			writeString(((Enum<?>) value).name());
+		} else if (value instanceof int[]) {
+			out.writeByte(GraphFormat.INT_ARRAY);
+			writeIntArray((int[]) value);
+		} else if (value instanceof int[][]) {
+			int[][] arrays = (int[][]) value;
+			out.writeByte(GraphFormat.INT_ARRAYS);
+			writeVarInt(arrays.length);
+			for (int[] array : arrays) {
+				out.writeBoolean(array != null);
+				if (array != null)
+					writeIntArray(array);
+			}
+		} else if (value instanceof Collection) {
+			writeCollection((Collection<?>) value);
+		} else if (value instanceof Map) {
+			writeMap((Map<?, ?>) value);
+		} else {
+			writeReference(value);
+		}
+	}
+
+	private void writeIntArray(int[] array) throws IOException {
+		writeVarInt(array.length);
+		for (int i : array)
+			writeInt(i);
+	}
+
+	private void writeCollection(Collection<?> collection) throws IOException {
+		if (collection instanceof List)
+			out.writeByte(collection instanceof LinkedList ? GraphFormat.LINKED_LIST : GraphFormat.ARRAY_LIST);
+		else if (collection instanceof SortedSet) {
+			if (((SortedSet<?>) collection).comparator() != null)
+				throw new IOException("sorted set with comparator not supported");
+			out.writeByte(GraphFormat.TREE_SET);
+		} else if (collection instanceof LinkedHashSet)
+			out.writeByte(GraphFormat.LINKED_HASH_SET);
+		else if (collection instanceof Set)
+			out.writeByte(GraphFormat.HASH_SET);
+		else
+			throw new IOException("unsupported collection: " + collection.getClass());
+
+		writeVarInt(collection.size());
+		for (Object element : collection)
+			writeValue(element);
+	}
+
+	private void writeMap(Map<?, ?> map) throws IOException {
+		if (map instanceof IdMap) {
+			out.writeByte(GraphFormat.ID_MAP);
+			writeVarInt(map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				writeInt((Integer) entry.getKey());
+				writeValue(entry.getValue());
+			}
+			return;
+		}
+
+		if (map instanceof SortedMap) {
+			if (((SortedMap<?, ?>) map).comparator() != null)
+				throw new IOException("sorted map with comparator not supported");
+			out.writeByte(GraphFormat.TREE_MAP);
+		} else if (map instanceof LinkedHashMap)
+			out.writeByte(GraphFormat.LINKED_HASH_MAP);
+		else
+			out.writeByte(GraphFormat.HASH_MAP);
+
+		writeVarInt(map.size());
+		for (Map.Entry<?, ?> entry : map.entrySet()) {
+			writeValue(entry.getKey());
+			writeValue(entry.getValue());
+		}
+	}
+
+	private void writeReference(Object value) throws IOException {
+		Integer handle = handles.get(value);
+		if (handle != null) {
+			out.writeByte(GraphFormat.REF);
+			writeVarInt(handle);
+			return;
+		}
+
+		Class<?> objectClass = value.getClass();
+		if (!GraphFormat.isGraphClass(objectClass))
+			throw new IOException("unsupported type: " + objectClass.getName());
+		addConstants(objectClass);
+
+		handles.put(value, handles.size());
+		Field constant = constants.get(value);
+		if (constant != null) {
+			out.writeByte(GraphFormat.CONSTANT);
+			writeString(constant.getDeclaringClass().getName());
+			writeString(constant.getName());
+			describeClass(objectClass);
+		} else {
+			out.writeByte(GraphFormat.OBJECT);
+			describeClass(objectClass);
+		}
+		pending.add(value);
+	}
+
+	private void describeClass(Class<?> objectClass) throws IOException {
+		Integer id = classIds.get(objectClass);
+		if (id != null) {
+			writeVarInt(id);
+			return;
+		}
+
+		id = classIds.size();
+		classIds.put(objectClass, id);
+		writeVarInt(id);
+
+		List<Field> fields = GraphFormat.getFields(objectClass);
+		classFields.put(objectClass, fields);
+		writeString(objectClass.getName());
+		writeVarInt(fields.size());
+		for (Field field : fields)
+			writeString(GraphFormat.getFieldKey(field));
+	}
+
+	private void writeVarInt(int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,237 @@
+package legends.helper;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Map of objects by id, backed by an array indexed by id.
+ *
+ * World objects are numbered densely from 0, so the array needs no boxed
+ * keys or entry objects. Negative ids and ids far beyond the number of
+ * stored objects go to an overflow map. Iteration is in id order, which is
+ * the order of the legends files.
+ */
+public class IdMap<V> extends AbstractMap<Integer, V> {
+	private static final int MIN_CAPACITY = 16;
+
+	private Object[] values = new Object[0];
+	private int denseSize = 0;
+	private TreeMap<Integer, V> overflow;
+
+	@SuppressWarnings("unchecked")
+	public V get(int id) {
+		if (id >= 0 && id < values.length)
+			return (V) values[id];
+		return overflow != null ? overflow.get(id) : null;
+	}
+
+	public V getOrDefault(int id, V defaultValue) {
+		V value = get(id);
+		return value != null ? value : defaultValue;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V put(int id, V value) {
+		if (value == null)
+			return remove(id);
+		if (id >= 0 && id >= values.length && isDense(id))
+			grow(Math.max(id + 1, Math.max(MIN_CAPACITY, values.length * 2)));
+		if (id >= 0 && id < values.length) {
+			V old = (V) values[id];
+			values[id] = value;
+			if (old == null)
+				denseSize++;
+			return old;
+		}
+		if (overflow == null)
+			overflow = new TreeMap<>();
+		return overflow.put(id, value);
+	}
+
+	/**
+	 * Moves overflow ids that fit into the larger array.
+	 */
+	private void grow(int capacity) {
+		int length = values.length;
+		values = Arrays.copyOf(values, capacity);
+		if (overflow == null)
+			return;
+		Iterator<Map.Entry<Integer, V>> it = overflow.subMap(length, capacity).entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Integer, V> entry = it.next();
+			values[entry.getKey()] = entry.getValue();
+			denseSize++;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Ids are stored in the array as long as it stays at least half full.
+	 */
+	private boolean isDense(int id) {
+		return id < 2 * (size() + 1) + MIN_CAPACITY;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V remove(int id) {
+		if (id >= 0 && id < values.length) {
+			V old = (V) values[id];
+			values[id] = null;
+			if (old != null)
+				denseSize--;
+			return old;
+		}
+		return overflow != null ? overflow.remove(id) : null;
+	}
+
+	@Override
+	public V get(Object key) {
+		return key instanceof Integer ? get(((Integer) key).intValue()) : null;
+	}
+
+	@Override
+	public V getOrDefault(Object key, V defaultValue) {
+		V value = get(key);
+		return value != null ? value : defaultValue;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public V put(Integer key, V value) {
+		return put(key.intValue(), value);
+	}
+
+	@Override
+	public V remove(Object key) {
+		return key instanceof Integer ? remove(((Integer) key).intValue()) : null;
+	}
+
+	@Override
+	public int size() {
+		return denseSize + (overflow != null ? overflow.size() : 0);
+	}
+
+	@Override
+	public void clear() {
+		values = new Object[0];
+		denseSize = 0;
+		overflow = null;
+	}
+
+	@Override
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new IdIterator<V>() {
+					@Override
+					V next(int id, V value) {
+						return value;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return IdMap.this.size();
+			}
+		};
+	}
+
+	@Override
+	public Set<Map.Entry<Integer, V>> entrySet() {
+		return new AbstractSet<Map.Entry<Integer, V>>() {
+			@Override
+			public Iterator<Map.Entry<Integer, V>> iterator() {
+				return new IdIterator<Map.Entry<Integer, V>>() {
+					@Override
+					Map.Entry<Integer, V> next(int id, V value) {
+						return new SimpleImmutableEntry<>(id, value);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return IdMap.this.size();
+			}
+		};
+	}
+
+	/**
+	 * Visits negative overflow ids, the array and then the remaining overflow
+	 * ids, so all ids come in ascending order.
+	 */
+	private abstract class IdIterator<T> implements Iterator<T> {
+		private Iterator<Map.Entry<Integer, V>> low = overflow != null ? overflow.headMap(0).entrySet().iterator()
+				: null;
+		private Iterator<Map.Entry<Integer, V>> high;
+		private int index = -1;
+		private int lastId;
+		private Iterator<Map.Entry<Integer, V>> lastOverflow;
+
+		IdIterator() {
+			advance();
+		}
+
+		abstract T next(int id, V value);
+
+		private void advance() {
+			if (low != null && low.hasNext())
+				return;
+			low = null;
+			index++;
+			while (index < values.length && values[index] == null)
+				index++;
+			if (index < values.length)
+				return;
+			if (high == null && overflow != null)
+				high = overflow.tailMap(0).entrySet().iterator();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return low != null || index < values.length || (high != null && high.hasNext());
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			T result;
+			if (low != null || index >= values.length) {
+				lastOverflow = low != null ? low : high;
+				Map.Entry<Integer, V> entry = lastOverflow.next();
+				lastId = entry.getKey();
+				result = next(lastId, entry.getValue());
+			} else {
+				lastOverflow = null;
+				lastId = index;
+				result = next(index, (V) values[index]);
+			}
+			advance();
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			if (lastOverflow != null)
+				lastOverflow.remove();
+			else
+				IdMap.this.remove(lastId);
+		}
+	}
+}
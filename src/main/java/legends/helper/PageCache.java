@@ -0,0 +1,167 @@
+package legends.helper;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rendered pages by path and query, least recently used first.
+ *
+ * Once the world is ready pages only depend on their URL, so they are
+ * rendered once and then sent from memory. The cache is limited by the bytes
+ * of the pages and their compressed variants and is cleared whenever the
+ * world or anything shown on the pages changes. Pages rendered while the
+ * cache was cleared are not added.
+ */
+public class PageCache {
+	private static final int ENTRY_OVERHEAD = 128;
+
+	public static class Page {
+		private final byte[] content;
+		private final String contentType;
+		private final Map<String, byte[]> encoded = new ConcurrentHashMap<>();
+		private long size;
+		private boolean cached;
+
+		public Page(byte[] content, String contentType) {
+			this.content = content;
+			this.contentType = contentType;
+		}
+
+		public byte[] getContent() {
+			return content;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+	}
+
+	private static final LinkedHashMap<String, Page> pages = new LinkedHashMap<>(256, 0.75f, true);
+	private static long maxSize = 64L << 20;
+	private static long size;
+	private static int generation;
+	private static long hits;
+	private static long misses;
+	private static long evictions;
+
+	private PageCache() {
+	}
+
+	/**
+	 * @param maxSize
+	 *            limit in bytes, 0 disables the cache
+	 */
+	public static synchronized void setMaxSize(long maxSize) {
+		PageCache.maxSize = maxSize;
+		evict();
+	}
+
+	public static synchronized long getMaxSize() {
+		return maxSize;
+	}
+
+	public static synchronized boolean isEnabled() {
+		return maxSize > 0;
+	}
+
+	/**
+	 * Larger pages are not cached, so one page cannot take the whole cache.
+	 */
+	public static synchronized int getMaxPageSize() {
+		return (int) Math.min(Integer.MAX_VALUE, maxSize / 8);
+	}
+
+	public static synchronized Page get(String key) {
+		Page page = pages.get(key);
+		if (page != null)
+			hits++;
+		else
+			misses++;
+		return page;
+	}
+
+	/**
+	 * Changes with every {@link #clear()}, take it before rendering a page.
+	 */
+	public static synchronized int getGeneration() {
+		return generation;
+	}
+
+	public static synchronized void put(String key, int generation, Page page) {
+		if (generation != PageCache.generation || page.content.length > getMaxPageSize())
+			return;
+		page.size = ENTRY_OVERHEAD + 2 * key.length() + page.content.length;
+		Page old = pages.put(key, page);
+		if (old != null) {
+			old.cached = false;
+			size -= old.size;
+		}
+		page.cached = true;
+		size += page.size;
+		evict();
+	}
+
+	/**
+	 * The content of a page compressed with the encoding, compressed once at
+	 * the first request.
+	 */
+	public static byte[] getEncoded(Page page, String encoding) throws IOException {
+		byte[] encoded = page.encoded.get(encoding);
+		if (encoded == null) {
+			encoded = ContentEncoding.encode(page.content, encoding);
+			if (page.encoded.putIfAbsent(encoding, encoded) == null)
+				grow(page, encoded.length);
+		}
+		return encoded;
+	}
+
+	private static synchronized void grow(Page page, long bytes) {
+		page.size += bytes;
+		if (page.cached) {
+			size += bytes;
+			evict();
+		}
+	}
+
+	private static void evict() {
+		Iterator<Page> it = pages.values().iterator();
+		while (size > maxSize && it.hasNext()) {
+			Page page = it.next();
+			page.cached = false;
+			size -= page.size;
+			it.remove();
+			evictions++;
+		}
+	}
+
+	public static synchronized void clear() {
+		for (Page page : pages.values())
+			page.cached = false;
+		pages.clear();
+		size = 0;
+		generation++;
+	}
+
+	public static synchronized int getPages() {
+		return pages.size();
+	}
+
+	public static synchronized long getSize() {
+		return size;
+	}
+
+	public static synchronized long getHits() {
+		return hits;
+	}
+
+	public static synchronized long getMisses() {
+		return misses;
+	}
+
+	public static synchronized long getEvictions() {
+		return evictions;
+	}
+}
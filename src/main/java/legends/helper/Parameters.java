@@ -0,0 +1,22 @@
+package legends.helper;
+
+import org.apache.velocity.VelocityContext;
+
+/**
+ * Query parameters, which the request puts into the context as strings.
+ */
+public class Parameters {
+	private Parameters() {
+	}
+
+	/**
+	 * @return defaultValue if the parameter is missing or not a number
+	 */
+	public static int getInt(VelocityContext context, String key, int defaultValue) {
+		try {
+			return context.containsKey(key) ? Integer.parseInt(context.get(key).toString()) : defaultValue;
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+}
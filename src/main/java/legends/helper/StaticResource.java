@@ -0,0 +1,128 @@
+package legends.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+
+/**
+ * A classpath resource, read once at its first request and kept in memory
+ * with its entity tag and compressed variants.
+ */
+public class StaticResource {
+	private static final byte[] NOT_COMPRESSED = new byte[0];
+	private static final Map<String, StaticResource> resources = new ConcurrentHashMap<>();
+	private static final Map<String, String> versions = new ConcurrentHashMap<>();
+
+	private final byte[] content;
+	private final long lastModified;
+	private final String hash;
+	private final String etag;
+	private final Map<String, byte[]> encoded = new ConcurrentHashMap<>();
+
+	private StaticResource(URL url) throws IOException {
+		URLConnection c = url.openConnection();
+		lastModified = c.getLastModified();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (InputStream in = c.getInputStream()) {
+			byte[] buffer = new byte[1 << 13];
+			int n;
+			while ((n = in.read(buffer)) != -1)
+				bytes.write(buffer, 0, n);
+		}
+		content = bytes.toByteArray();
+		hash = digest(content);
+		etag = "\"" + hash + "\"";
+	}
+
+	public static StaticResource get(URL url) throws IOException {
+		String key = url.toString();
+		StaticResource resource = resources.get(key);
+		if (resource == null) {
+			resource = new StaticResource(url);
+			resources.put(key, resource);
+		}
+		return resource;
+	}
+
+	/**
+	 * The content hash of a classpath resource, added to its links as ?v=
+	 * so browsers may keep it until the resource changes.
+	 *
+	 * @return an empty string if there is no such resource
+	 */
+	public static String version(String path) {
+		String version = versions.get(path);
+		if (version == null) {
+			URL url = ClassLoader.getSystemResource(path);
+			try {
+				version = url != null ? get(url).getHash() : "";
+			} catch (IOException e) {
+				version = "";
+			}
+			versions.put(path, version);
+		}
+		return version;
+	}
+
+	public byte[] getContent() {
+		return content;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * A strong entity tag of the content as it is.
+	 */
+	public String getETag() {
+		return etag;
+	}
+
+	/**
+	 * The entity tag of a compressed variant, which differs from the tag of
+	 * the content as it is.
+	 */
+	public String getETag(String encoding) {
+		return encoding == null ? etag : etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+	}
+
+	/**
+	 * The content compressed with the best compression.
+	 *
+	 * @return null if the resource does not get smaller
+	 */
+	public byte[] getEncoded(String encoding) throws IOException {
+		byte[] compressed = encoded.get(encoding);
+		if (compressed == null) {
+			compressed = ContentEncoding.encode(content, encoding, Deflater.BEST_COMPRESSION);
+			if (compressed.length >= content.length - content.length / 10)
+				compressed = NOT_COMPRESSED;
+			encoded.put(encoding, compressed);
+		}
+		return compressed == NOT_COMPRESSED ? null : compressed;
+	}
+
+	private static String digest(byte[] content) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-1").digest(content);
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 10; i++)
+				sb.append(String.format("%02x", hash[i]));
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
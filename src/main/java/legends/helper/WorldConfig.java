@@ -8,7 +8,9 @@ import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
@@ -149,6 +151,14 @@ public class WorldConfig {
 		return siteImagePath;
 	}
 
+	public Path getSnapshotPath() {
+		return basePath.resolve(prefix + "-legends.snapshot");
+	}
+
+	public List<Path> getSourcePaths() {
+		return Arrays.asList(legendsPath, legendsPlusPath, worldGenPath, historyPath, sitesAndPropsPath);
+	}
+
 	public boolean plusAvailable() {
 		try {
 			return legendsPath != null && Files.exists(legendsPlusPath);
@@ -11,14 +11,15 @@ import legends.xml.annotation.Xml;
 public class Artifact extends AbstractObject {
 	@Xml("name")
 	private String name;
+	private transient String displayName;
 	@Xml("item")
 	private String item;
 
-	@Xml("mat")
+	@Xml(value = "mat", dictionary = true)
 	private String mat;
-	@Xml("item_type")
+	@Xml(value = "item_type", dictionary = true)
 	private String itemType;
-	@Xml("item_subtype")
+	@Xml(value = "item_subtype", dictionary = true)
 	private String itemSubType;
 	@Xml("item_description")
 	private String itemDescription;
@@ -29,11 +30,18 @@ public class Artifact extends AbstractObject {
 	private List<Integer> writtenContent = new ArrayList<>();
 
 	public String getName() {
-		return EventHelper.name(name);
+		if (displayName == null)
+			displayName = EventHelper.name(name);
+		return displayName;
+	}
+
+	public String getRawName() {
+		return name;
 	}
 
 	public void setName(String name) {
 		this.name = name;
+		displayName = null;
 	}
 
 	public String getItem() {
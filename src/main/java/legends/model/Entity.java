@@ -15,6 +15,7 @@ import java.util.stream.Collectors;
 
 import legends.Application;
 import legends.helper.EventHelper;
+import legends.helper.PageCache;
 import legends.model.basic.AbstractObject;
 import legends.model.collections.OccasionCollection;
 import legends.model.collections.WarCollection;
@@ -27,9 +28,10 @@ import legends.xml.converter.CoordListConverter;
 public class Entity extends AbstractObject {
 	@Xml("name")
 	private String name;
-	@Xml("race")
+	private transient String displayName;
+	@Xml(value = "race", dictionary = true)
 	private String race = "unknown";
-	@Xml("type")
+	@Xml(value = "type", dictionary = true)
 	private String type = "unknown";
 	private Set<Site> sites = new LinkedHashSet<>();
 	private Entity parent;
@@ -60,11 +62,18 @@ public class Entity extends AbstractObject {
 	private final static EntityPosition UNKNOWN_POSITION = new EntityPosition();
 
 	public String getName() {
-		return EventHelper.name(name);
+		if (displayName == null)
+			displayName = EventHelper.name(name);
+		return displayName;
+	}
+
+	public String getRawName() {
+		return name;
 	}
 
 	public void setName(String name) {
 		this.name = name;
+		displayName = null;
 	}
 
 	public String getRace() {
@@ -208,6 +217,7 @@ public class Entity extends AbstractObject {
 
 	public static void setRaceColor(String race, String color) {
 		Application.setProperty("race.color." + race, color);
+		PageCache.clear();
 	}
 
 	public void process() {
@@ -1,7 +1,7 @@
 package legends.model;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -11,14 +11,14 @@ import legends.xml.annotation.Xml;
 public class EntityLink {
 	private static final Log LOG = LogFactory.getLog(EntityLink.class);
 
-	@Xml("type,link_type")
+	@Xml(value = "type,link_type", dictionary = true)
 	private String linkType;
 	@Xml("entity_id,target")
 	private int entityId;
 	@Xml("link_strength,strength")
 	private int linkStrength;
 
-	private static Set<String> linkTypes = new HashSet<>();
+	private static Set<String> linkTypes = ConcurrentHashMap.newKeySet();
 
 	public String getLinkType() {
 		return linkType;
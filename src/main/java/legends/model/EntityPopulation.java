@@ -5,7 +5,7 @@ import legends.xml.annotation.Xml;
 
 public class EntityPopulation extends AbstractObject {
 	@Xml("civ_id")private int civId;
-	@Xml("race")private String race;
+	@Xml(value = "race", dictionary = true)private String race;
 
 	public int getCivId() {
 		return civId;
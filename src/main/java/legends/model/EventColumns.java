@@ -0,0 +1,243 @@
+package legends.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import legends.model.collections.basic.EventCollection;
+import legends.model.events.basic.Event;
+
+/**
+ * Common event fields in primitive arrays, one row per event in id order.
+ *
+ * List views filter, count and sort on the columns and only look up the
+ * event objects of the rows they actually render.
+ */
+public class EventColumns {
+	private static final int[] EMPTY = new int[0];
+
+	private int size;
+	private int[] ids = EMPTY;
+	private int[] years = EMPTY;
+	private int[] seconds = EMPTY;
+	private int[] types = EMPTY;
+	private int[] collections = EMPTY;
+	private List<String> typeNames = new ArrayList<>();
+	private boolean sortedByYear = true;
+
+	public int size() {
+		return size;
+	}
+
+	public int getId(int row) {
+		return ids[row];
+	}
+
+	public int getYear(int row) {
+		return years[row];
+	}
+
+	public int getSeconds(int row) {
+		return seconds[row];
+	}
+
+	/**
+	 * The id of the collection of the event, or -1.
+	 */
+	public int getCollectionId(int row) {
+		return collections[row];
+	}
+
+	public String getType(int row) {
+		return types[row] == -1 ? null : typeNames.get(types[row]);
+	}
+
+	/**
+	 * The index of the type in {@link #getTypes()}, or -1.
+	 */
+	public int getTypeCode(int row) {
+		return types[row];
+	}
+
+	/**
+	 * @return the row of the event, or -1
+	 */
+	public int getRow(int eventId) {
+		int row = Arrays.binarySearch(ids, 0, size, eventId);
+		return row < 0 ? -1 : row;
+	}
+
+	/**
+	 * Rows of the events in the order of the ids, unknown ids are left out.
+	 */
+	public int[] rowsOf(int[] eventIds) {
+		int[] rows = new int[eventIds.length];
+		int n = 0;
+		for (int id : eventIds) {
+			int row = getRow(id);
+			if (row >= 0)
+				rows[n++] = row;
+		}
+		return n == rows.length ? rows : Arrays.copyOf(rows, n);
+	}
+
+	public Event getEvent(int row) {
+		return World.getHistoricalEvent(ids[row]);
+	}
+
+	public List<Row> getRows(int[] rows) {
+		List<Row> list = new ArrayList<>(rows.length);
+		for (int row : rows)
+			list.add(new Row(row));
+		return list;
+	}
+
+	/**
+	 * Sorted names of all event types.
+	 */
+	public List<String> getTypes() {
+		return Collections.unmodifiableList(typeNames);
+	}
+
+	/**
+	 * Years of all events in row order.
+	 */
+	public int[] getYears() {
+		return size == years.length ? years : Arrays.copyOf(years, size);
+	}
+
+	public Map<Integer, Integer> countByYear() {
+		Map<Integer, Integer> counts = new TreeMap<>();
+		for (int i = 0; i < size; i++)
+			counts.merge(years[i], 1, Integer::sum);
+		return counts;
+	}
+
+	public int[] rowsOfYear(int year) {
+		if (sortedByYear) {
+			int from = lowerBound(year);
+			int to = lowerBound(year + 1);
+			int[] rows = new int[to - from];
+			for (int i = 0; i < rows.length; i++)
+				rows[i] = from + i;
+			return rows;
+		}
+		return select(years, year);
+	}
+
+	public int[] rowsOfType(String type) {
+		int code = Collections.binarySearch(typeNames, type);
+		return code < 0 ? EMPTY : select(types, code);
+	}
+
+	private int lowerBound(int year) {
+		int low = 0, high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (years[mid] < year)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	private int[] select(int[] column, int value) {
+		int count = 0;
+		for (int i = 0; i < size; i++)
+			if (column[i] == value)
+				count++;
+		int[] rows = new int[count];
+		for (int i = 0, n = 0; n < count; i++)
+			if (column[i] == value)
+				rows[n++] = i;
+		return rows;
+	}
+
+	/**
+	 * @param events
+	 *            in id order
+	 */
+	static EventColumns build(Collection<Event> events) {
+		EventColumns columns = new EventColumns();
+		int size = events.size();
+		columns.size = size;
+		columns.ids = new int[size];
+		columns.years = new int[size];
+		columns.seconds = new int[size];
+		columns.types = new int[size];
+		columns.collections = new int[size];
+
+		TreeSet<String> typeNames = new TreeSet<>();
+		for (Event e : events)
+			if (e.getType() != null)
+				typeNames.add(e.getType());
+		columns.typeNames = new ArrayList<>(typeNames);
+
+		int i = 0;
+		for (Event e : events) {
+			columns.ids[i] = e.getId();
+			columns.years[i] = e.getYear();
+			columns.seconds[i] = e.getSeconds();
+			columns.types[i] = e.getType() == null ? -1 : Collections.binarySearch(columns.typeNames, e.getType());
+			columns.collections[i] = e.getCollection() != null ? e.getCollection().getId() : -1;
+			if (i > 0 && columns.years[i] < columns.years[i - 1])
+				columns.sortedByYear = false;
+			i++;
+		}
+		return columns;
+	}
+
+	/**
+	 * An event of a list as the templates see it. The date, type and
+	 * collection come from the columns, the event itself is only looked up
+	 * for its description.
+	 */
+	public class Row {
+		private final int row;
+
+		private Row(int row) {
+			this.row = row;
+		}
+
+		public int getId() {
+			return ids[row];
+		}
+
+		public int getYear() {
+			return years[row];
+		}
+
+		public String getType() {
+			return EventColumns.this.getType(row);
+		}
+
+		public String getDate() {
+			return Event.getDate(years[row], seconds[row]);
+		}
+
+		/**
+		 * @return null if the event is not part of a collection
+		 */
+		public String getCollectionUrl() {
+			return collections[row] == -1 ? null : EventCollection.getUrl(collections[row]);
+		}
+
+		public Event getEvent() {
+			return EventColumns.this.getEvent(row);
+		}
+
+		public String getShortDescription() {
+			return getEvent().getShortDescription();
+		}
+
+		public String getSentence() {
+			return getEvent().getSentence();
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package legends.model;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import legends.model.basic.AbstractObject;
+import legends.model.events.basic.ArtifactRelatedEvent;
+import legends.model.events.basic.EntityRelatedEvent;
+import legends.model.events.basic.Event;
+import legends.model.events.basic.HfRelatedEvent;
+import legends.model.events.basic.IdentityRelatedEvent;
+import legends.model.events.basic.RegionRelatedEvent;
+import legends.model.events.basic.SiteRelatedEvent;
+import legends.model.events.basic.StructureRelatedEvent;
+import legends.model.events.basic.WorldConstructionRelatedEvent;
+
+/**
+ * Inverted index from world objects to the ids of their related events.
+ *
+ * The *RelatedEvent interfaces only offer predicates, so for every event the
+ * ids it references (int fields, id lists and nested locations, items or
+ * events) are collected as candidates and checked against those predicates.
+ */
+public class EventIndex {
+	private static final Log LOG = LogFactory.getLog(EventIndex.class);
+
+	private static final int[] EMPTY = new int[0];
+
+	private static Map<Class<?>, List<Field>> candidateFields = new HashMap<>();
+
+	private int[][] hfs = new int[0][];
+	private int[][] entities = new int[0][];
+	private int[][] sites = new int[0][];
+	private Map<Long, int[]> structures = new HashMap<>();
+	private int[][] regions = new int[0][];
+	private int[][] artifacts = new int[0][];
+	private int[][] worldConstructions = new int[0][];
+	private int[][] identities = new int[0][];
+
+	public static EventIndex build(Collection<Event> events) {
+		long start = System.currentTimeMillis();
+
+		IdLists hfs = new IdLists();
+		IdLists entities = new IdLists();
+		IdLists sites = new IdLists();
+		Map<Long, IntList> structures = new HashMap<>();
+		IdLists regions = new IdLists();
+		IdLists artifacts = new IdLists();
+		IdLists worldConstructions = new IdLists();
+		IdLists identities = new IdLists();
+
+		IntList candidates = new IntList();
+		for (Event e : events) {
+			candidates.clear();
+			collectCandidates(e, candidates, 2);
+			int[] ids = candidates.toDistinctArray();
+			int eventId = e.getId();
+
+			for (int id : ids) {
+				if (id < 0)
+					continue;
+				if (e instanceof HfRelatedEvent && ((HfRelatedEvent) e).isRelatedToHf(id))
+					hfs.add(id, eventId);
+				if (e instanceof EntityRelatedEvent && ((EntityRelatedEvent) e).isRelatedToEntity(id))
+					entities.add(id, eventId);
+				if (e instanceof SiteRelatedEvent && ((SiteRelatedEvent) e).isRelatedToSite(id))
+					sites.add(id, eventId);
+				if (e instanceof RegionRelatedEvent && ((RegionRelatedEvent) e).isRelatedToRegion(id))
+					regions.add(id, eventId);
+				if (e instanceof ArtifactRelatedEvent && ((ArtifactRelatedEvent) e).isRelatedToArtifact(id))
+					artifacts.add(id, eventId);
+				if (e instanceof WorldConstructionRelatedEvent
+						&& ((WorldConstructionRelatedEvent) e).isRelatedToWorldConstruction(id))
+					worldConstructions.add(id, eventId);
+				if (e instanceof IdentityRelatedEvent && ((IdentityRelatedEvent) e).isRelatedToIdentity(id))
+					identities.add(id, eventId);
+			}
+			if (e instanceof StructureRelatedEvent) {
+				StructureRelatedEvent se = (StructureRelatedEvent) e;
+				for (int siteId : ids)
+					for (int structureId : ids)
+						if (se.isRelatedToStructure(structureId, siteId))
+							add(structures, structureKey(structureId, siteId), eventId);
+			}
+		}
+
+		EventIndex index = new EventIndex();
+		index.hfs = hfs.toArrays();
+		index.entities = entities.toArrays();
+		index.sites = sites.toArrays();
+		index.structures = compact(structures);
+		index.regions = regions.toArrays();
+		index.artifacts = artifacts.toArrays();
+		index.worldConstructions = worldConstructions.toArrays();
+		index.identities = identities.toArrays();
+
+		LOG.info("indexed " + events.size() + " events in " + (System.currentTimeMillis() - start) + " ms");
+		return index;
+	}
+
+	public int[] getEventIds(AbstractObject obj) {
+		if (obj == null || obj.getId() == -1)
+			return EMPTY;
+		if (obj instanceof HistoricalFigure)
+			return get(hfs, obj.getId());
+		else if (obj instanceof Entity)
+			return get(entities, obj.getId());
+		else if (obj instanceof Site)
+			return get(sites, obj.getId());
+		else if (obj instanceof Structure) {
+			int[] ids = structures.get(structureKey(obj.getId(), ((Structure) obj).getSiteId()));
+			return ids != null ? ids : EMPTY;
+		} else if (obj instanceof Region)
+			return get(regions, obj.getId());
+		else if (obj instanceof Artifact)
+			return get(artifacts, obj.getId());
+		else if (obj instanceof WorldConstruction)
+			return get(worldConstructions, obj.getId());
+		else if (obj instanceof Identity)
+			return get(identities, obj.getId());
+		return EMPTY;
+	}
+
+	public List<Event> getEvents(AbstractObject obj) {
+		int[] ids = getEventIds(obj);
+		if (ids.length == 0)
+			return Collections.emptyList();
+		List<Event> events = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			Event e = World.getHistoricalEvent(id);
+			if (e != null)
+				events.add(e);
+		}
+		return events;
+	}
+
+	private static int[] get(int[][] lists, int id) {
+		if (id < 0 || id >= lists.length || lists[id] == null)
+			return EMPTY;
+		return lists[id];
+	}
+
+	private static long structureKey(int structureId, int siteId) {
+		return ((long) siteId << 32) | (structureId & 0xffffffffL);
+	}
+
+	private static <K> void add(Map<K, IntList> map, K key, int eventId) {
+		IntList list = map.get(key);
+		if (list == null) {
+			list = new IntList();
+			map.put(key, list);
+		}
+		list.add(eventId);
+	}
+
+	private static <K> Map<K, int[]> compact(Map<K, IntList> map) {
+		Map<K, int[]> result = new HashMap<>(map.size() * 4 / 3 + 1);
+		for (Map.Entry<K, IntList> entry : map.entrySet())
+			result.put(entry.getKey(), entry.getValue().toDistinctArray());
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void collectCandidates(Object obj, IntList candidates, int depth) {
+		for (Field field : getCandidateFields(obj.getClass())) {
+			try {
+				if (field.getType() == int.class) {
+					int value = field.getInt(obj);
+					if (value != -1)
+						candidates.add(value);
+					continue;
+				}
+
+				Object value = field.get(obj);
+				if (value == null)
+					continue;
+				if (value instanceof List) {
+					for (Object element : (List<Object>) value) {
+						if (element instanceof Integer)
+							candidates.add((Integer) element);
+						else if (element != null && depth > 0 && isComponent(element.getClass()))
+							collectCandidates(element, candidates, depth - 1);
+					}
+				} else if (depth > 0) {
+					collectCandidates(value, candidates, depth - 1);
+				}
+			} catch (IllegalAccessException e) {
+				LOG.error("error reading " + field, e);
+			}
+		}
+	}
+
+	private static List<Field> getCandidateFields(Class<?> objectClass) {
+		List<Field> fields = candidateFields.get(objectClass);
+		if (fields != null)
+			return fields;
+
+		fields = new ArrayList<>();
+		for (Class<?> c = objectClass; c != Event.class && c != AbstractObject.class && c != Object.class; c = c
+				.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()))
+					continue;
+				Class<?> type = field.getType();
+				if (type == int.class || type == List.class || isComponent(type)) {
+					field.setAccessible(true);
+					fields.add(field);
+				}
+			}
+		}
+		candidateFields.put(objectClass, fields);
+		return fields;
+	}
+
+	private static boolean isComponent(Class<?> type) {
+		return type.getName().startsWith("legends.model.events.");
+	}
+
+	/**
+	 * Event id lists of densely numbered objects, indexed by object id.
+	 */
+	private static class IdLists {
+		private IntList[] lists = new IntList[1024];
+
+		void add(int id, int eventId) {
+			if (id >= lists.length)
+				lists = Arrays.copyOf(lists, Math.max(id + 1, lists.length * 2));
+			IntList list = lists[id];
+			if (list == null) {
+				list = new IntList();
+				lists[id] = list;
+			}
+			list.add(eventId);
+		}
+
+		int[][] toArrays() {
+			int length = lists.length;
+			while (length > 0 && lists[length - 1] == null)
+				length--;
+			int[][] result = new int[length][];
+			for (int i = 0; i < length; i++)
+				if (lists[i] != null)
+					result[i] = lists[i].toDistinctArray();
+			return result;
+		}
+	}
+
+	private static class IntList {
+		private int[] data = new int[4];
+		private int size = 0;
+
+		void add(int value) {
+			if (size == data.length)
+				data = Arrays.copyOf(data, size * 2);
+			data[size++] = value;
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		int[] toDistinctArray() {
+			int[] result = Arrays.copyOf(data, size);
+			Arrays.sort(result);
+			int n = 0;
+			for (int i = 0; i < result.length; i++)
+				if (n == 0 || result[n - 1] != result[i])
+					result[n++] = result[i];
+			return n == result.length ? result : Arrays.copyOf(result, n);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package legends.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import legends.model.basic.AbstractObject;
+
+/**
+ * The events shown on a page, as rows of the {@link EventColumns}.
+ *
+ * Pages render only the first events, the rest is loaded from the url of the
+ * list while scrolling. Types are filtered and pages are cut on the rows, so
+ * only the events of one page are looked up.
+ */
+public class EventList {
+	public static final int PAGE_SIZE = 100;
+	public static final int MAX_PAGE_SIZE = 1000;
+
+	private final String url;
+	private final int[] rows;
+
+	public EventList(String url, int[] rows) {
+		this.url = url;
+		this.rows = rows;
+	}
+
+	/**
+	 * The related events of a world object, loaded from /events followed by
+	 * the path of its page.
+	 */
+	public static EventList of(String path, AbstractObject obj) {
+		return new EventList("/events" + path, World.getEventColumns().rowsOf(World.getEventIndex().getEventIds(obj)));
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public int size() {
+		return rows.length;
+	}
+
+	/**
+	 * Sorted names of the types in the list.
+	 */
+	public List<String> getTypes() {
+		EventColumns columns = World.getEventColumns();
+		List<String> typeNames = columns.getTypes();
+		boolean[] present = new boolean[typeNames.size()];
+		for (int row : rows) {
+			int code = columns.getTypeCode(row);
+			if (code >= 0)
+				present[code] = true;
+		}
+		List<String> types = new ArrayList<>();
+		for (int i = 0; i < present.length; i++)
+			if (present[i])
+				types.add(typeNames.get(i));
+		return types;
+	}
+
+	/**
+	 * The events of the given types.
+	 */
+	public EventList withTypes(Collection<String> types) {
+		EventColumns columns = World.getEventColumns();
+		List<String> typeNames = columns.getTypes();
+		boolean[] selected = new boolean[typeNames.size()];
+		for (String type : types) {
+			int code = typeNames.indexOf(type);
+			if (code >= 0)
+				selected[code] = true;
+		}
+		int[] filtered = new int[rows.length];
+		int n = 0;
+		for (int row : rows) {
+			int code = columns.getTypeCode(row);
+			if (code >= 0 && selected[code])
+				filtered[n++] = row;
+		}
+		return new EventList(url, Arrays.copyOf(filtered, n));
+	}
+
+	public List<EventColumns.Row> getEvents(int offset, int limit) {
+		int from = Math.max(0, Math.min(offset, rows.length));
+		int to = (int) Math.min(rows.length, (long) from + Math.max(0, limit));
+		return World.getEventColumns().getRows(Arrays.copyOfRange(rows, from, to));
+	}
+
+	public List<EventColumns.Row> getFirstPage() {
+		return getEvents(0, PAGE_SIZE);
+	}
+}
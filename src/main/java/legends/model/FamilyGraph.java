@@ -0,0 +1,128 @@
+package legends.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Parents, spouse and children of every historical figure, resolved once from
+ * the historical figure links so the family tree of a figure does not go
+ * through the links of every member again.
+ *
+ * A relation is chosen like {@link HistoricalFigure#getHfLink(String)} does,
+ * the oldest figure of the link type, and the children are ordered like
+ * {@link HistoricalFigure#getHfLinks(String)}.
+ */
+public class FamilyGraph {
+	private static final Log LOG = LogFactory.getLog(FamilyGraph.class);
+
+	private final HistoricalFigure[] hfs;
+	private final Map<Integer, Integer> positions = new HashMap<>();
+	private final int[] fathers;
+	private final int[] mothers;
+	private final int[] spouses;
+	private final int[][] children;
+
+	public FamilyGraph() {
+		this(Collections.emptyList());
+	}
+
+	public FamilyGraph(Collection<HistoricalFigure> historicalFigures) {
+		long start = System.currentTimeMillis();
+
+		hfs = historicalFigures.toArray(new HistoricalFigure[historicalFigures.size()]);
+		for (int i = 0; i < hfs.length; i++)
+			positions.put(hfs[i].getId(), i);
+
+		fathers = new int[hfs.length];
+		mothers = new int[hfs.length];
+		spouses = new int[hfs.length];
+		children = new int[hfs.length][];
+		for (int i = 0; i < hfs.length; i++) {
+			fathers[i] = first(links(hfs[i], "father"));
+			mothers[i] = first(links(hfs[i], "mother"));
+			spouses[i] = first(links(hfs[i], "spouse"));
+			children[i] = links(hfs[i], "child").stream().filter(hf -> hf.getId() != -1)
+					.mapToInt(hf -> positions.get(hf.getId())).toArray();
+		}
+
+		if (hfs.length > 0)
+			LOG.info("linked families of " + hfs.length + " historical figures in "
+					+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	private List<HistoricalFigure> links(HistoricalFigure hf, String linkType) {
+		List<HistoricalFigure> list = new ArrayList<>();
+		for (HistoricalFigureLink link : hf.getHistoricalFigureLinks())
+			if (linkType.equals(link.getLinkType()))
+				list.add(get(positions.getOrDefault(link.getHistoricalFigureId(), -1)));
+		if (list.size() > 1)
+			list.sort(HistoricalFigure.byAge());
+		return list;
+	}
+
+	private int first(List<HistoricalFigure> list) {
+		return list.isEmpty() ? -1 : positions.getOrDefault(list.get(0).getId(), -1);
+	}
+
+	private HistoricalFigure get(int position) {
+		return position >= 0 ? hfs[position] : World.UNKNOWN_HISTORICAL_FIGURE;
+	}
+
+	private int position(HistoricalFigure hf) {
+		return positions.getOrDefault(hf.getId(), -1);
+	}
+
+	/**
+	 * @return the father or {@link World#UNKNOWN_HISTORICAL_FIGURE}
+	 */
+	public HistoricalFigure getFather(HistoricalFigure hf) {
+		int i = position(hf);
+		return get(i >= 0 ? fathers[i] : -1);
+	}
+
+	/**
+	 * @return the mother or {@link World#UNKNOWN_HISTORICAL_FIGURE}
+	 */
+	public HistoricalFigure getMother(HistoricalFigure hf) {
+		int i = position(hf);
+		return get(i >= 0 ? mothers[i] : -1);
+	}
+
+	/**
+	 * @return the spouse or {@link World#UNKNOWN_HISTORICAL_FIGURE}
+	 */
+	public HistoricalFigure getSpouse(HistoricalFigure hf) {
+		int i = position(hf);
+		return get(i >= 0 ? spouses[i] : -1);
+	}
+
+	/**
+	 * @return the children, oldest first
+	 */
+	public List<HistoricalFigure> getChildren(HistoricalFigure hf) {
+		int i = position(hf);
+		if (i < 0)
+			return Collections.emptyList();
+		List<HistoricalFigure> list = new ArrayList<>(children[i].length);
+		for (int child : children[i])
+			list.add(hfs[child]);
+		return list;
+	}
+
+	public boolean hasParents(HistoricalFigure hf) {
+		int i = position(hf);
+		return i >= 0 && (fathers[i] >= 0 || mothers[i] >= 0);
+	}
+
+	public boolean hasChildren(HistoricalFigure hf) {
+		int i = position(hf);
+		return i >= 0 && children[i].length > 0;
+	}
+}
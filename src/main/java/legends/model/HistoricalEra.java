@@ -6,15 +6,23 @@ import legends.xml.annotation.Xml;
 public class HistoricalEra {
 	@Xml("name")
 	private String name;
+	private transient String displayName;
 	@Xml("start_year")
 	private int startYear;
 
 	public String getName() {
-		return EventHelper.name(name);
+		if (displayName == null)
+			displayName = EventHelper.name(name);
+		return displayName;
+	}
+
+	public String getRawName() {
+		return name;
 	}
 
 	public void setName(String name) {
 		this.name = name;
+		displayName = null;
 	}
 
 	public int getStartYear() {
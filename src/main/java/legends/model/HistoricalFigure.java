@@ -14,9 +14,10 @@ import legends.xml.annotation.Xml;
 public class HistoricalFigure extends AbstractObject {
 	@Xml("name")
 	private String name;
-	@Xml("race")
+	private transient String displayName;
+	@Xml(value = "race", dictionary = true)
 	private String race = "UNKNOWN RACE";
-	@Xml("caste")
+	@Xml(value = "caste", dictionary = true)
 	private String caste;
 	@Xml("sex")
 	private int sex = -1;
@@ -32,7 +33,7 @@ public class HistoricalFigure extends AbstractObject {
 	private int deathYear;
 	@Xml("death_seconds72")
 	private int deathSeconds;
-	@Xml("associated_type")
+	@Xml(value = "associated_type", dictionary = true)
 	private String associatedType;
 	@Xml("ent_pop_id")
 	private int entPopId;
@@ -102,11 +103,18 @@ public class HistoricalFigure extends AbstractObject {
 	private static HistoricalFigure context = null;
 
 	public String getName() {
-		return EventHelper.name(name);
+		if (displayName == null)
+			displayName = EventHelper.name(name);
+		return displayName;
+	}
+
+	public String getRawName() {
+		return name;
 	}
 
 	public void setName(String name) {
 		this.name = name;
+		displayName = null;
 	}
 
 	public String getRace() {
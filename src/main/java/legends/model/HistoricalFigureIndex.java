@@ -0,0 +1,245 @@
+package legends.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Filters and orders of the list of historical figures, computed once so a
+ * page of the list does not look at every figure.
+ *
+ * Figure i in id order is bit i of a bit set per flag, and is listed in the
+ * positions of its race. The figures matching a query are the intersection
+ * of those, and a page of them is read from a presorted order of all
+ * figures.
+ */
+public class HistoricalFigureIndex {
+	private static final Log LOG = LogFactory.getLog(HistoricalFigureIndex.class);
+
+	public static final String UNKNOWN_RACE = "UNKNOWN";
+
+	public enum Flag {
+		LEADER(HistoricalFigure::isLeader), DEITY(HistoricalFigure::isDeity), FORCE(HistoricalFigure::isForce),
+		VAMPIRE(HistoricalFigure::isVampire), WEREBEAST(HistoricalFigure::isWerebeast),
+		NECROMANCER(HistoricalFigure::isNecromancer), ALIVE(hf -> hf.getDeathYear() == -1),
+		GHOST(HistoricalFigure::isGhost), ADVENTURER(HistoricalFigure::isAdventurer);
+
+		private final Predicate<HistoricalFigure> predicate;
+
+		private Flag(Predicate<HistoricalFigure> predicate) {
+			this.predicate = predicate;
+		}
+
+		/**
+		 * The name of the request parameter.
+		 */
+		public String getName() {
+			return name().toLowerCase();
+		}
+	}
+
+	public enum Sort {
+		NAME((h1, h2) -> h1.getName().compareToIgnoreCase(h2.getName())),
+		RACE((h1, h2) -> race(h1).compareToIgnoreCase(race(h2))),
+		BIRTH((h1, h2) -> Integer.compare(h1.getBirthYear(), h2.getBirthYear())),
+		DEATH((h1, h2) -> Integer.compare(h1.getDeathYear(), h2.getDeathYear())),
+		KILLS((h1, h2) -> -Integer.compare(h1.getKills(), h2.getKills()));
+
+		private final Comparator<HistoricalFigure> comparator;
+
+		private Sort(Comparator<HistoricalFigure> comparator) {
+			this.comparator = comparator;
+		}
+
+		/**
+		 * @return the sort of a request parameter, or null for the id order
+		 */
+		public static Sort of(String name) {
+			for (Sort sort : values())
+				if (sort.name().equalsIgnoreCase(name))
+					return sort;
+			return null;
+		}
+	}
+
+	private final HistoricalFigure[] hfs;
+	private final long[] all;
+	private final long[][] flags = new long[Flag.values().length][];
+	private final Map<String, int[]> races = new TreeMap<>();
+	private final int[][] orders = new int[Sort.values().length][];
+
+	public HistoricalFigureIndex() {
+		this(Collections.emptyList());
+	}
+
+	public HistoricalFigureIndex(Collection<HistoricalFigure> historicalFigures) {
+		long start = System.currentTimeMillis();
+
+		hfs = historicalFigures.toArray(new HistoricalFigure[historicalFigures.size()]);
+		all = new long[(hfs.length + 63) >>> 6];
+		for (int i = 0; i < hfs.length; i++)
+			all[i >>> 6] |= 1L << i;
+
+		for (Flag flag : Flag.values()) {
+			long[] bits = new long[all.length];
+			for (int i = 0; i < hfs.length; i++)
+				if (flag.predicate.test(hfs[i]))
+					bits[i >>> 6] |= 1L << i;
+			flags[flag.ordinal()] = bits;
+		}
+
+		Map<String, List<Integer>> positions = new TreeMap<>();
+		for (int i = 0; i < hfs.length; i++)
+			positions.computeIfAbsent(race(hfs[i]), r -> new ArrayList<>()).add(i);
+		positions.forEach((race, list) -> races.put(race, list.stream().mapToInt(Integer::intValue).toArray()));
+
+		for (Sort sort : Sort.values()) {
+			Integer[] order = new Integer[hfs.length];
+			for (int i = 0; i < order.length; i++)
+				order[i] = i;
+			Arrays.sort(order, (i1, i2) -> sort.comparator.compare(hfs[i1], hfs[i2]));
+			orders[sort.ordinal()] = Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+		}
+
+		if (hfs.length > 0)
+			LOG.info("indexed " + hfs.length + " historical figures in " + (System.currentTimeMillis() - start)
+					+ " ms");
+	}
+
+	private static String race(HistoricalFigure hf) {
+		return hf.getRace() != null ? hf.getRace() : UNKNOWN_RACE;
+	}
+
+	public Set<String> getRaces() {
+		return races.keySet();
+	}
+
+	/**
+	 * @param race
+	 *            null or empty for all races
+	 */
+	public Query query(Set<Flag> flags, String race) {
+		long[] flagged = all;
+		for (Flag flag : flags)
+			flagged = and(flagged, this.flags[flag.ordinal()]);
+		return new Query(flagged, race);
+	}
+
+	public class Query {
+		private final long[] flagged;
+		private final long[] matches;
+		private final int count;
+
+		private Query(long[] flagged, String race) {
+			this.flagged = flagged;
+			if (race == null || race.isEmpty())
+				matches = flagged;
+			else {
+				matches = new long[flagged.length];
+				for (int i : races.getOrDefault(race, new int[0]))
+					matches[i >>> 6] |= 1L << i;
+				for (int i = 0; i < matches.length; i++)
+					matches[i] &= flagged[i];
+			}
+			count = count(matches);
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		/**
+		 * @param sort
+		 *            null for the id order
+		 */
+		public List<HistoricalFigure> getPage(Sort sort, int offset, int limit) {
+			List<HistoricalFigure> page = new ArrayList<>();
+			int skipped = 0;
+			if (sort == null) {
+				for (int i = nextSetBit(matches, 0); i >= 0 && page.size() < limit; i = nextSetBit(matches, i + 1))
+					if (skipped++ >= offset)
+						page.add(hfs[i]);
+			} else {
+				for (int i : orders[sort.ordinal()]) {
+					if ((matches[i >>> 6] & 1L << i) == 0 || skipped++ < offset)
+						continue;
+					page.add(hfs[i]);
+					if (page.size() == limit)
+						break;
+				}
+			}
+			return page;
+		}
+
+		/**
+		 * @return the matches that also have each flag, by parameter name
+		 */
+		public Map<String, Integer> getFlagCounts() {
+			Map<String, Integer> counts = new LinkedHashMap<>();
+			for (Flag flag : Flag.values())
+				counts.put(flag.getName(), countAnd(matches, flags[flag.ordinal()]));
+			return counts;
+		}
+
+		/**
+		 * @return the figures with the flags of the query by race, regardless
+		 *         of the race of the query
+		 */
+		public Map<String, Integer> getRaceCounts() {
+			Map<String, Integer> counts = new LinkedHashMap<>();
+			races.forEach((race, positions) -> {
+				int n = 0;
+				for (int i : positions)
+					if ((flagged[i >>> 6] & 1L << i) != 0)
+						n++;
+				counts.put(race, n);
+			});
+			return counts;
+		}
+	}
+
+	private static long[] and(long[] a, long[] b) {
+		long[] result = new long[a.length];
+		for (int i = 0; i < a.length; i++)
+			result[i] = a[i] & b[i];
+		return result;
+	}
+
+	private static int count(long[] bits) {
+		int n = 0;
+		for (long word : bits)
+			n += Long.bitCount(word);
+		return n;
+	}
+
+	private static int countAnd(long[] a, long[] b) {
+		int n = 0;
+		for (int i = 0; i < a.length; i++)
+			n += Long.bitCount(a[i] & b[i]);
+		return n;
+	}
+
+	private static int nextSetBit(long[] bits, int from) {
+		int i = from >>> 6;
+		if (i >= bits.length)
+			return -1;
+		long word = bits[i] & (-1L << from);
+		while (word == 0) {
+			if (++i == bits.length)
+				return -1;
+			word = bits[i];
+		}
+		return (i << 6) + Long.numberOfTrailingZeros(word);
+	}
+}
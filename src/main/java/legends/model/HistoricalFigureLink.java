@@ -1,9 +1,9 @@
 package legends.model;
 
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -19,13 +19,13 @@ public class HistoricalFigureLink {
 	@Xml("link_strength")
 	private int linkStrength;
 
-	private static Set<String> linkTypes = new HashSet<>();
+	private static Set<String> linkTypes = ConcurrentHashMap.newKeySet();
 
 	public String getLinkType() {
 		return linkType;
 	}
 
-	@Xml("link_type")
+	@Xml(value = "link_type", dictionary = true)
 	public void setLinkType(String linkType) {
 		linkTypes.add(linkType);
 		this.linkType = linkType;
@@ -8,9 +8,10 @@ import legends.xml.annotation.Xml;
 public class Identity extends AbstractObject {
 	@Xml("name")
 	private String name = "UNKNOWN IDENTITY";
-	@Xml("race")
+	private transient String displayName;
+	@Xml(value = "race", dictionary = true)
 	private String race;
-	@Xml("caste")
+	@Xml(value = "caste", dictionary = true)
 	private String caste;
 	@Xml("histfig_id")
 	private int hfId = -1;
@@ -18,17 +19,24 @@ public class Identity extends AbstractObject {
 	private int birthYear = -1;
 	@Xml("birth_second")
 	private int birthSeconds = -1;
-	@Xml("profession")
+	@Xml(value = "profession", dictionary = true)
 	private String profession;
 	@Xml("entity_id")
 	private int entityId = -1;
 
 	public String getName() {
-		return EventHelper.name(name);
+		if (displayName == null)
+			displayName = EventHelper.name(name);
+		return displayName;
+	}
+
+	public String getRawName() {
+		return name;
 	}
 
 	public void setName(String name) {
 		this.name = name;
+		displayName = null;
 	}
 
 	public String getRace() {
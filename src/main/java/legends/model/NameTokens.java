@@ -0,0 +1,156 @@
+package legends.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The distinct words of the names of a {@link SearchIndex} with the entries
+ * containing them, and a BK-tree over the words to find the words within an
+ * edit distance of a misspelled word.
+ *
+ * Every word of the tree is a child of the first word at the same distance
+ * from its parent, so only the children at a distance that the triangle
+ * inequality allows have to be visited.
+ */
+class NameTokens {
+	private final String[] tokens;
+	private final int[][] entries;
+	private final int maxLength;
+	/**
+	 * The children of each word by their distance, null for leaves. The root
+	 * is no child, so 0 is no child.
+	 */
+	private final int[][] children;
+
+	NameTokens(String[] keys) {
+		Map<String, SearchIndex.IntList> words = new HashMap<>();
+		for (int entry = 0; entry < keys.length; entry++)
+			for (String word : words(keys[entry]))
+				words.computeIfAbsent(word, w -> new SearchIndex.IntList()).add(entry);
+
+		tokens = words.keySet().toArray(new String[words.size()]);
+		Arrays.sort(tokens);
+		entries = new int[tokens.length][];
+		for (int i = 0; i < tokens.length; i++)
+			entries[i] = words.get(tokens[i]).toArray();
+
+		int max = 0;
+		for (String token : tokens)
+			max = Math.max(max, token.length());
+		maxLength = max;
+
+		children = new int[tokens.length][];
+		int[] rows = new int[2 * maxLength + 2];
+		for (int token = 1; token < tokens.length; token++) {
+			int node = 0;
+			for (;;) {
+				int d = distance(tokens[token], tokens[node], rows);
+				if (children[node] == null)
+					children[node] = new int[maxLength + 1];
+				int child = children[node][d];
+				if (child == 0) {
+					children[node][d] = token;
+					break;
+				}
+				node = child;
+			}
+		}
+	}
+
+	int size() {
+		return tokens.length;
+	}
+
+	String get(int token) {
+		return tokens[token];
+	}
+
+	int[] getEntries(int token) {
+		return entries[token];
+	}
+
+	/**
+	 * Adds the words within maxDistance of word with their distance, as far
+	 * as the tree can be searched before the deadline.
+	 */
+	void findSimilar(String word, int maxDistance, long deadline, Map<Integer, Integer> result) {
+		if (tokens.length == 0)
+			return;
+		int[] rows = new int[2 * Math.max(word.length(), maxLength) + 2];
+		int[] stack = new int[64];
+		int size = 0;
+		stack[size++] = 0;
+		int visited = 0;
+		while (size > 0) {
+			if ((++visited & 0xff) == 0 && System.nanoTime() > deadline)
+				return;
+			int node = stack[--size];
+			int d = distance(word, tokens[node], rows);
+			if (d <= maxDistance)
+				result.put(node, d);
+			if (children[node] == null)
+				continue;
+			for (int i = Math.max(1, d - maxDistance); i <= Math.min(maxLength, d + maxDistance); i++) {
+				int child = children[node][i];
+				if (child == 0)
+					continue;
+				if (size == stack.length)
+					stack = Arrays.copyOf(stack, size * 2);
+				stack[size++] = child;
+			}
+		}
+	}
+
+	/**
+	 * Adds the words starting with prefix at distance 0.
+	 */
+	void findPrefixed(String prefix, Map<Integer, Integer> result) {
+		int i = Arrays.binarySearch(tokens, prefix);
+		for (i = i >= 0 ? i : -i - 1; i < tokens.length && tokens[i].startsWith(prefix); i++)
+			result.put(i, 0);
+	}
+
+	static List<String> words(String key) {
+		List<String> words = new ArrayList<>();
+		int start = -1;
+		for (int i = 0; i <= key.length(); i++) {
+			boolean letter = i < key.length() && Character.isLetterOrDigit(key.charAt(i));
+			if (letter && start < 0)
+				start = i;
+			else if (!letter && start >= 0) {
+				words.add(key.substring(start, i));
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Levenshtein distance, which keeps the triangle inequality the tree
+	 * relies on.
+	 *
+	 * @param rows
+	 *            room for two rows of t
+	 */
+	static int distance(String s, String t, int[] rows) {
+		int m = t.length();
+		int previous = 0;
+		int current = m + 1;
+		for (int j = 0; j <= m; j++)
+			rows[j] = j;
+		for (int i = 1; i <= s.length(); i++) {
+			rows[current] = i;
+			char c = s.charAt(i - 1);
+			for (int j = 1; j <= m; j++)
+				rows[current + j] = Math.min(Math.min(rows[previous + j], rows[current + j - 1]) + 1,
+						rows[previous + j - 1] + (c == t.charAt(j - 1) ? 0 : 1));
+			int swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return rows[previous + m];
+	}
+}
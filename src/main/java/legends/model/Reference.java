@@ -3,7 +3,7 @@ package legends.model;
 import legends.xml.annotation.Xml;
 
 public class Reference {
-	@Xml("type")
+	@Xml(value = "type", dictionary = true)
 	private String type;
 	@Xml("id")
 	private int id = -1;
@@ -15,8 +15,9 @@ import legends.xml.converter.CoordListConverter;
 public class Region extends AbstractObject {
 	@Xml("name")
 	private String name;
+	private transient String displayName;
 
-	@Xml("type")
+	@Xml(value = "type", dictionary = true)
 	private String type;
 
 	@Xml("coords")
@@ -24,11 +25,18 @@ public class Region extends AbstractObject {
 	private List<Coords> coords = new ArrayList<>();
 
 	public String getName() {
-		return EventHelper.name(name);
+		if (displayName == null)
+			displayName = EventHelper.name(name);
+		return displayName;
+	}
+
+	public String getRawName() {
+		return name;
 	}
 
 	public void setName(String name) {
 		this.name = name;
+		displayName = null;
 	}
 
 	public String getType() {
@@ -7,7 +7,7 @@ import legends.model.basic.AbstractObject;
 import legends.xml.annotation.Xml;
 
 public class Schedule extends AbstractObject {
-	@Xml("type")
+	@Xml(value = "type", dictionary = true)
 	private String type = "";
 	@Xml("reference")
 	private int reference;
@@ -15,9 +15,9 @@ public class Schedule extends AbstractObject {
 	private int reference2;
 	@Xml(value = "feature", elementClass = ScheduleFeature.class, multiple = true)
 	private List<ScheduleFeature> features = new ArrayList<>();
-	@Xml("item_type")
+	@Xml(value = "item_type", dictionary = true)
 	private String itemType;
-	@Xml("item_subtype")
+	@Xml(value = "item_subtype", dictionary = true)
 	private String itemSubType;
 
 	public String getType() {
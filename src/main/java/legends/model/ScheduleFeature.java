@@ -3,7 +3,7 @@ package legends.model;
 import legends.xml.annotation.Xml;
 
 public class ScheduleFeature {
-	@Xml("type")
+	@Xml(value = "type", dictionary = true)
 	private String type = "";
 	@Xml("reference")
 	private int reference = -1;
@@ -0,0 +1,539 @@
+package legends.model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import legends.helper.EventHelper;
+import legends.model.basic.AbstractObject;
+
+/**
+ * Index over the display names of the named world objects for the search
+ * page and the typeahead of the search field.
+ *
+ * Names are lower cased and numbered from the shortest to the longest. The
+ * starts of all words are sorted by the rest of the name, so the names and
+ * words starting with a query are one range found by binary search, and a
+ * tree of the best entry in each part of that range yields the best matches
+ * without looking at the others. Matches inside of words are only looked
+ * for when there are not enough of those, in the entries containing every
+ * trigram of the query in ascending order.
+ *
+ * Matches are ranked by how they match: the whole name, the start of the
+ * name, the start of a word and anywhere else. Shorter names come first
+ * within each rank, then the order in which the objects were added.
+ *
+ * Names and queries are folded to plain letters, so "urist" finds "Ûrist".
+ * Fuzzy searches add names with words within a few edits of the words of
+ * the query, found in {@link NameTokens} within {@link #FUZZY_BUDGET_MS}.
+ */
+public class SearchIndex {
+	private static final Log LOG = LogFactory.getLog(SearchIndex.class);
+
+	public static final int DEFAULT_LIMIT = 20;
+	public static final int MAX_LIMIT = 1000;
+	/**
+	 * Fuzzy searches return the matches found so far after this time.
+	 */
+	public static final int FUZZY_BUDGET_MS = 25;
+
+	private final AbstractObject[] objects;
+	private final String[] keys;
+	/**
+	 * Entry and offset of every word start, sorted by the rest of the name.
+	 */
+	private final long[] wordStarts;
+	/**
+	 * Position of the best word start in each node of a segment tree over the
+	 * word starts.
+	 */
+	private final int[] best;
+	private final Map<Long, int[]> trigrams;
+	private final NameTokens tokens;
+
+	public SearchIndex() {
+		this(new AbstractObject[0], new String[0], new long[0], new HashMap<>());
+	}
+
+	private SearchIndex(AbstractObject[] objects, String[] keys, long[] wordStarts, Map<Long, int[]> trigrams) {
+		this.objects = objects;
+		this.keys = keys;
+		this.wordStarts = wordStarts;
+		this.trigrams = trigrams;
+		tokens = new NameTokens(keys);
+
+		int n = wordStarts.length;
+		best = new int[2 * n];
+		for (int i = 0; i < n; i++)
+			best[n + i] = i;
+		for (int i = n - 1; i > 0; i--)
+			best[i] = better(best[2 * i], best[2 * i + 1]);
+	}
+
+	public int size() {
+		return objects.length;
+	}
+
+	/**
+	 * Queries shorter than three characters only match the start of names
+	 * and words.
+	 *
+	 * @return the best matches first, at most limit
+	 */
+	public List<AbstractObject> search(String query, int limit) {
+		return search(query, limit, false);
+	}
+
+	/**
+	 * @param fuzzy
+	 *            fill up the matches with names that are spelled similarly
+	 */
+	public List<AbstractObject> search(String query, int limit, boolean fuzzy) {
+		return search(query, limit, fuzzy, AbstractObject.class);
+	}
+
+	/**
+	 * Searches the objects of one type, so the limit is not taken up by
+	 * matches of other types.
+	 *
+	 * @return the best matches of the type first, at most limit
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends AbstractObject> List<T> search(String query, int limit, Class<T> type) {
+		return (List<T>) search(query, limit, false, type);
+	}
+
+	private List<AbstractObject> search(String query, int limit, boolean fuzzy, Class<?> type) {
+		long deadline = System.nanoTime() + FUZZY_BUDGET_MS * 1000000L;
+		String q = normalize(query);
+		if (q.isEmpty() || limit <= 0)
+			return Collections.emptyList();
+
+		Set<Integer> found = new HashSet<>();
+		List<AbstractObject> result = new ArrayList<>();
+
+		int from = bound(q, false);
+		int to = bound(q, true);
+		PriorityQueue<int[]> ranges = new PriorityQueue<>((r1, r2) -> Long.compare(rank(r1[2]), rank(r2[2])));
+		if (from < to)
+			ranges.add(new int[] { from, to, min(from, to) });
+		while (result.size() < limit && !ranges.isEmpty()) {
+			int[] range = ranges.poll();
+			int entry = (int) (wordStarts[range[2]] >>> 16);
+			if (found.add(entry) && type.isInstance(objects[entry]))
+				result.add(objects[entry]);
+			if (range[0] < range[2])
+				ranges.add(new int[] { range[0], range[2], min(range[0], range[2]) });
+			if (range[2] + 1 < range[1])
+				ranges.add(new int[] { range[2] + 1, range[1], min(range[2] + 1, range[1]) });
+		}
+
+		if (q.length() >= 3 && result.size() < limit)
+			findSubstrings(q, limit, type, found, result);
+		if (fuzzy && result.size() < limit)
+			findSimilar(q, limit, type, deadline, found, result);
+		return result;
+	}
+
+	static String normalize(String name) {
+		if (name == null)
+			return "";
+		name = name.trim();
+		for (int i = 0; i < name.length(); i++)
+			if (name.charAt(i) >= 0x80)
+				return fold(name);
+		return name.toLowerCase();
+	}
+
+	/**
+	 * Replaces misread CP437 glyphs and letters with diacritics by plain
+	 * letters.
+	 */
+	private static String fold(String name) {
+		name = Normalizer.normalize(EventHelper.ascii(name).toLowerCase(), Normalizer.Form.NFD);
+		StringBuilder sb = new StringBuilder(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			switch (c) {
+			case '\u00e6':
+				sb.append("ae");
+				break;
+			case '\u0153':
+				sb.append("oe");
+				break;
+			case '\u00df':
+				sb.append("ss");
+				break;
+			case '\u00f8':
+				sb.append('o');
+				break;
+			case '\u0111':
+			case '\u00f0':
+				sb.append('d');
+				break;
+			case '\u0142':
+				sb.append('l');
+				break;
+			case '\u0131':
+				sb.append('i');
+				break;
+			default:
+				if (Character.getType(c) != Character.NON_SPACING_MARK)
+					sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static int maxDistance(String word) {
+		return word.length() < 3 ? 0 : word.length() < 6 ? 1 : 2;
+	}
+
+	/**
+	 * Adds the entries with a similar word for every word of the query, the
+	 * last word may also be the start of a word. The entries of the query
+	 * word with the fewest are checked, from the closest words on, and ranked
+	 * by the sum of the distances of their words.
+	 */
+	private void findSimilar(String q, int limit, Class<?> type, long deadline, Set<Integer> found,
+			List<AbstractObject> result) {
+		List<String> words = NameTokens.words(q);
+		if (words.isEmpty())
+			return;
+		List<Map<String, Integer>> similar = new ArrayList<>();
+		long pivotEntries = Long.MAX_VALUE;
+		Map<Integer, Integer> pivotTokens = null;
+		for (int i = 0; i < words.size(); i++) {
+			Map<Integer, Integer> matches = new HashMap<>();
+			tokens.findSimilar(words.get(i), maxDistance(words.get(i)), deadline, matches);
+			if (i == words.size() - 1)
+				tokens.findPrefixed(words.get(i), matches);
+			if (matches.isEmpty())
+				return;
+			Map<String, Integer> distances = new HashMap<>();
+			long count = 0;
+			for (Map.Entry<Integer, Integer> match : matches.entrySet()) {
+				distances.put(tokens.get(match.getKey()), match.getValue());
+				count += tokens.getEntries(match.getKey()).length;
+			}
+			similar.add(distances);
+			if (count < pivotEntries) {
+				pivotEntries = count;
+				pivotTokens = matches;
+			}
+		}
+
+		List<Map.Entry<Integer, Integer>> closest = new ArrayList<>(pivotTokens.entrySet());
+		closest.sort(Map.Entry.comparingByValue());
+		PriorityQueue<Long> best = new PriorityQueue<>(limit + 1, Collections.reverseOrder());
+		int needed = limit - result.size();
+		Set<Integer> checked = new HashSet<>();
+		int count = 0;
+		search: for (Map.Entry<Integer, Integer> token : closest) {
+			if (best.size() == needed && token.getValue() > best.peek() >>> 32)
+				break;
+			for (int entry : tokens.getEntries(token.getKey())) {
+				if ((++count & 0xff) == 0 && System.nanoTime() > deadline)
+					break search;
+				if (found.contains(entry) || !type.isInstance(objects[entry]) || !checked.add(entry))
+					continue;
+				int sum = distance(keys[entry], similar);
+				if (sum < 0)
+					continue;
+				long score = (long) sum << 32 | entry;
+				if (best.size() < needed)
+					best.add(score);
+				else if (score < best.peek()) {
+					best.poll();
+					best.add(score);
+				}
+			}
+		}
+
+		long[] scores = new long[best.size()];
+		for (int i = scores.length - 1; i >= 0; i--)
+			scores[i] = best.poll();
+		for (long score : scores) {
+			int entry = (int) score;
+			found.add(entry);
+			result.add(objects[entry]);
+		}
+	}
+
+	/**
+	 * @return the sum of the distances of the closest word of the name to
+	 *         each word of the query, or -1 if one has no similar word
+	 */
+	private static int distance(String key, List<Map<String, Integer>> similar) {
+		List<String> words = NameTokens.words(key);
+		int sum = 0;
+		for (Map<String, Integer> distances : similar) {
+			int min = Integer.MAX_VALUE;
+			for (String word : words) {
+				Integer d = distances.get(word);
+				if (d != null && d < min)
+					min = d;
+			}
+			if (min == Integer.MAX_VALUE)
+				return -1;
+			sum += min;
+		}
+		return sum;
+	}
+
+	/**
+	 * Adds the entries with q inside of a word, shortest first.
+	 */
+	private void findSubstrings(String q, int limit, Class<?> type, Set<Integer> found,
+			List<AbstractObject> result) {
+		List<int[]> lists = new ArrayList<>();
+		for (int i = 0; i + 3 <= q.length(); i++) {
+			int[] list = trigrams.get(trigram(q, i));
+			if (list == null)
+				return;
+			lists.add(list);
+		}
+		lists.sort((l1, l2) -> Integer.compare(l1.length, l2.length));
+
+		int[] positions = new int[lists.size()];
+		candidates: for (int entry : lists.get(0)) {
+			for (int j = 1; j < lists.size(); j++) {
+				int[] list = lists.get(j);
+				int i = Arrays.binarySearch(list, positions[j], list.length, entry);
+				positions[j] = i >= 0 ? i : -i - 1;
+				if (positions[j] == list.length)
+					return;
+				if (i < 0)
+					continue candidates;
+			}
+			if (!found.contains(entry) && type.isInstance(objects[entry]) && keys[entry].contains(q)) {
+				result.add(objects[entry]);
+				if (result.size() == limit)
+					return;
+			}
+		}
+	}
+
+	/**
+	 * Names before words, then shorter names.
+	 */
+	private long rank(int position) {
+		long wordStart = wordStarts[position];
+		return (wordStart & 0xffff) == 0 ? wordStart >>> 16 : 1L << 32 | wordStart >>> 16;
+	}
+
+	private int better(int p1, int p2) {
+		long r1 = rank(p1);
+		long r2 = rank(p2);
+		return r1 < r2 || (r1 == r2 && p1 < p2) ? p1 : p2;
+	}
+
+	/**
+	 * @return the position of the best word start in [from, to)
+	 */
+	private int min(int from, int to) {
+		int n = wordStarts.length;
+		int result = from;
+		for (int l = from + n, r = to + n; l < r; l >>= 1, r >>= 1) {
+			if ((l & 1) == 1)
+				result = better(result, best[l++]);
+			if ((r & 1) == 1)
+				result = better(result, best[--r]);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the first word start after the ones starting with q if after,
+	 *         else the first one starting with q or after them
+	 */
+	private int bound(String q, boolean after) {
+		int low = 0;
+		int high = wordStarts.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			String key = keys[(int) (wordStarts[mid] >>> 16)];
+			int offset = (int) (wordStarts[mid] & 0xffff);
+			int c = compare(key, offset, Math.min(key.length(), offset + q.length()), q, 0, q.length());
+			if (c < 0 || (after && c == 0))
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Compares parts of two strings without copying them.
+	 */
+	private static int compare(String s1, int start1, int end1, String s2, int start2, int end2) {
+		int n = Math.min(end1 - start1, end2 - start2);
+		for (int i = 0; i < n; i++) {
+			int c = s1.charAt(start1 + i) - s2.charAt(start2 + i);
+			if (c != 0)
+				return c;
+		}
+		return (end1 - start1) - (end2 - start2);
+	}
+
+	private static long trigram(String s, int i) {
+		return (long) s.charAt(i) << 32 | (long) s.charAt(i + 1) << 16 | s.charAt(i + 2);
+	}
+
+	private static boolean isWordStart(String key, int i) {
+		return Character.isLetterOrDigit(key.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(key.charAt(i - 1)));
+	}
+
+	public static class Builder {
+		private final List<AbstractObject> objects = new ArrayList<>();
+		private final List<String> keys = new ArrayList<>();
+
+		public Builder add(AbstractObject obj, String name) {
+			String key = normalize(name);
+			if (!key.isEmpty()) {
+				objects.add(obj);
+				keys.add(key);
+			}
+			return this;
+		}
+
+		public SearchIndex build() {
+			long start = System.currentTimeMillis();
+
+			int n = keys.size();
+			int maxLength = 0;
+			for (String key : keys)
+				maxLength = Math.max(maxLength, key.length());
+			int[] offsets = new int[maxLength + 2];
+			for (String key : keys)
+				offsets[key.length() + 1]++;
+			for (int i = 1; i < offsets.length; i++)
+				offsets[i] += offsets[i - 1];
+			AbstractObject[] sortedObjects = new AbstractObject[n];
+			String[] sortedKeys = new String[n];
+			for (int i = 0; i < n; i++) {
+				int entry = offsets[keys.get(i).length()]++;
+				sortedObjects[entry] = objects.get(i);
+				sortedKeys[entry] = keys.get(i);
+			}
+
+			Map<Long, IntList> lists = new HashMap<>();
+			LongList wordStarts = new LongList();
+			for (int entry = 0; entry < n; entry++) {
+				String key = sortedKeys[entry];
+				for (int i = 0; i + 3 <= key.length(); i++)
+					lists.computeIfAbsent(trigram(key, i), k -> new IntList()).add(entry);
+				for (int i = 0; i < key.length() && i <= 0xffff; i++)
+					if (isWordStart(key, i))
+						wordStarts.add((long) entry << 16 | i);
+			}
+			Map<Long, int[]> trigrams = new HashMap<>(lists.size() * 4 / 3 + 1);
+			lists.forEach((trigram, list) -> trigrams.put(trigram, list.toArray()));
+
+			long[] starts = wordStarts.toArray();
+			sort(starts, sortedKeys, 0, starts.length, 0);
+
+			SearchIndex index = new SearchIndex(sortedObjects, sortedKeys, starts, trigrams);
+			LOG.info("indexed " + n + " names with " + starts.length + " words, " + index.tokens.size()
+					+ " distinct words and " + trigrams.size() + " trigrams in " + (System.currentTimeMillis() - start)
+					+ " ms");
+			return index;
+		}
+
+		/**
+		 * Three way radix quicksort of the word starts by the rest of their
+		 * names, which only looks at each character once for words with a
+		 * common start.
+		 */
+		private static void sort(long[] a, String[] keys, int low, int high, int depth) {
+			while (high - low > 12) {
+				swap(a, low, (low + high) >>> 1);
+				int pivot = charAt(a[low], keys, depth);
+				int lt = low, gt = high - 1, i = low + 1;
+				while (i <= gt) {
+					int c = charAt(a[i], keys, depth);
+					if (c < pivot)
+						swap(a, lt++, i++);
+					else if (c > pivot)
+						swap(a, i, gt--);
+					else
+						i++;
+				}
+				sort(a, keys, low, lt, depth);
+				sort(a, keys, gt + 1, high, depth);
+				if (pivot < 0)
+					return;
+				low = lt;
+				high = gt + 1;
+				depth++;
+			}
+			for (int i = low + 1; i < high; i++)
+				for (int j = i; j > low && compare(a[j], a[j - 1], keys, depth) < 0; j--)
+					swap(a, j, j - 1);
+		}
+
+		private static int charAt(long wordStart, String[] keys, int depth) {
+			String key = keys[(int) (wordStart >>> 16)];
+			int i = (int) (wordStart & 0xffff) + depth;
+			return i < key.length() ? key.charAt(i) : -1;
+		}
+
+		private static int compare(long w1, long w2, String[] keys, int depth) {
+			String key1 = keys[(int) (w1 >>> 16)];
+			String key2 = keys[(int) (w2 >>> 16)];
+			return SearchIndex.compare(key1, (int) (w1 & 0xffff) + depth, key1.length(), key2,
+					(int) (w2 & 0xffff) + depth, key2.length());
+		}
+
+		private static void swap(long[] a, int i, int j) {
+			long t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+
+	/**
+	 * Entries in ascending order, an entry is added once per name.
+	 */
+	static class IntList {
+		private int[] data = new int[4];
+		private int size = 0;
+
+		void add(int value) {
+			if (size > 0 && data[size - 1] == value)
+				return;
+			if (size == data.length)
+				data = Arrays.copyOf(data, size * 2);
+			data[size++] = value;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(data, size);
+		}
+	}
+
+	private static class LongList {
+		private long[] data = new long[1024];
+		private int size = 0;
+
+		void add(long value) {
+			if (size == data.length)
+				data = Arrays.copyOf(data, size * 2);
+			data[size++] = value;
+		}
+
+		long[] toArray() {
+			return Arrays.copyOf(data, size);
+		}
+	}
+}
@@ -20,8 +20,9 @@ import legends.xml.converter.CoordsConverter;
 public class Site extends AbstractObject {
 	@Xml("name")
 	private String name;
+	private transient String displayName;
 
-	@Xml("type")
+	@Xml(value = "type", dictionary = true)
 	private String type = "";
 
 	@Xml("coords")
@@ -43,11 +44,18 @@ public class Site extends AbstractObject {
 	private boolean ruin = false;
 
 	public String getName() {
-		return EventHelper.name(name);
+		if (displayName == null)
+			displayName = EventHelper.name(name);
+		return displayName;
+	}
+
+	public String getRawName() {
+		return name;
 	}
 
 	public void setName(String name) {
 		this.name = name;
+		displayName = null;
 	}
 
 	public String getType() {
@@ -3,7 +3,7 @@ package legends.model;
 import legends.xml.annotation.Xml;
 
 public class SiteLink {
-	@Xml("link_type")private String linkType;
+	@Xml(value = "link_type", dictionary = true)private String linkType;
 	@Xml("site_id")private int siteId;
 	@Xml("occupation_id")private int occupationId;
 	@Xml("sub_id")private int subId;
@@ -12,10 +12,11 @@ import legends.xml.annotation.XmlAutoIncrement;
 @XmlAutoIncrement
 public class Structure extends AbstractObject {
 	private int siteId;
-	@Xml("type")
+	@Xml(value = "type", dictionary = true)
 	private String type;
 	@Xml("name")
 	private String name;
+	private transient String displayName;
 	@Xml("name2")
 	private String name2;
 
@@ -49,11 +50,18 @@ public class Structure extends AbstractObject {
 	}
 
 	public String getName() {
-		return EventHelper.name(name);
+		if (displayName == null)
+			displayName = EventHelper.name(name);
+		return displayName;
+	}
+
+	public String getRawName() {
+		return name;
 	}
 
 	public void setName(String name) {
 		this.name = name;
+		displayName = null;
 	}
 
 	public String getName2() {
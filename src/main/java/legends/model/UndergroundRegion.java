@@ -7,7 +7,7 @@ public class UndergroundRegion extends AbstractObject {
 	@Xml("depth")
 	private int depth;
 	
-	@Xml("type")
+	@Xml(value = "type", dictionary = true)
 	private String type;
 
 	@Xml("coords")
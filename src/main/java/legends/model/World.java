@@ -11,7 +11,6 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -24,9 +23,14 @@ import org.apache.commons.logging.LogFactory;
 import legends.HistoryReader;
 import legends.LegendsReader;
 import legends.SiteReader;
+import legends.SnapshotReader;
+import legends.SnapshotWriter;
 import legends.WorldGenReader;
 import legends.WorldState;
+import legends.helper.IdMap;
+import legends.helper.PageCache;
 import legends.helper.WorldConfig;
+import legends.model.basic.AbstractObject;
 import legends.model.collections.basic.EventCollection;
 import legends.model.events.AddHfEntityLinkEvent;
 import legends.model.events.AddHfHfLinkEvent;
@@ -66,45 +70,50 @@ public class World {
 	private static int endYear = 250;
 
 	@Xml(value = "regions", element = "region", elementClass = Region.class)
-	private static Map<Integer, Region> regions = new LinkedHashMap<>();
+	private static IdMap<Region> regions = new IdMap<>();
 	@Xml(value = "underground_regions", element = "underground_region", elementClass = UndergroundRegion.class)
-	private static Map<Integer, UndergroundRegion> undergroundRegions = new LinkedHashMap<>();
+	private static IdMap<UndergroundRegion> undergroundRegions = new IdMap<>();
 	@Xml(value = "world_constructions", element = "world_construction", elementClass = WorldConstruction.class)
-	private static Map<Integer, WorldConstruction> worldConstructions = new LinkedHashMap<>();
+	private static IdMap<WorldConstruction> worldConstructions = new IdMap<>();
 	@Xml(value = "sites", element = "site", elementClass = Site.class)
-	private static Map<Integer, Site> sites = new LinkedHashMap<>();
+	private static IdMap<Site> sites = new IdMap<>();
 	@Xml(value = "artifacts", element = "artifact", elementClass = Artifact.class)
-	private static Map<Integer, Artifact> artifacts = new LinkedHashMap<>();
+	private static IdMap<Artifact> artifacts = new IdMap<>();
 	@Xml(value = "historical_figures", element = "historical_figure", elementClass = HistoricalFigure.class)
-	private static Map<Integer, HistoricalFigure> historicalFigures = new LinkedHashMap<>();
+	private static IdMap<HistoricalFigure> historicalFigures = new IdMap<>();
 	private static Map<String, HistoricalFigure> historicalFigureNames = new HashMap<>();
 	@Xml(value = "identities", element = "identity", elementClass = Identity.class)
-	private static Map<Integer, Identity> identities = new LinkedHashMap<>();
+	private static IdMap<Identity> identities = new IdMap<>();
 	@Xml(value = "entity_populations", element = "entity_population", elementClass = EntityPopulation.class)
-	private static Map<Integer, EntityPopulation> entityPopulations = new LinkedHashMap<>();
+	private static IdMap<EntityPopulation> entityPopulations = new IdMap<>();
 	@Xml(value = "entities", element = "entity", elementClass = Entity.class)
-	private static Map<Integer, Entity> entities = new LinkedHashMap<>();
+	private static IdMap<Entity> entities = new IdMap<>();
 	@Xml(value = "historical_events", element = "historical_event", elementClass = Event.class)
-	private static Map<Integer, Event> historicalEventsMap = new LinkedHashMap<>();
+	private static IdMap<Event> historicalEventsMap = new IdMap<>();
 	@Xml(value = "historical_event_collections", element = "historical_event_collection", elementClass = EventCollection.class)
-	private static Map<Integer, EventCollection> historicalEventCollectionsMap = new LinkedHashMap<>();
+	private static IdMap<EventCollection> historicalEventCollectionsMap = new IdMap<>();
+	private static EventIndex eventIndex = new EventIndex();
+	private static EventColumns eventColumns = new EventColumns();
+	private static SearchIndex searchIndex = new SearchIndex();
+	private static HistoricalFigureIndex historicalFigureIndex = new HistoricalFigureIndex();
+	private static FamilyGraph familyGraph = new FamilyGraph();
 	@Xml(value = "historical_eras", element = "historical_era", elementClass = HistoricalEra.class)
 	private static List<HistoricalEra> historicalEras = new ArrayList<>();
 
 	private static List<Population> populations = new ArrayList<>();
 
 	@Xml(value = "landmasses", element = "landmass", elementClass = Landmass.class)
-	private static Map<Integer, Landmass> landmasses = new LinkedHashMap<>();
+	private static IdMap<Landmass> landmasses = new IdMap<>();
 	@Xml(value = "mountain_peaks", element = "mountain_peak", elementClass = MountainPeak.class)
-	private static Map<Integer, MountainPeak> mountainPeaks = new LinkedHashMap<>();
+	private static IdMap<MountainPeak> mountainPeaks = new IdMap<>();
 	@Xml(value = "poetic_forms", element = "poetic_form", elementClass = PoeticForm.class)
-	private static Map<Integer, PoeticForm> poeticFormsMap = new HashMap<>();
+	private static IdMap<PoeticForm> poeticFormsMap = new IdMap<>();
 	@Xml(value = "musical_forms", element = "musical_form", elementClass = MusicalForm.class)
-	private static Map<Integer, MusicalForm> musicalFormsMap = new HashMap<>();
+	private static IdMap<MusicalForm> musicalFormsMap = new IdMap<>();
 	@Xml(value = "dance_forms", element = "dance_form", elementClass = DanceForm.class)
-	private static Map<Integer, DanceForm> danceFormsMap = new HashMap<>();
+	private static IdMap<DanceForm> danceFormsMap = new IdMap<>();
 	@Xml(value = "written_contents", element = "written_content", elementClass = WrittenContent.class)
-	private static Map<Integer, WrittenContent> writtenContentsMap = new HashMap<>();
+	private static IdMap<WrittenContent> writtenContentsMap = new IdMap<>();
 
 	private static File mapFile;
 	private static int mapWidth;
@@ -133,6 +142,7 @@ public class World {
 
 	public static void setState(WorldState state) {
 		World.state = state;
+		PageCache.clear();
 	}
 
 	public static String getLoadingState() {
@@ -304,9 +314,20 @@ public class World {
 		return historicalEventsMap.get(id);
 	}
 
+	public static List<Event> getRelatedEvents(AbstractObject obj) {
+		return eventIndex.getEvents(obj);
+	}
+
+	public static EventIndex getEventIndex() {
+		return eventIndex;
+	}
+
+	public static EventColumns getEventColumns() {
+		return eventColumns;
+	}
+
 	public static List<String> getEventTypes() {
-		return World.getHistoricalEvents().stream().map(Event::getType).distinct().sorted()
-				.collect(Collectors.toList());
+		return eventColumns.getTypes();
 	}
 
 	public static Collection<EventCollection> getHistoricalEventCollections() {
@@ -387,6 +408,8 @@ public class World {
 			getHistoricalEventCollections().forEach(EventCollection::process);
 			getHistoricalEvents().forEach(Event::process);
 			getEntities().forEach(Entity::process);
+			eventIndex = EventIndex.build(historicalEventsMap.values());
+			eventColumns = EventColumns.build(historicalEventsMap.values());
 		} catch (Exception e) {
 			LOG.error("error processing world", e);
 		}
@@ -399,6 +422,35 @@ public class World {
 		}
 	}
 
+	public static void indexSearch() {
+		SearchIndex.Builder search = new SearchIndex.Builder();
+		getEntities().forEach(e -> search.add(e, e.getName()));
+		getSites().forEach(e -> search.add(e, e.getName()));
+		getStructures().forEach(e -> search.add(e, e.getName()));
+		getHistoricalFigures().forEach(e -> search.add(e, e.getName()));
+		getIdentities().forEach(e -> search.add(e, e.getName()));
+		getRegions().forEach(e -> search.add(e, e.getName()));
+		getArtifacts().forEach(e -> search.add(e, e.getName()));
+		getWorldConstructions().forEach(e -> search.add(e, e.getName()));
+		searchIndex = search.build();
+	}
+
+	public static SearchIndex getSearchIndex() {
+		return searchIndex;
+	}
+
+	public static HistoricalFigureIndex getHistoricalFigureIndex() {
+		return historicalFigureIndex;
+	}
+
+	public static void linkFamilies() {
+		familyGraph = new FamilyGraph(getHistoricalFigures());
+	}
+
+	public static FamilyGraph getFamilyGraph() {
+		return familyGraph;
+	}
+
 	public static File getMapFile() {
 		return mapFile;
 	}
@@ -472,34 +524,24 @@ public class World {
 					LOG.info(config);
 
 					World.setState(WorldState.LOADING);
-					World.setLoadingState("loading legends.xml");
-					LegendsReader.read(config.getLegendsPath(), Charset.forName("UTF-8"));
+					World.setLoadingState("loading snapshot");
+					if (!SnapshotReader.read(config)) {
+						loadSources(config);
 
-					if (config.plusAvailable()) {
-						World.setLoadingState("loading legends_plus.xml");
-						World.setPlusMode(true);
-						LegendsReader.read(config.getLegendsPlusPath(), Charset.forName("UTF-8"));
+						World.setLoadingState("writing snapshot");
+						SnapshotWriter.write(config);
 					}
 
-					indexNames();
-
-					printUnknownElements();
-
-					World.setLoadingState("loading world gen params: " + config.getWorldGenPath());
-					WorldGenReader.read(config.getWorldGenPath());
-
-					World.setLoadingState("loading world history");
-					HistoryReader.read(config.getHistoryPath());
-
-					World.setLoadingState("loading sites and props");
-					SiteReader.read(config.getSitesAndPropsPath());
+					World.setLoadingState("indexing names");
+					World.indexSearch();
+					World.setLoadingState("indexing historical figures");
+					historicalFigureIndex = new HistoricalFigureIndex(getHistoricalFigures());
+					World.setLoadingState("linking families");
+					World.linkFamilies();
 
 					World.setLoadingState("loading map image");
 					World.setImage(config.getImagePath());
 
-					World.setLoadingState("processing " + currentPath);
-					World.process();
-
 					LOG.info("world ready");
 					World.setState(WorldState.READY);
 				} catch (Exception e) {
@@ -510,6 +552,33 @@ public class World {
 		}.start();
 	}
 
+	public static void loadSources(WorldConfig config) throws Exception {
+		World.setLoadingState("loading legends.xml");
+		LegendsReader.read(config.getLegendsPath(), Charset.forName("UTF-8"));
+
+		if (config.plusAvailable()) {
+			World.setLoadingState("loading legends_plus.xml");
+			World.setPlusMode(true);
+			LegendsReader.read(config.getLegendsPlusPath(), Charset.forName("UTF-8"));
+		}
+
+		indexNames();
+
+		printUnknownElements();
+
+		World.setLoadingState("loading world gen params: " + config.getWorldGenPath());
+		WorldGenReader.read(config.getWorldGenPath());
+
+		World.setLoadingState("loading world history");
+		HistoryReader.read(config.getHistoryPath());
+
+		World.setLoadingState("loading sites and props");
+		SiteReader.read(config.getSitesAndPropsPath());
+
+		World.setLoadingState("processing " + config.getLegendsPath());
+		World.process();
+	}
+
 	private static void printUnknownElements() {
 		// HistoricalEventContentHandler.printUnknownTypes();
 
@@ -13,7 +13,7 @@ import legends.xml.converter.CoordListConverter;
 public class WorldConstruction extends AbstractObject {
 	@Xml("name")
 	private String name;
-	@Xml("type")
+	@Xml(value = "type", dictionary = true)
 	private String type;
 	@Xml("coords")
 	@XmlConverter(CoordListConverter.class)
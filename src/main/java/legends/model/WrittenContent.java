@@ -18,7 +18,7 @@ public class WrittenContent extends AbstractObject {
 	private int pageStart = -1;
 	@Xml("page_end")
 	private int pageEnd = -1;
-	@Xml("type,form")
+	@Xml(value = "type,form", dictionary = true)
 	private String type;
 	@Xml(value = "reference", elementClass = Reference.class, multiple = true)
 	private List<Reference> references = new ArrayList<>();
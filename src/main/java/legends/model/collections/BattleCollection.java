@@ -14,6 +14,7 @@ import legends.xml.annotation.XmlSubtype;
 public class BattleCollection extends EventCollection {
 	@Xml("name")
 	private String name;
+	private transient String displayName;
 	@Xml("war_eventcol")
 	private int warEventCol = -1;
 	@XmlComponent
@@ -34,11 +35,18 @@ public class BattleCollection extends EventCollection {
 	private String outcome;
 
 	public String getName() {
-		return EventHelper.name(name);
+		if (displayName == null)
+			displayName = EventHelper.name(name);
+		return displayName;
+	}
+
+	public String getRawName() {
+		return name;
 	}
 
 	public void setName(String name) {
 		this.name = name;
+		displayName = null;
 	}
 
 	public int getWarEventCol() {
@@ -3,7 +3,7 @@ package legends.model.collections;
 import legends.xml.annotation.Xml;
 
 public class BattleCollectionSquad {
-	@Xml("race")
+	@Xml(value = "race", dictionary = true)
 	private String race;
 	@Xml("entity_pop")
 	private int entityPop = -1;
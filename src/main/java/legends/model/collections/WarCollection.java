@@ -11,17 +11,25 @@ import legends.xml.annotation.XmlSubtype;
 public class WarCollection extends EventCollection {
 	@Xml("name")
 	private String name;
+	private transient String displayName;
 	@Xml("aggressor_ent_id")
 	private int aggressorEntId = -1;
 	@Xml("defender_ent_id")
 	private int defenderEntId = -1;
 
 	public String getName() {
-		return EventHelper.name(name);
+		if (displayName == null)
+			displayName = EventHelper.name(name);
+		return displayName;
+	}
+
+	public String getRawName() {
+		return name;
 	}
 
 	public void setName(String name) {
 		this.name = name;
+		displayName = null;
 	}
 
 	public int getAggressorEntId() {
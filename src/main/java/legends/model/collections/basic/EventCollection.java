@@ -24,7 +24,7 @@ public class EventCollection extends AbstractObject {
 	protected int endYear;
 	@Xml("end_seconds72")
 	protected int endSeconds;
-	@Xml("type")
+	@Xml(value = "type", dictionary = true)
 	protected String type;
 	@Xml(value = "event", elementClass = Integer.class, multiple = true)
 	protected List<Integer> events = new ArrayList<>();
@@ -167,6 +167,10 @@ public class EventCollection extends AbstractObject {
 	}
 
 	public String getUrl() {
+		return getUrl(id);
+	}
+
+	public static String getUrl(int id) {
 		return Application.getSubUri() + "/collection/" + id;
 	}
 
@@ -19,9 +19,9 @@ public class CreatureDevouredEvent extends Event implements LocalEvent, HfRelate
 	@Xml("eater")
 	private int calcSlayerHfId = -1;
 
-	@Xml("race")
+	@Xml(value = "race", dictionary = true)
 	private String race;
-	@Xml("caste")
+	@Xml(value = "caste", dictionary = true)
 	private String caste;
 	@Xml("entity")
 	private int entity = -1;
@@ -1,7 +1,7 @@
 package legends.model.events;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import legends.model.World;
 import legends.model.events.basic.ArtifactRelatedEvent;
@@ -37,7 +37,7 @@ public class HfDiedEvent extends HfEvent implements LocalEvent, ArtifactRelatedE
 	@XmlComponent
 	private EventLocation location = new EventLocation("");
 
-	private static Set<String> causes = new HashSet<>();
+	private static Set<String> causes = ConcurrentHashMap.newKeySet();
 
 	@Xml("victim_hf")
 	public void setHfId(int id) {
@@ -14,7 +14,7 @@ import legends.xml.annotation.XmlSubtype;
 
 @XmlSubtype("hf simple battle event")
 public class HfSimpleBattleEvent extends Event implements LocalEvent, HfRelatedEvent {
-	@Xml("subtype")
+	@Xml(value = "subtype", dictionary = true)
 	private String subtype;
 	@Xml("group_1_hfid")
 	private int group1HfId;
@@ -7,6 +7,9 @@ public class Coords {
 	private int x;
 	private int y;
 
+	Coords() {
+	}
+
 	public Coords(String value) {
 		String[] coords = value.split(",");
 		x = Integer.parseInt(coords[0]);
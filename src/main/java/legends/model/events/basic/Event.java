@@ -19,7 +19,7 @@ public class Event extends AbstractObject {
 	protected int year;
 	@Xml("seconds72")
 	protected int seconds;
-	@Xml("type")
+	@Xml(value = "type", dictionary = true)
 	@XmlIgnorePlus
 	protected String type;
 
@@ -74,6 +74,10 @@ public class Event extends AbstractObject {
 	}
 
 	public String getDate() {
+		return getDate(year, seconds);
+	}
+
+	public static String getDate(int year, int seconds) {
 		if (year != -1)
 			if (seconds != -1)
 				return EventHelper.getSeason(seconds) + " of " + year;
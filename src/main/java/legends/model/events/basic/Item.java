@@ -5,11 +5,11 @@ import legends.xml.annotation.Xml;
 public class Item {
 	@Xml("item,item_id")
 	private int item = -1;
-	@Xml("mat,item_mat")
+	@Xml(value = "mat,item_mat", dictionary = true)
 	private String mat;
-	@Xml("item_type")
+	@Xml(value = "item_type", dictionary = true)
 	private String itemType;
-	@Xml("item_subtype")
+	@Xml(value = "item_subtype", dictionary = true)
 	private String itemSubType;
 	@Xml("mattype,mat_type,item_mat_type")
 	private int matType = -1;
@@ -13,12 +13,12 @@ import legends.web.basic.RequestMapping;
 @Controller(state = WorldState.ANY)
 public class ApplicationController {
 
-	@RequestMapping("/exit")
+	@RequestMapping(value = "/exit", cache = false)
 	public Template exit(VelocityContext context) {
 		return Templates.get("exit.vm");
 	}
 
-	@RequestMapping("/loading.json")
+	@RequestMapping(value = "/loading.json", cache = false)
 	public Template currentState(VelocityContext context) {
 		context.put("ready", World.getState() == WorldState.READY);
 		context.put("message", StringEscapeUtils.escapeJavaScript(World.getLoadingState()));
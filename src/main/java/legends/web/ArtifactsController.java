@@ -1,13 +1,11 @@
 package legends.web;
 
-import java.util.stream.Collectors;
-
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 
-import legends.helper.EventHelper;
 import legends.helper.Templates;
 import legends.model.Artifact;
+import legends.model.EventList;
 import legends.model.World;
 import legends.web.basic.Controller;
 import legends.web.basic.RequestMapping;
@@ -28,8 +26,7 @@ public class ArtifactsController {
 		Artifact a = World.getArtifact(id);
 		
 		context.put("artifact", a);
-		context.put("events", World.getHistoricalEvents().stream().filter(e -> EventHelper.related(a, e))
-				.collect(Collectors.toList()));
+		context.put("events", EventList.of("/artifact/" + id, a));
 		return Templates.get("artifact.vm");
 	}
 }
\ No newline at end of file
@@ -7,9 +7,9 @@ import java.util.stream.Collectors;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 
-import legends.helper.EventHelper;
 import legends.helper.Templates;
 import legends.model.Entity;
+import legends.model.EventList;
 import legends.model.World;
 import legends.web.basic.Controller;
 import legends.web.basic.RequestMapping;
@@ -47,13 +47,12 @@ public class EntitiesController {
 		Entity en = World.getEntity(id);
 
 		context.put("entity", en);
-		context.put("events", World.getHistoricalEvents().stream().filter(e -> EventHelper.related(en, e))
-				.collect(Collectors.toList()));
+		context.put("events", EventList.of("/entity/" + id, en));
 
 		return Templates.get("entity.vm");
 	}
 	
-	@RequestMapping("/set/racecolor")
+	@RequestMapping(value = "/set/racecolor", cache = false)
 	public Template setRaceColor(VelocityContext context) {
 		Entity.setRaceColor(context.get("race").toString(), context.get("color").toString());
 		
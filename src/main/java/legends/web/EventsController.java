@@ -0,0 +1,94 @@
+package legends.web;
+
+import java.util.Arrays;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+
+import legends.helper.Parameters;
+import legends.helper.Templates;
+import legends.model.EventList;
+import legends.model.World;
+import legends.web.basic.Controller;
+import legends.web.basic.RequestMapping;
+
+/**
+ * Further events of the event lists on the detail pages, as JSON.
+ *
+ * Takes offset and limit and optionally the comma separated types to
+ * include.
+ */
+@Controller
+public class EventsController {
+
+	@RequestMapping("/events/entity/{id}")
+	public Template entity(VelocityContext context, int id) {
+		return json(context, EventList.of("/entity/" + id, World.getEntity(id)));
+	}
+
+	@RequestMapping("/events/hf/{id}")
+	public Template hf(VelocityContext context, int id) {
+		return json(context, EventList.of("/hf/" + id, World.getHistoricalFigure(id)));
+	}
+
+	@RequestMapping("/events/site/{id}")
+	public Template site(VelocityContext context, int id) {
+		return json(context, EventList.of("/site/" + id, World.getSite(id)));
+	}
+
+	@RequestMapping("/events/structure/{id}")
+	public Template structure(VelocityContext context, int id) {
+		return json(context, EventList.of("/structure/" + id, World.getStructure(id % 100, id / 100)));
+	}
+
+	@RequestMapping("/events/region/{id}")
+	public Template region(VelocityContext context, int id) {
+		return json(context, EventList.of("/region/" + id, World.getRegion(id)));
+	}
+
+	@RequestMapping("/events/mountain/{id}")
+	public Template mountain(VelocityContext context, int id) {
+		return json(context, RegionsController.mountainEvents(id, World.getMountainPeak(id)));
+	}
+
+	@RequestMapping("/events/artifact/{id}")
+	public Template artifact(VelocityContext context, int id) {
+		return json(context, EventList.of("/artifact/" + id, World.getArtifact(id)));
+	}
+
+	@RequestMapping("/events/worldconstruction/{id}")
+	public Template worldConstruction(VelocityContext context, int id) {
+		return json(context, EventList.of("/worldconstruction/" + id, World.getWorldConstruction(id)));
+	}
+
+	@RequestMapping("/events/id/{id}")
+	public Template identity(VelocityContext context, int id) {
+		return json(context, EventList.of("/id/" + id, World.getIdentity(id)));
+	}
+
+	@RequestMapping("/events/year/{id}")
+	public Template year(VelocityContext context, int id) {
+		context.put("sentences", true);
+		return json(context, YearsController.events(id));
+	}
+
+	@RequestMapping("/events/type/{name}")
+	public Template type(VelocityContext context, String name) {
+		return json(context, YearsController.events(name));
+	}
+
+	private Template json(VelocityContext context, EventList events) {
+		if (context.containsKey("types"))
+			events = events.withTypes(Arrays.asList(context.get("types").toString().split(",")));
+		int offset = Parameters.getInt(context, "offset", 0);
+		int limit = Math.min(Parameters.getInt(context, "limit", EventList.PAGE_SIZE), EventList.MAX_PAGE_SIZE);
+
+		context.put("total", events.size());
+		context.put("offset", offset);
+		context.put("page", events.getEvents(offset, limit));
+		context.put("contentType", "application/json");
+
+		return Templates.get("eventsjson.vm");
+	}
+
+}
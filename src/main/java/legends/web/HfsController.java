@@ -1,21 +1,29 @@
 package legends.web;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 
-import legends.helper.EventHelper;
+import legends.helper.Parameters;
 import legends.helper.Templates;
+import legends.model.EventList;
+import legends.model.FamilyGraph;
 import legends.model.HistoricalFigure;
+import legends.model.HistoricalFigureIndex;
+import legends.model.HistoricalFigureIndex.Flag;
 import legends.model.World;
 import legends.model.events.HfDoesInteractionEvent;
 import legends.model.events.basic.Filters;
@@ -24,110 +32,130 @@ import legends.web.basic.RequestMapping;
 
 @Controller
 public class HfsController {
+	private static final int PAGE_SIZE = 100;
+	private static final int FAMILY_DEPTH = 3;
+	private static final int MAX_FAMILY_DEPTH = 10;
+	private static final int FAMILY_CACHE_SIZE = 256;
+
+	@SuppressWarnings("serial")
+	private final Map<String, Family> families = new LinkedHashMap<String, Family>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Family> eldest) {
+			return size() > FAMILY_CACHE_SIZE;
+		}
+	};
+	private FamilyGraph familyGraph;
 
 	@RequestMapping("/hfs")
 	public Template hfs(VelocityContext context) {
-		boolean leader = context.containsKey("leader");
-		boolean deity = context.containsKey("deity");
-		boolean force = context.containsKey("force");
-		boolean vampire = context.containsKey("vampire");
-		boolean werebeast = context.containsKey("werebeast");
-		boolean necromancer = context.containsKey("necromancer");
-		boolean alive = context.containsKey("alive");
-		boolean ghost = context.containsKey("ghost");
-		boolean adventurer = context.containsKey("adventurer");
-
-		context.put("races", new TreeSet<String>(World.getHistoricalFigures().stream()
-				.map(hf -> hf.getRace() != null ? hf.getRace() : "UNKNOWN").collect(Collectors.toList())));
+		HistoricalFigureIndex index = World.getHistoricalFigureIndex();
 
+		Set<Flag> flags = EnumSet.noneOf(Flag.class);
+		StringBuilder filter = new StringBuilder();
+		for (Flag flag : Flag.values())
+			if (context.containsKey(flag.getName())) {
+				flags.add(flag);
+				filter.append(flag.getName()).append("=1&");
+			}
 		String race = (String) context.get("race");
 		String sort = (String) context.get("sort");
-
-		Stream<HistoricalFigure> historicalFigures = World.getHistoricalFigures().stream();
-		if (leader || deity || force || vampire || werebeast || necromancer || alive || ghost || adventurer
-				|| (race != null && !race.equals(""))) {
-			historicalFigures = historicalFigures.filter(hf -> {
-				if (leader && !hf.isLeader())
-					return false;
-				if (deity && !hf.isDeity())
-					return false;
-				if (force && !hf.isForce())
-					return false;
-				if (vampire && !hf.isVampire())
-					return false;
-				if (werebeast && !hf.isWerebeast())
-					return false;
-				if (necromancer && !hf.isNecromancer())
-					return false;
-				if (alive && hf.getDeathYear() != -1)
-					return false;
-				if (ghost && !hf.isGhost())
-					return false;
-				if (adventurer && !hf.isAdventurer())
-					return false;
-
-				if (race != null && !race.equals("")) {
-					if (hf.getRace() == null) {
-						if (!race.equals("UNKNOWN")) {
-							return false;
-						}
-					} else if (!hf.getRace().equals(race)) {
-						return false;
-					}
-				}
-				return true;
-			});
-		}
-
-		if (sort != null) {
-			switch (sort) {
-			case "name":
-				historicalFigures = historicalFigures
-						.sorted((h1, h2) -> h1.getName().compareToIgnoreCase(h2.getName()));
-				break;
-			case "race":
-				historicalFigures = historicalFigures
-						.sorted((h1, h2) -> h1.getRace().compareToIgnoreCase(h2.getRace()));
-				break;
-			case "birth":
-				historicalFigures = historicalFigures
-						.sorted((h1, h2) -> Integer.compare(h1.getBirthYear(), h2.getBirthYear()));
-				break;
-			case "death":
-				historicalFigures = historicalFigures
-						.sorted((h1, h2) -> Integer.compare(h1.getDeathYear(), h2.getDeathYear()));
-				break;
-			case "kills":
-				historicalFigures = historicalFigures.sorted((h1, h2) -> -Integer.compare(h1.getKills(), h2.getKills()));
-				break;
-			default:
-				break;
-			}
-		}
-
-		context.put("elements", historicalFigures.collect(Collectors.toList()));
+		if (race != null && !race.isEmpty())
+			filter.append("race=").append(encode(race)).append("&");
+		if (sort != null && !sort.isEmpty())
+			filter.append("sort=").append(encode(sort)).append("&");
+
+		HistoricalFigureIndex.Query query = index.query(flags, race);
+		int pages = Math.max(1, (query.getCount() + PAGE_SIZE - 1) / PAGE_SIZE);
+		int page = Math.max(1, Math.min(pages, Parameters.getInt(context, "page", 1)));
+
+		context.put("races", index.getRaces());
+		context.put("raceCounts", query.getRaceCounts());
+		context.put("flagCounts", query.getFlagCounts());
+		context.put("count", query.getCount());
+		context.put("elements", query.getPage(HistoricalFigureIndex.Sort.of(sort), (page - 1) * PAGE_SIZE, PAGE_SIZE));
+		context.put("page", page);
+		context.put("pages", pages);
+		context.put("firstPage", Math.max(1, page - 4));
+		context.put("lastPage", Math.min(pages, page + 4));
+		context.put("offset", (page - 1) * PAGE_SIZE);
+		context.put("filter", filter.toString());
 
 		return Templates.get("hfs.vm");
 	}
 
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			return value;
+		}
+	}
+
 	@RequestMapping("/hf/{id}")
 	public Template hf(VelocityContext context, int id) {
 		HistoricalFigure hf = World.getHistoricalFigure(id);
 		HistoricalFigure.setContext(hf);
 
 		context.put("hf", hf);
-		context.put("family", new Family(hf, false));
+		context.put("family", family(hf, false, FAMILY_DEPTH));
 
 		if (hf.isWerebeast()) {
-			context.put("curse", new Family(hf, true));
+			context.put("curse", family(hf, true, FAMILY_DEPTH));
 		}
 
-		context.put("events", World.getHistoricalEvents().stream().filter(e -> EventHelper.related(hf, e))
-				.collect(Collectors.toList()));
+		context.put("events", EventList.of("/hf/" + id, hf));
 
 		return Templates.get("hf.vm");
 	}
 
+	/**
+	 * The family tree of a figure as JSON, to expand a branch of the tree
+	 * around one of its members.
+	 */
+	@RequestMapping("/family/hf/{id}")
+	public Template familyJSON(VelocityContext context, int id) {
+		HistoricalFigure hf = World.getHistoricalFigure(id);
+		int depth = Math.max(1, Math.min(Parameters.getInt(context, "depth", FAMILY_DEPTH), MAX_FAMILY_DEPTH));
+
+		context.put("hf", hf);
+		context.put("depth", depth);
+		context.put("family", family(hf, false, depth));
+		context.put("contentType", "application/json");
+
+		return Templates.get("familyjson.vm");
+	}
+
+	/**
+	 * Family trees are laid out once per figure and kept until another world
+	 * is loaded.
+	 */
+	private Family family(HistoricalFigure hf, boolean curse, int depth) {
+		String key = (curse ? "curse/" : "family/") + hf.getId() + "/" + depth;
+		FamilyGraph graph = World.getFamilyGraph();
+		synchronized (families) {
+			if (graph != familyGraph) {
+				families.clear();
+				familyGraph = graph;
+			}
+			Family family = families.get(key);
+			if (family != null)
+				return family;
+		}
+		Family family = new Family(hf, curse, depth);
+		synchronized (families) {
+			if (graph == familyGraph)
+				families.put(key, family);
+		}
+		return family;
+	}
+
+	private static String greats(int n) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < n; i++)
+			sb.append("great-");
+		return sb.toString();
+	}
+
 	public class FamilyMember {
 		HistoricalFigure hf;
 		int generation;
@@ -135,6 +163,10 @@ public class HfsController {
 		float x;
 		float offset = 0;
 		boolean strongLink = false;
+		boolean expandable = false;
+		float widthDown = -1;
+		float widthUp = -1;
+		List<FamilyMember> sortedChildren;
 
 		FamilyMember father, mother, spouse;
 		Set<FamilyMember> children = new HashSet<>();
@@ -161,8 +193,23 @@ public class HfsController {
 			return x;
 		}
 
+		/**
+		 * @return whether the family has more relatives beyond this member than
+		 *         the depth of the tree shows
+		 */
+		public boolean isExpandable() {
+			return expandable;
+		}
+
+		/**
+		 * Sorted once the tree is complete, like the widths.
+		 */
 		Stream<FamilyMember> children() {
-			return children.stream().sorted((m1, m2) -> (m1.hf.getBirthYear() < m2.hf.getBirthYear() ? -1 : 1));
+			if (sortedChildren == null)
+				sortedChildren = children.stream()
+						.sorted((m1, m2) -> (m1.hf.getBirthYear() < m2.hf.getBirthYear() ? -1 : 1))
+						.collect(Collectors.toList());
+			return sortedChildren.stream();
 		}
 
 		public float getWidth() {
@@ -170,20 +217,24 @@ public class HfsController {
 			if (father != null)
 				widthDown = (float) father.children().mapToDouble(FamilyMember::getWidthDown).sum();
 			else if (mother != null)
-				widthDown = (float) father.children().mapToDouble(FamilyMember::getWidthDown).sum();
+				widthDown = (float) mother.children().mapToDouble(FamilyMember::getWidthDown).sum();
 			else
 				widthDown = getWidthDown();
 			return Math.max(widthDown, getWidthUp());
 		}
 
 		public float getWidthDown() {
-			return Math.max(spouse != null ? 2 : 1,
-					(float) children.stream().mapToDouble(FamilyMember::getWidthDown).sum());
-
+			if (widthDown < 0)
+				widthDown = Math.max(spouse != null ? 2 : 1,
+						(float) children.stream().mapToDouble(FamilyMember::getWidthDown).sum());
+			return widthDown;
 		}
 
 		public float getWidthUp() {
-			return Math.max(1, (father != null ? father.getWidthUp() : 0) + (mother != null ? mother.getWidthUp() : 0));
+			if (widthUp < 0)
+				widthUp = Math.max(1,
+						(father != null ? father.getWidthUp() : 0) + (mother != null ? mother.getWidthUp() : 0));
+			return widthUp;
 		}
 
 		public void layout() {
@@ -343,6 +394,18 @@ public class HfsController {
 				else
 					return "great-grandson";
 			}
+			if (generation == -distance && distance > 3) {
+				if (hf.isFemale())
+					return greats(distance - 2) + "grandmother";
+				else
+					return greats(distance - 2) + "grandfather";
+			}
+			if (generation == distance && distance > 3) {
+				if (hf.isFemale())
+					return greats(distance - 2) + "granddaughter";
+				else
+					return greats(distance - 2) + "grandson";
+			}
 
 			return "";
 		}
@@ -416,20 +479,35 @@ public class HfsController {
 
 	public class Family {
 		private boolean curse;
+		private int depth;
+		private FamilyGraph graph = World.getFamilyGraph();
 		private List<FamilyMember> members = new ArrayList<>();
+		private Map<Integer, FamilyMember> membersById = new HashMap<>();
 		private Set<FamilyLink> links = new LinkedHashSet<>();
 		private FamilyMember root;
 		private String interaction;
 
 		public Family(HistoricalFigure hf, boolean curse) {
+			this(hf, curse, FAMILY_DEPTH);
+		}
+
+		/**
+		 * @param depth
+		 *            the generations of ancestors and descendants shown
+		 */
+		public Family(HistoricalFigure hf, boolean curse, int depth) {
 			this.curse = curse;
+			this.depth = depth;
 
 			FamilyMember m = new FamilyMember(hf, 0, 0);
 			root = m;
 
 			if (!curse) {
-				members.add(m);
+				addMember(m);
 				analyzeFamily();
+				for (FamilyMember member : members)
+					member.expandable = (member.generation == -depth && graph.hasParents(member.hf))
+							|| (member.generation == depth && graph.hasChildren(member.hf));
 			} else {
 				analyzeCurse();
 			}
@@ -438,24 +516,28 @@ public class HfsController {
 		}
 
 		public void addMember(FamilyMember m) {
-			if (members.contains(m))
+			if (membersById.putIfAbsent(m.hf.getId(), m) != null)
 				return;
 			members.add(m);
 		}
 
 		public void addMember(FamilyMember m, FamilyMember after) {
-			if (members.contains(m))
+			if (membersById.putIfAbsent(m.hf.getId(), m) != null)
 				return;
 			members.add(members.indexOf(after), m);
 		}
 
+		private boolean isShown(FamilyMember m) {
+			return !m.getRelation().equals("") && Math.abs(m.generation) <= depth;
+		}
+
 		private void analyzeParents(FamilyMember m) {
-			HistoricalFigure father = m.hf.getHfLink("father");
+			HistoricalFigure father = graph.getFather(m.hf);
 			FamilyMember m1 = null, m2 = null;
 			if (father.getId() != -1) {
 				try {
 					m1 = get(father.getId(), new FamilyMember(father, m.generation - 1, m.distance + 1));
-					if (!m1.getRelation().equals("")) {
+					if (isShown(m1)) {
 						m.father = m1;
 						analyzeParents(m1);
 						addMember(m1);
@@ -468,11 +550,11 @@ public class HfsController {
 				} catch (MemeberExistsException e) {
 				}
 			}
-			HistoricalFigure mother = m.hf.getHfLink("mother");
+			HistoricalFigure mother = graph.getMother(m.hf);
 			if (mother.getId() != -1) {
 				try {
 					m2 = get(mother.getId(), new FamilyMember(mother, m.generation - 1, m.distance + 1));
-					if (!m2.getRelation().equals("")) {
+					if (isShown(m2)) {
 						m.mother = m2;
 						analyzeParents(m2);
 						addMember(m2);
@@ -499,12 +581,12 @@ public class HfsController {
 		}
 
 		private void analyzeSpouse(FamilyMember m) {
-			HistoricalFigure spouse = m.hf.getHfLink("spouse");
+			HistoricalFigure spouse = graph.getSpouse(m.hf);
 			if (spouse.getId() != -1) {
 				FamilyMember m2;
 				try {
 					m2 = get(spouse.getId(), new FamilyMember(spouse, m.generation, m.distance + 1));
-					if (!m2.getRelation().equals("")) {
+					if (isShown(m2)) {
 						m.spouse = m2;
 						m2.spouse = m;
 						links.add(new FamilyLink("spouse", m, m2));
@@ -517,12 +599,12 @@ public class HfsController {
 		}
 
 		private void analyzeChildren(FamilyMember m) {
-			List<HistoricalFigure> children = m.hf.getHfLinks("child");
+			List<HistoricalFigure> children = graph.getChildren(m.hf);
 			for (HistoricalFigure c : children) {
 				FamilyMember m3;
 				try {
 					m3 = get(c.getId(), new FamilyMember(c, m.generation + 1, m.distance + 1));
-					if (!m3.getRelation().equals("")) {
+					if (isShown(m3)) {
 						m.children.add(m3);
 						links.add(new FamilyLink("child", m, m3));
 						m3.strongLink = true;
@@ -563,9 +645,9 @@ public class HfsController {
 		}
 
 		private void analyzeBites(FamilyMember m) {
-			if (members.contains(m))
+			if (membersById.containsKey(m.hf.getId()))
 				return;
-			members.add(m);
+			addMember(m);
 
 			World.getHistoricalEvents().stream()
 					.collect(Filters.filterEvent(HfDoesInteractionEvent.class,
@@ -583,7 +665,12 @@ public class HfsController {
 		public class MemeberExistsException extends Exception {
 			FamilyMember m, m2;
 
+			/**
+			 * Thrown for every relative reached twice, so without a stack
+			 * trace.
+			 */
 			public MemeberExistsException(FamilyMember m, FamilyMember m2) {
+				super(null, null, false, false);
 				this.m = m;
 				this.m2 = m2;
 			}
@@ -605,15 +692,14 @@ public class HfsController {
 		}
 
 		private FamilyMember get(int id, FamilyMember defaultMember) throws MemeberExistsException {
-			for (FamilyMember m : members) {
-				if (m != null && m.getHf().getId() == id)
-					throw new MemeberExistsException(m, defaultMember);
-			}
+			FamilyMember m = membersById.get(id);
+			if (m != null)
+				throw new MemeberExistsException(m, defaultMember);
 			return defaultMember;
 		}
 
 		public List<FamilyMember> getChildren(FamilyMember m) {
-			return m.children.stream().filter(members::contains).collect(Collectors.toList());
+			return m.children.stream().filter(c -> membersById.containsKey(c.hf.getId())).collect(Collectors.toList());
 		}
 
 		public List<Integer> getGenerations() {
@@ -1,12 +1,10 @@
 package legends.web;
 
-import java.util.stream.Collectors;
-
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 
-import legends.helper.EventHelper;
 import legends.helper.Templates;
+import legends.model.EventList;
 import legends.model.Identity;
 import legends.model.World;
 import legends.web.basic.Controller;
@@ -20,8 +18,7 @@ public class IdentitiesController {
 		Identity i = World.getIdentity(id);
 
 		context.put("identity", i);
-		context.put("events", World.getHistoricalEvents().stream().filter(e -> EventHelper.related(i, e))
-				.collect(Collectors.toList()));
+		context.put("events", EventList.of("/id/" + id, i));
 
 		return Templates.get("identity.vm");
 	}
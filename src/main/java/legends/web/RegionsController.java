@@ -6,18 +6,20 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 
-import legends.helper.EventHelper;
 import legends.helper.Templates;
+import legends.model.EventColumns;
+import legends.model.EventList;
 import legends.model.Landmass;
 import legends.model.MountainPeak;
 import legends.model.Region;
 import legends.model.World;
 import legends.model.events.HfReachSummitEvent;
-import legends.model.events.basic.Filters;
+import legends.model.events.basic.Event;
 import legends.web.basic.Controller;
 import legends.web.basic.RequestMapping;
 
@@ -44,8 +46,7 @@ public class RegionsController {
 		Region r = World.getRegion(id);
 
 		context.put("region", r);
-		context.put("events", World.getHistoricalEvents().stream().filter(e -> EventHelper.related(r, e))
-				.collect(Collectors.toList()));
+		context.put("events", EventList.of("/region/" + id, r));
 
 		return Templates.get("region.vm");
 	}
@@ -62,9 +63,20 @@ public class RegionsController {
 	public Template mountain(VelocityContext context, int id) {
 		MountainPeak m = World.getMountainPeak(id);
 		context.put("mountain", m);
-		context.put("events", World.getHistoricalEvents().stream()
-				.collect(Filters.filterEvent(HfReachSummitEvent.class, e -> e.getLocation().getCoords().equals(m.getCoords()))).collect(Collectors.toList()));
+		context.put("events", mountainEvents(id, m));
 
 		return Templates.get("mountain.vm");
 	}
+
+	static EventList mountainEvents(int id, MountainPeak m) {
+		EventColumns columns = World.getEventColumns();
+		if (m == null)
+			return new EventList("/events/mountain/" + id, new int[0]);
+		int[] rows = IntStream.of(columns.rowsOfType("hf reach summit")).filter(row -> {
+			Event e = columns.getEvent(row);
+			return e instanceof HfReachSummitEvent
+					&& ((HfReachSummitEvent) e).getLocation().getCoords().equals(m.getCoords());
+		}).toArray();
+		return new EventList("/events/mountain/" + id, rows);
+	}
 }
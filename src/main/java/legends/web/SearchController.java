@@ -1,17 +1,22 @@
 package legends.web;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 
+import legends.helper.Parameters;
 import legends.helper.Templates;
+import legends.model.Artifact;
+import legends.model.Entity;
+import legends.model.HistoricalFigure;
+import legends.model.Region;
+import legends.model.SearchIndex;
+import legends.model.Site;
 import legends.model.World;
+import legends.model.basic.AbstractObject;
 import legends.web.basic.Controller;
 import legends.web.basic.RequestMapping;
-import legends.web.util.SearchResult;
 
 @Controller
 public class SearchController {
@@ -23,16 +28,12 @@ public class SearchController {
 
 			context.put("query", query);
 
-			context.put("regions", World.getRegions().stream().filter(e -> e.getName().toLowerCase().contains(query))
-					.collect(Collectors.toList()));
-			context.put("sites", World.getSites().stream().filter(e -> e.getName().toLowerCase().contains(query))
-					.collect(Collectors.toList()));
-			context.put("artifacts", World.getArtifacts().stream()
-					.filter(e -> e.getName().toLowerCase().contains(query)).collect(Collectors.toList()));
-			context.put("entities", World.getEntities().stream().filter(e -> e.getName().toLowerCase().contains(query))
-					.collect(Collectors.toList()));
-			context.put("hfs", World.getHistoricalFigures().stream()
-					.filter(e -> e.getName().toLowerCase().contains(query)).collect(Collectors.toList()));
+			context.put("searchLimit", SearchIndex.MAX_LIMIT);
+			search(context, query, "regions", Region.class);
+			search(context, query, "sites", Site.class);
+			search(context, query, "artifacts", Artifact.class);
+			search(context, query, "entities", Entity.class);
+			search(context, query, "hfs", HistoricalFigure.class);
 
 			return Templates.get("search.vm");
 
@@ -42,31 +43,29 @@ public class SearchController {
 
 	@RequestMapping("/search.json")
 	public Template searchJSON(VelocityContext context) {
-		String query = context.get("query").toString().toLowerCase();
+		String query = context.get("query").toString();
+		int limit = Math.min(Parameters.getInt(context, "limit", SearchIndex.DEFAULT_LIMIT), SearchIndex.MAX_LIMIT);
 
-		List<SearchResult> results = new ArrayList<>();
+		boolean fuzzy = "1".equals(String.valueOf(context.get("fuzzy")));
 
-		World.getEntities().stream().filter(e -> e.getName().toLowerCase().contains(query))
-				.map(e -> new SearchResult(e.getName(), e.getURL())).forEach(results::add);
-		World.getSites().stream().filter(e -> e.getName().toLowerCase().contains(query))
-				.map(e -> new SearchResult(e.getName(), e.getURL())).forEach(results::add);
-		World.getStructures().stream().filter(e -> e.getName().toLowerCase().contains(query))
-				.map(e -> new SearchResult(e.getName(), e.getURL())).forEach(results::add);
-		World.getHistoricalFigures().stream().filter(e -> e.getName().toLowerCase().contains(query))
-				.map(e -> new SearchResult(e.getName(), e.getURL())).forEach(results::add);
-		World.getIdentities().stream().filter(e -> e.getName().toLowerCase().contains(query))
-				.map(e -> new SearchResult(e.getName(), e.getURL())).forEach(results::add);
-		World.getRegions().stream().filter(e -> e.getName().toLowerCase().contains(query))
-				.map(e -> new SearchResult(e.getName(), e.getURL())).forEach(results::add);
-		World.getArtifacts().stream().filter(e -> e.getName().toLowerCase().contains(query))
-				.map(e -> new SearchResult(e.getName(), e.getURL())).forEach(results::add);
-		World.getWorldConstructions().stream().filter(e -> e.getName().toLowerCase().contains(query))
-				.map(e -> new SearchResult(e.getName(), e.getURL())).forEach(results::add);
-
-		context.put("results", results);
+		context.put("results", World.getSearchIndex().search(query, limit, fuzzy));
 		context.put("contentType", "application/json");
 
 		return Templates.get("searchjson.vm");
 	}
 
+	/**
+	 * Puts the best matches of the type as key, and key + "CutOff" if there
+	 * are more than {@link SearchIndex#MAX_LIMIT}.
+	 */
+	private static <T extends AbstractObject> void search(VelocityContext context, String query, String key,
+			Class<T> type) {
+		List<T> results = World.getSearchIndex().search(query, SearchIndex.MAX_LIMIT + 1, type);
+		if (results.size() > SearchIndex.MAX_LIMIT) {
+			results = results.subList(0, SearchIndex.MAX_LIMIT);
+			context.put(key + "CutOff", true);
+		}
+		context.put(key, results);
+	}
+
 }
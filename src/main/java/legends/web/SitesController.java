@@ -8,8 +8,8 @@ import java.util.stream.Collectors;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 
-import legends.helper.EventHelper;
 import legends.helper.Templates;
+import legends.model.EventList;
 import legends.model.Site;
 import legends.model.World;
 import legends.web.basic.Controller;
@@ -33,8 +33,7 @@ public class SitesController {
 		
 		context.put("site", s);
 		context.put("sitemap", Files.exists(World.getSiteMapPath(s.getId())));
-		context.put("events", World.getHistoricalEvents().stream()
-				.filter(e -> EventHelper.related(s, e)).collect(Collectors.toList()));
+		context.put("events", EventList.of("/site/" + id, s));
 		
 		return Templates.get("site.vm");
 	}
@@ -0,0 +1,28 @@
+package legends.web;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+
+import legends.helper.PageCache;
+import legends.helper.Templates;
+import legends.web.basic.Controller;
+import legends.web.basic.RequestMapping;
+
+@Controller
+public class StatsController {
+
+	@RequestMapping(value = "/stats", cache = false)
+	public Template stats(VelocityContext context) {
+		long hits = PageCache.getHits();
+		long misses = PageCache.getMisses();
+		context.put("hits", hits);
+		context.put("misses", misses);
+		context.put("hitRatio", hits + misses > 0 ? String.format("%.1f", 100.0 * hits / (hits + misses)) : "-");
+		context.put("evictions", PageCache.getEvictions());
+		context.put("pages", PageCache.getPages());
+		context.put("size", PageCache.getSize() / 1024);
+		context.put("maxSize", PageCache.getMaxSize() / 1024);
+		return Templates.get("stats.vm");
+	}
+
+}
@@ -7,8 +7,8 @@ import java.util.stream.Collectors;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 
-import legends.helper.EventHelper;
 import legends.helper.Templates;
+import legends.model.EventList;
 import legends.model.Structure;
 import legends.model.World;
 import legends.web.basic.Controller;
@@ -34,8 +34,7 @@ public class StructuresController {
 		Structure s = World.getStructure(structureId, siteId);
 		
 		context.put("structure", s);
-		context.put("events", World.getHistoricalEvents().stream()
-				.filter(e -> EventHelper.related(s, e)).collect(Collectors.toList()));
+		context.put("events", EventList.of("/structure/" + id, s));
 		
 		return Templates.get("structure.vm");
 	}
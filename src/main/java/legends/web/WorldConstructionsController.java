@@ -7,8 +7,8 @@ import java.util.stream.Collectors;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 
-import legends.helper.EventHelper;
 import legends.helper.Templates;
+import legends.model.EventList;
 import legends.model.World;
 import legends.model.WorldConstruction;
 import legends.web.basic.Controller;
@@ -31,8 +31,7 @@ public class WorldConstructionsController {
 		WorldConstruction wc = World.getWorldConstruction(id);
 
 		context.put("wc", wc);
-		context.put("events", World.getHistoricalEvents().stream().filter(e -> EventHelper.related(wc, e))
-				.collect(Collectors.toList()));
+		context.put("events", EventList.of("/worldconstruction/" + id, wc));
 
 		return Templates.get("worldconstruction.vm");
 	}
@@ -1,13 +1,12 @@
 package legends.web;
 
-import java.util.stream.Collectors;
-
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 
 import legends.helper.Templates;
+import legends.model.EventColumns;
+import legends.model.EventList;
 import legends.model.World;
-import legends.model.events.basic.Event;
 import legends.web.basic.Controller;
 import legends.web.basic.RequestMapping;
 
@@ -16,9 +15,9 @@ public class YearsController {
 
 	@RequestMapping("/years")
 	public Template years(VelocityContext context) {
-		context.put("events", World.getHistoricalEvents());
-		context.put("years", World.getHistoricalEvents().stream()
-				.collect(Collectors.groupingBy(Event::getYear)));
+		EventColumns columns = World.getEventColumns();
+		context.put("eventYears", columns.getYears());
+		context.put("years", columns.countByYear());
 		
 		return Templates.get("years.vm");
 	}
@@ -26,8 +25,8 @@ public class YearsController {
 	@RequestMapping("/year/{id}")
 	public Template year(VelocityContext context, int id) {
 		context.put("year", id);
-		context.put("events",
-				World.getHistoricalEvents().stream().filter(e -> e.getYear() == id).collect(Collectors.toList()));
+		context.put("events", events(id));
+		context.put("sentences", true);
 		context.put("types", World.getEventTypes());
 		
 		return Templates.get("year.vm");
@@ -35,13 +34,19 @@ public class YearsController {
 	
 	@RequestMapping("/type/{name}")
 	public Template type(VelocityContext context, String name) {
-		context.put("events", World.getHistoricalEvents().stream()
-				.filter(e -> e.getType().equals(name)).collect(Collectors.toList()));
+		context.put("events", events(name));
 		context.put("types", World.getEventTypes());
 		context.put("type_name", name);
 		
 		return Templates.get("type.vm");
 	}
 
+	static EventList events(int year) {
+		return new EventList("/events/year/" + year, World.getEventColumns().rowsOfYear(year));
+	}
+
+	static EventList events(String type) {
+		return new EventList("/events/type/" + type, World.getEventColumns().rowsOfType(type));
+	}
 
 }
@@ -9,4 +9,10 @@ import java.lang.annotation.Target;
 @Target(ElementType.METHOD)
 public @interface RequestMapping {
 	String value() default "";
+
+	/**
+	 * Whether the response only depends on the path and query once the
+	 * world is ready, so it may be kept in the page cache.
+	 */
+	boolean cache() default true;
 }
\ No newline at end of file
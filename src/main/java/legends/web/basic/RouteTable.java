@@ -0,0 +1,158 @@
+package legends.web.basic;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.velocity.VelocityContext;
+
+import legends.WorldState;
+
+/**
+ * The {@link RequestMapping}s of all controllers of one {@link WorldState}.
+ *
+ * Mappings are prefixes of the request path. The prefixes are kept in a trie,
+ * so a lookup walks the path once. Of all matching prefixes the route with the
+ * longest mapping wins and the empty mapping is the default. Controllers are
+ * created once and their methods are called through method handles.
+ */
+public class RouteTable {
+	private static final MethodType PLAIN = MethodType.methodType(Object.class, VelocityContext.class);
+	private static final MethodType WITH_ID = MethodType.methodType(Object.class, VelocityContext.class, int.class);
+	private static final MethodType WITH_NAME = MethodType.methodType(Object.class, VelocityContext.class,
+			String.class);
+
+	public static class Route {
+		private final String mapping;
+		private final String prefix;
+		private final MethodType type;
+		private final MethodHandle handle;
+		private final boolean cacheable;
+
+		private Route(String mapping, Object controller, Method method) throws IllegalAccessException {
+			this.mapping = mapping;
+			cacheable = method.getAnnotation(RequestMapping.class).cache();
+			if (mapping.endsWith("{id}"))
+				type = WITH_ID;
+			else if (mapping.endsWith("{name}"))
+				type = WITH_NAME;
+			else
+				type = PLAIN;
+			prefix = type == PLAIN ? mapping : mapping.substring(0, mapping.lastIndexOf('{'));
+			handle = MethodHandles.publicLookup().unreflect(method).bindTo(controller).asType(type);
+		}
+
+		public String getMapping() {
+			return mapping;
+		}
+
+		public boolean isCacheable() {
+			return cacheable;
+		}
+
+		/**
+		 * Calls the controller method with the id or name taken from the rest
+		 * of the path.
+		 */
+		public Object invoke(VelocityContext context, String path) throws InvocationTargetException {
+			int id = type == WITH_ID ? Integer.parseInt(path.substring(prefix.length())) : 0;
+			try {
+				if (type == WITH_ID)
+					return (Object) handle.invokeExact(context, id);
+				if (type == WITH_NAME)
+					return (Object) handle.invokeExact(context, path.substring(prefix.length()));
+				return (Object) handle.invokeExact(context);
+			} catch (Throwable e) {
+				throw new InvocationTargetException(e);
+			}
+		}
+	}
+
+	private static class Node {
+		private Map<Character, Node> children;
+		private Route route;
+
+		private Node child(char c) {
+			return children != null ? children.get(c) : null;
+		}
+	}
+
+	private final Node root = new Node();
+	private final List<Route> routes = new ArrayList<>();
+
+	private RouteTable(Collection<Class<?>> controllers, Map<Class<?>, Object> instances, WorldState state)
+			throws ReflectiveOperationException {
+		List<Class<?>> sorted = new ArrayList<>(controllers);
+		sorted.sort(Comparator.comparing(Class::getName));
+		for (Class<?> controllerClass : sorted) {
+			WorldState controllerState = controllerClass.getAnnotation(Controller.class).state();
+			if (controllerState != state && controllerState != WorldState.ANY)
+				continue;
+
+			Object controller = instances.get(controllerClass);
+			if (controller == null) {
+				controller = controllerClass.newInstance();
+				instances.put(controllerClass, controller);
+			}
+			for (Method method : controllerClass.getMethods()) {
+				RequestMapping mapping = method.getAnnotation(RequestMapping.class);
+				if (mapping != null)
+					add(new Route(mapping.value(), controller, method));
+			}
+		}
+	}
+
+	/**
+	 * Creates the tables for all states.
+	 */
+	public static Map<WorldState, RouteTable> build(Collection<Class<?>> controllers)
+			throws ReflectiveOperationException {
+		Map<Class<?>, Object> instances = new HashMap<>();
+		Map<WorldState, RouteTable> tables = new EnumMap<>(WorldState.class);
+		for (WorldState state : WorldState.values())
+			tables.put(state, new RouteTable(controllers, instances, state));
+		return tables;
+	}
+
+	private void add(Route route) {
+		routes.add(route);
+		Node node = root;
+		for (int i = 0; i < route.prefix.length(); i++) {
+			if (node.children == null)
+				node.children = new HashMap<>();
+			node = node.children.computeIfAbsent(route.prefix.charAt(i), c -> new Node());
+		}
+		if (node.route == null || route.mapping.length() > node.route.mapping.length())
+			node.route = route;
+	}
+
+	/**
+	 * @return the route with the longest mapping that is a prefix of the path,
+	 *         or null
+	 */
+	public Route find(String path) {
+		Route best = root.route;
+		Node node = root;
+		for (int i = 0; i < path.length(); i++) {
+			node = node.child(path.charAt(i));
+			if (node == null)
+				break;
+			if (node.route != null && (best == null || node.route.mapping.length() > best.mapping.length()))
+				best = node.route;
+		}
+		return best;
+	}
+
+	public List<Route> getRoutes() {
+		return routes;
+	}
+}
@@ -0,0 +1,474 @@
+package legends.xml;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * XML reader for the attribute free documents exported by Dwarf Fortress.
+ *
+ * The file is memory mapped in windows, copied block by block into a byte
+ * array and element names and text are tokenized directly from the bytes. Element names are looked up in a table,
+ * so every name is created only once, and text is decoded into a reused char
+ * array. Attributes, DTDs and processing instructions are skipped; text is
+ * normalized like a SAX parser does for line endings and the predefined and
+ * numeric character references.
+ *
+ * The content handler may be replaced during parsing, as the stack content
+ * handlers do.
+ */
+public class MappedXmlReader implements XMLReader {
+	private static final Attributes NO_ATTRIBUTES = new AttributesImpl();
+	private static final int WINDOW = 1 << 28;
+	private static final int BLOCK = 1 << 20;
+
+	private ContentHandler contentHandler;
+	private EntityResolver entityResolver;
+	private DTDHandler dtdHandler;
+	private ErrorHandler errorHandler;
+	private Map<String, Boolean> features = new HashMap<>();
+	private Map<String, Object> properties = new HashMap<>();
+
+	private Charset charset;
+	private CharsetDecoder decoder;
+
+	private byte[] buffer = new byte[BLOCK];
+	private long base;
+	private int limit;
+
+	private char[] text = new char[1024];
+	private NameTable names = new NameTable();
+	private int nameStart, nameEnd, nameHash;
+
+	public MappedXmlReader(Charset charset) {
+		this.charset = charset;
+		decoder = charset.newDecoder();
+		decoder.onMalformedInput(CodingErrorAction.IGNORE);
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	public void parse(Path path) throws IOException, SAXException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			parse(channel, 0, channel.size());
+		}
+	}
+
+	/**
+	 * Parses the bytes from start to end of the channel as the content of the
+	 * given enclosing elements.
+	 */
+	public void parse(FileChannel channel, long start, long end, String... enclosing)
+			throws IOException, SAXException {
+		contentHandler.startDocument();
+		for (String element : enclosing)
+			contentHandler.startElement("", element, element, NO_ATTRIBUTES);
+
+		MappedByteBuffer map = null;
+		long mapStart = 0, mapEnd = 0;
+		long position = start;
+		while (position < end) {
+			if (position + buffer.length > mapEnd && mapEnd < end) {
+				mapStart = position;
+				mapEnd = Math.min(end, position + Math.max(WINDOW, buffer.length));
+				map = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+			}
+			limit = (int) Math.min(buffer.length, mapEnd - position);
+			map.position((int) (position - mapStart));
+			map.get(buffer, 0, limit);
+			base = position;
+
+			int consumed = tokenize(position + limit == end);
+			if (consumed == 0)
+				buffer = new byte[buffer.length * 2];
+			position += consumed;
+		}
+
+		for (int i = enclosing.length - 1; i >= 0; i--)
+			contentHandler.endElement("", enclosing[i], enclosing[i]);
+		contentHandler.endDocument();
+	}
+
+	/**
+	 * @return the number of bytes of complete tokens in the current window
+	 */
+	private int tokenize(boolean last) throws SAXException {
+		byte[] b = buffer;
+		int p = 0;
+		while (p < limit) {
+			if (b[p] == '<') {
+				int end = findTagEnd(p);
+				if (end < 0) {
+					if (last)
+						throw new SAXException("unexpected end of file at " + (base + p));
+					return p;
+				}
+				tag(p, end);
+				p = end;
+			} else {
+				int q = p;
+				while (q < limit && b[q] != '<')
+					q++;
+				if (q == limit && !last)
+					return p;
+				text(p, q);
+				p = q;
+			}
+		}
+		return p;
+	}
+
+	private int findTagEnd(int start) {
+		byte[] b = buffer;
+		if (start + 1 >= limit)
+			return -1;
+		byte type = b[start + 1];
+		if (type == '?')
+			return find("?>", start + 2);
+		if (type == '!') {
+			if (start + 3 < limit && b[start + 2] == '-' && b[start + 3] == '-')
+				return find("-->", start + 4);
+			if (start + 2 < limit && b[start + 2] == '[')
+				return find("]]>", start + 2);
+		}
+
+		int i = type == '/' ? start + 2 : start + 1;
+		nameStart = i;
+		int hash = 0;
+		for (; i < limit; i++) {
+			byte c = b[i];
+			if (c == '>' || c == '/' || c == ' ' || c == '\t' || c == '\n' || c == '\r')
+				break;
+			hash = 31 * hash + c;
+		}
+		nameEnd = i;
+		nameHash = hash;
+
+		byte quote = 0;
+		for (; i < limit; i++) {
+			byte c = b[i];
+			if (quote != 0) {
+				if (c == quote)
+					quote = 0;
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (c == '>') {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+	private int find(String pattern, int from) {
+		outer: for (int i = from; i + pattern.length() <= limit; i++) {
+			for (int j = 0; j < pattern.length(); j++)
+				if (buffer[i + j] != pattern.charAt(j))
+					continue outer;
+			return i + pattern.length();
+		}
+		return -1;
+	}
+
+	private void tag(int start, int end) throws SAXException {
+		byte[] b = buffer;
+		byte type = b[start + 1];
+		if (type == '?')
+			return;
+		if (type == '!') {
+			if (startsWith(start, "<![CDATA["))
+				characters(start + 9, end - 3, false);
+			return;
+		}
+
+		String name = names.get(b, nameStart, nameEnd, nameHash);
+		if (type == '/') {
+			contentHandler.endElement("", name, name);
+			return;
+		}
+
+		contentHandler.startElement("", name, name, NO_ATTRIBUTES);
+		if (b[end - 2] == '/')
+			contentHandler.endElement("", name, name);
+	}
+
+	private boolean startsWith(int start, String prefix) {
+		if (start + prefix.length() > limit)
+			return false;
+		for (int i = 0; i < prefix.length(); i++)
+			if (buffer[start + i] != prefix.charAt(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Text up to the next tag. Whitespace directly before a start tag is
+	 * dropped, the handlers reset their text on every start tag anyway.
+	 */
+	private void text(int start, int end) throws SAXException {
+		if (end + 1 < limit && isStartTag(buffer[end + 1])) {
+			int i = start;
+			while (i < end && isWhitespace(buffer[i]))
+				i++;
+			if (i == end)
+				return;
+		}
+		characters(start, end, true);
+	}
+
+	private static boolean isStartTag(byte c) {
+		return c != '/' && c != '!' && c != '?';
+	}
+
+	private static boolean isWhitespace(byte c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+	private void characters(int start, int end, boolean references) throws SAXException {
+		int length = end - start;
+		if (text.length < length)
+			text = new char[Math.max(length, text.length * 2)];
+
+		byte[] b = buffer;
+		boolean normalize = false;
+		int n = 0;
+		for (int i = start; i < end; i++) {
+			byte c = b[i];
+			if (c < 0) {
+				n = decode(start, end);
+				normalize = true;
+				break;
+			}
+			if (c == '\r' || (c == '&' && references))
+				normalize = true;
+			text[n++] = (char) c;
+		}
+		if (normalize)
+			n = normalize(n, references);
+		if (n > 0)
+			contentHandler.characters(text, 0, n);
+	}
+
+	private int decode(int start, int end) throws SAXException {
+		ByteBuffer in = ByteBuffer.wrap(buffer, start, end - start);
+		int max = (int) Math.ceil((end - start) * (double) decoder.maxCharsPerByte());
+		if (text.length < max)
+			text = new char[max];
+		CharBuffer out = CharBuffer.wrap(text);
+		decoder.reset();
+		if (decoder.decode(in, out, true).isError() || decoder.flush(out).isError())
+			throw new SAXException("invalid characters at " + (base + start));
+		return out.position();
+	}
+
+	/**
+	 * Replaces line breaks and character references in place.
+	 */
+	private int normalize(int length, boolean references) throws SAXException {
+		int n = 0;
+		for (int i = 0; i < length; i++) {
+			char c = text[i];
+			if (c == '\r') {
+				if (i + 1 < length && text[i + 1] == '\n')
+					continue;
+				c = '\n';
+			} else if (c == '&' && references) {
+				int semicolon = i + 1;
+				while (semicolon < length && text[semicolon] != ';')
+					semicolon++;
+				if (semicolon == length)
+					throw new SAXException("unterminated reference: " + new String(text, i, length - i));
+				int code = reference(new String(text, i + 1, semicolon - i - 1));
+				i = semicolon;
+				if (Character.isSupplementaryCodePoint(code)) {
+					text[n++] = Character.highSurrogate(code);
+					c = Character.lowSurrogate(code);
+				} else {
+					c = (char) code;
+				}
+			}
+			text[n++] = c;
+		}
+		return n;
+	}
+
+	private static int reference(String name) throws SAXException {
+		switch (name) {
+		case "amp":
+			return '&';
+		case "lt":
+			return '<';
+		case "gt":
+			return '>';
+		case "quot":
+			return '"';
+		case "apos":
+			return '\'';
+		}
+		try {
+			if (name.startsWith("#x"))
+				return Integer.parseInt(name.substring(2), 16);
+			if (name.startsWith("#"))
+				return Integer.parseInt(name.substring(1));
+		} catch (NumberFormatException e) {
+			throw new SAXException("invalid character reference: &" + name + ";");
+		}
+		throw new SAXException("undeclared entity: &" + name + ";");
+	}
+
+	/**
+	 * Open addressing table from name bytes to strings.
+	 */
+	private static class NameTable {
+		private byte[][] keys = new byte[256][];
+		private String[] names = new String[256];
+		private int size = 0;
+
+		String get(byte[] b, int start, int end, int hash) {
+			int mask = keys.length - 1;
+			for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+				byte[] key = keys[slot];
+				if (key == null)
+					return add(slot, b, start, end);
+				if (matches(key, b, start, end))
+					return names[slot];
+			}
+		}
+
+		private static boolean matches(byte[] key, byte[] b, int start, int end) {
+			if (key.length != end - start)
+				return false;
+			for (int i = 0; i < key.length; i++)
+				if (key[i] != b[start + i])
+					return false;
+			return true;
+		}
+
+		private String add(int slot, byte[] b, int start, int end) {
+			byte[] key = Arrays.copyOfRange(b, start, end);
+			String name = new String(key, StandardCharsets.UTF_8);
+			keys[slot] = key;
+			names[slot] = name;
+			if (++size * 2 > keys.length)
+				resize();
+			return name;
+		}
+
+		private void resize() {
+			byte[][] oldKeys = keys;
+			String[] oldNames = names;
+			keys = new byte[oldKeys.length * 2][];
+			names = new String[oldKeys.length * 2];
+			int mask = keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				byte[] key = oldKeys[i];
+				if (key == null)
+					continue;
+				int hash = 0;
+				for (byte k : key)
+					hash = 31 * hash + k;
+				int slot = hash & mask;
+				while (keys[slot] != null)
+					slot = (slot + 1) & mask;
+				keys[slot] = key;
+				names[slot] = oldNames[i];
+			}
+		}
+	}
+
+	@Override
+	public void parse(InputSource input) throws IOException, SAXException {
+		if (input.getSystemId() == null)
+			throw new SAXException("only files can be read, system id missing");
+		parse(input.getSystemId());
+	}
+
+	@Override
+	public void parse(String systemId) throws IOException, SAXException {
+		parse(systemId.startsWith("file:") ? Paths.get(URI.create(systemId)) : Paths.get(systemId));
+	}
+
+	@Override
+	public boolean getFeature(String name) {
+		return features.getOrDefault(name, false);
+	}
+
+	@Override
+	public void setFeature(String name, boolean value) {
+		features.put(name, value);
+	}
+
+	@Override
+	public Object getProperty(String name) {
+		return properties.get(name);
+	}
+
+	@Override
+	public void setProperty(String name, Object value) {
+		properties.put(name, value);
+	}
+
+	@Override
+	public void setEntityResolver(EntityResolver resolver) {
+		entityResolver = resolver;
+	}
+
+	@Override
+	public EntityResolver getEntityResolver() {
+		return entityResolver;
+	}
+
+	@Override
+	public void setDTDHandler(DTDHandler handler) {
+		dtdHandler = handler;
+	}
+
+	@Override
+	public DTDHandler getDTDHandler() {
+		return dtdHandler;
+	}
+
+	@Override
+	public void setContentHandler(ContentHandler handler) {
+		contentHandler = handler;
+	}
+
+	@Override
+	public ContentHandler getContentHandler() {
+		return contentHandler;
+	}
+
+	@Override
+	public void setErrorHandler(ErrorHandler handler) {
+		errorHandler = handler;
+	}
+
+	@Override
+	public ErrorHandler getErrorHandler() {
+		return errorHandler;
+	}
+}
@@ -19,4 +19,6 @@ public @interface Xml {
 	public boolean subtypes() default false;
 	
 	public boolean track() default false;
+
+	public boolean dictionary() default false;
 }
@@ -1,6 +1,5 @@
 package legends.xml.handlers;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -30,15 +29,17 @@ public class AnnotationConfig {
 	private static final Log LOG = LogFactory.getLog(AnnotationConfig.class);
 
 	private Class<?> objectClass;
+	private ObjectFactory factory;
 
 	private Map<String, StackContentHandler> handlers = new HashMap<>();
 	private Map<String, StringConsumer> values = new HashMap<>();
 	private Set<String> unknownElements = new HashSet<>();
 	private Map<String, Set<String>> mappedValues = new HashMap<>();
-	private Map<Annotation, Object> componentObjects = new HashMap<>();
+	private StringDictionary dictionary;
 
 	public AnnotationConfig(final Class<?> objectClass, final ObjectAccessor object) {
 		this.objectClass = objectClass;
+		this.factory = Bindings.factory(objectClass);
 		try {
 			analyzeClass(objectClass, object, "");
 		} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
@@ -51,6 +52,10 @@ public class AnnotationConfig {
 		return objectClass;
 	}
 
+	public Object newObject() throws InstantiationException, IllegalAccessException {
+		return factory.create();
+	}
+
 	public Map<String, StackContentHandler> getHandlers() {
 		return handlers;
 	}
@@ -102,12 +107,13 @@ public class AnnotationConfig {
 		for (final Field field : ReflectionUtils.getAllFields(analyzeClass,
 				ReflectionUtils.withAnnotation(XmlComponent.class))) {
 			XmlComponent component = field.getAnnotation(XmlComponent.class);
-			field.setAccessible(true);
+			final Binding binding = Bindings.of(field);
 			if (!component.multiple()) {
-				analyzeClass(field.getType(), () -> field.get(object.get()), component.prefix());
+				analyzeClass(field.getType(), () -> binding.get(object.get()), component.prefix());
 			} else {
-				componentObjects.put(component, component.elementClass().newInstance());
-				analyzeClass(component.elementClass(), () -> componentObjects.get(component), component.prefix());
+				final ObjectFactory componentFactory = Bindings.factory(component.elementClass());
+				final Object[] componentObject = { componentFactory.create() };
+				analyzeClass(component.elementClass(), () -> componentObject[0], component.prefix());
 				final String consumeOn = component.prefix() + component.consumeOn();
 				final StringConsumer componentConsmer = values.get(consumeOn);
 				if (componentConsmer == null) {
@@ -115,9 +121,9 @@ public class AnnotationConfig {
 				} else {
 					values.put(consumeOn, v -> {
 						componentConsmer.accept(v);
-						((List<Object>) field.get(object.get())).add(componentObjects.get(component));
+						((List<Object>) binding.get(object.get())).add(componentObject[0]);
 						try {
-							componentObjects.put(component, component.elementClass().newInstance());
+							componentObject[0] = componentFactory.create();
 						} catch (Exception e) {
 							LOG.error("error initializen object", e);
 						}
@@ -132,42 +138,55 @@ public class AnnotationConfig {
 	private void analyzeField(final Field field, final Xml xml, final String element, final ObjectAccessor object)
 			throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
 
+		final Binding binding = Bindings.of(field);
+
 		XmlConverter xmlConverter = field.getAnnotation(XmlConverter.class);
 		if (xmlConverter != null) {
 			ValueConverter converter = xmlConverter.value().newInstance();
-			values.put(element, v -> field.set(object.get(), converter.convert(v)));
+			values.put(element, v -> binding.set(object.get(), converter.convert(v)));
 
 		} else {
 			Class<?> type = field.getType();
 
-			if ((type == List.class || type == Map.class) && !xml.multiple()) {
+			if ((type == List.class || Map.class.isAssignableFrom(type)) && !xml.multiple()) {
 				AnnotationContentHandler elementHandler = new AnnotationContentHandler(xml.element(),
 						xml.elementClass());
 				if (type == List.class) {
 					if (xml.elementClass().getAnnotation(XmlAutoIncrement.class) == null)
-						elementHandler.setConsumer(v -> ((List<Object>) field.get(object.get())).add(v));
+						elementHandler.setConsumer(v -> ((List<Object>) binding.get(object.get())).add(v));
 					else
 						elementHandler.setConsumer(v -> {
-							final List<Object> list = ((List<Object>) field.get(object.get()));
+							final List<Object> list = ((List<Object>) binding.get(object.get()));
 							((AbstractObject) v).setId(list.size());
 							list.add(v);
 						});
 
 				} else {
 					elementHandler.setConsumer(
-							v -> ((Map<Integer, Object>) field.get(object.get())).put(((AbstractObject) v).getId(), v));
+							v -> ((Map<Integer, Object>) binding.get(object.get())).put(((AbstractObject) v).getId(), v));
 					StringConsumer idConsumer = elementHandler.config.values.get("id");
 					elementHandler.config.values.put("id", new StringConsumer() {
 						@Override
 						public void accept(String v)
 								throws InvocationTargetException, IllegalAccessException, IllegalArgumentException {
-							Map<Integer, Object> map = ((Map<Integer, Object>) field.get(object.get()));
-							Object existingObject = map.get(Integer.parseInt(v));
-							if (existingObject == null) {
+							if (!setExistingObject(Integer.parseInt(v)))
 								idConsumer.accept(v);
-							} else {
-								elementHandler.setObject(existingObject);
-							}
+						}
+
+						@Override
+						public void accept(char[] ch, int start, int length)
+								throws InvocationTargetException, IllegalAccessException, IllegalArgumentException {
+							if (!setExistingObject(IntValueConsumer.parseInt(ch, start, length)))
+								idConsumer.accept(ch, start, length);
+						}
+
+						private boolean setExistingObject(int id) throws IllegalAccessException {
+							Map<Integer, Object> map = ((Map<Integer, Object>) binding.get(object.get()));
+							Object existingObject = map.get(id);
+							if (existingObject == null)
+								return false;
+							elementHandler.setObject(existingObject);
+							return true;
 						}
 					});
 				}
@@ -176,41 +195,44 @@ public class AnnotationConfig {
 				handlers.put(element, listHandler);
 
 			} else if (type == int.class) {
-				values.put(element, v -> field.setInt(object.get(), Integer.parseInt(v)));
+				values.put(element, (IntValueConsumer) v -> binding.setInt(object.get(), v));
 
 			} else if (type == String.class) {
-				values.put(element, v -> field.set(object.get(), v));
+				values.put(element, v -> binding.set(object.get(), v));
 
 			} else if (type == boolean.class) {
-				values.put(element, v -> field.setBoolean(object.get(), true));
+				values.put(element, v -> binding.setBoolean(object.get(), true));
 
 			} else if (!xml.multiple()) {
 				AnnotationContentHandler elementHandler = new AnnotationContentHandler(element, type);
-				elementHandler.setConsumer(obj -> field.set(object.get(), obj));
+				elementHandler.setConsumer(obj -> binding.set(object.get(), obj));
 				handlers.put(element, elementHandler);
 
 			} else if (type == List.class) {
 				if (xml.elementClass() == int.class || xml.elementClass() == Integer.class) {
-					values.put(element, v -> ((List<Object>) field.get(object.get())).add(Integer.parseInt(v)));
+					values.put(element, (IntValueConsumer) v -> ((List<Object>) binding.get(object.get())).add(v));
 
 				} else if (xml.elementClass() == String.class) {
-					values.put(element, v -> ((List<Object>) field.get(object.get())).add(v));
+					values.put(element, v -> ((List<Object>) binding.get(object.get())).add(v));
 
 				} else {
 					AnnotationContentHandler elementHandler = new AnnotationContentHandler(element, xml.elementClass());
-					elementHandler.setConsumer(obj -> ((List<Object>) field.get(object.get())).add(obj));
+					elementHandler.setConsumer(obj -> ((List<Object>) binding.get(object.get())).add(obj));
 					handlers.put(element, elementHandler);
 
 				}
-			} else if (type == Map.class) {
+			} else if (Map.class.isAssignableFrom(type)) {
 				AnnotationContentHandler elementHandler = new AnnotationContentHandler(element, xml.elementClass());
-				elementHandler.setConsumer(obj -> ((Map<Integer, Object>) field.get(object.get()))
+				elementHandler.setConsumer(obj -> ((Map<Integer, Object>) binding.get(object.get()))
 						.put(((AbstractObject) obj).getId(), obj));
 				handlers.put(element, elementHandler);
 			} else {
 				LOG.warn("unknown type for field " + field);
 			}
 
+			if (xml.dictionary())
+				useDictionary(element);
+
 			if (xml.track() && values.get(element) != null) {
 				StringConsumer c = values.get(element);
 				values.put(element, v -> {
@@ -226,10 +248,12 @@ public class AnnotationConfig {
 	private void analyzeMethod(final Method method, final Xml xml, final String element, final ObjectAccessor object)
 			throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
 
+		final Binding binding = Bindings.of(method);
+
 		XmlConverter xmlConverter = method.getAnnotation(XmlConverter.class);
 		if (xmlConverter != null) {
 			ValueConverter converter = xmlConverter.value().newInstance();
-			values.put(element, v -> method.invoke(object.get(), converter.convert(v)));
+			values.put(element, v -> binding.set(object.get(), converter.convert(v)));
 
 		} else {
 			Class<?> type = method.getParameterTypes()[0];
@@ -237,21 +261,24 @@ public class AnnotationConfig {
 				AnnotationContentHandler elementHandler = new AnnotationContentHandler(xml.element(),
 						xml.elementClass());
 				ListContentHandler listHandler = new ListContentHandler(element, elementHandler);
-				listHandler.setConsumer(list -> method.invoke(object.get(), list));
+				listHandler.setConsumer(list -> binding.set(object.get(), list));
 				handlers.put(element, listHandler);
 
 			} else if (type == int.class) {
-				values.put(element, v -> method.invoke(object.get(), Integer.parseInt(v)));
+				values.put(element, (IntValueConsumer) v -> binding.setInt(object.get(), v));
 
 			} else if (type == String.class) {
-				values.put(element, v -> method.invoke(object.get(), v));
+				values.put(element, v -> binding.set(object.get(), v));
 
 			} else {
 				AnnotationContentHandler elementHandler = new AnnotationContentHandler(element, type);
-				elementHandler.setConsumer(obj -> method.invoke(object.get(), obj));
+				elementHandler.setConsumer(obj -> binding.set(object.get(), obj));
 				handlers.put(element, elementHandler);
 
 			}
+
+			if (xml.dictionary())
+				useDictionary(element);
 		}
 
 		if (xml.track() && values.get(element) != null) {
@@ -265,6 +292,31 @@ public class AnnotationConfig {
 		}
 	}
 
+	/**
+	 * Passes the values of the element through the dictionary, so equal
+	 * values share one String.
+	 */
+	private void useDictionary(String element) {
+		StringConsumer c = values.get(element);
+		if (c == null || c instanceof IntValueConsumer)
+			return;
+		if (dictionary == null)
+			dictionary = new StringDictionary();
+		values.put(element, new StringConsumer() {
+			@Override
+			public void accept(String v)
+					throws InvocationTargetException, IllegalAccessException, IllegalArgumentException {
+				c.accept(dictionary.get(v));
+			}
+
+			@Override
+			public void accept(char[] ch, int start, int length)
+					throws InvocationTargetException, IllegalAccessException, IllegalArgumentException {
+				c.accept(dictionary.get(ch, start, length));
+			}
+		});
+	}
+
 	public void printMappedValues(String element, String subtype) {
 		for (String e : getMappedValues().keySet()) {
 			System.out.println(
@@ -48,6 +48,7 @@ public class AnnotationContentHandler extends StackContentHandler {
 	boolean unknownSubtype = false;
 	private Set<String> unknownSubtypes = new HashSet<>();
 	private List<CachedElement> cache = new ArrayList<>();
+	private int cacheSize = 0;
 
 	public AnnotationContentHandler(Class<?> objectClass)
 			throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
@@ -122,7 +123,7 @@ public class AnnotationContentHandler extends StackContentHandler {
 				if (skipdepth == 0) {
 					if (!unknownSubtype && !config.getUnknownElements().contains(localName)) {
 						LOG.warn(name + " - unknown element: " + (subtypes ? subtype + " - " : "") + localName + " = "
-								+ value.trim());
+								+ getValue().trim());
 						config.getUnknownElements().add(localName);
 					}
 					skipElement = null;
@@ -133,12 +134,13 @@ public class AnnotationContentHandler extends StackContentHandler {
 		}
 
 		if (subtypes && subtype == null && localName.equals(subtypeElement)) {
+			String value = getValue();
 			AnnotationConfig subConfig = subtypeConfigs.get(value);
 			if (subConfig != null) {
 				subtype = value;
 				config = subConfig;
 				try {
-					object = subConfig.getObjectClass().newInstance();
+					object = subConfig.newObject();
 					applyCache(object);
 				} catch (InstantiationException | IllegalAccessException e) {
 					LOG.error("error initializing object", e);
@@ -155,12 +157,17 @@ public class AnnotationContentHandler extends StackContentHandler {
 		StringConsumer consumer = config.getValues().get(localName);
 		if (consumer != null) {
 			try {
-				consumer.accept(value);
+				if (textLength == 0)
+					consumer.accept("");
+				else
+					consumer.accept(text, 0, textLength);
 			} catch (Exception e) {
-				LOG.error("error accepting: " + localName + " = " + value + " " + getName(), e);
+				LOG.error("error accepting: " + localName + " = " + getValue() + " " + getName(), e);
 			}
 			if (subtypes && subtype == null) {
-				cache.add(new CachedElement(localName, value));
+				if (cacheSize == cache.size())
+					cache.add(new CachedElement());
+				cache.get(cacheSize++).set(localName, text, 0, textLength);
 			}
 		} else {
 			super.endElement(uri, localName, qName);
@@ -169,13 +176,14 @@ public class AnnotationContentHandler extends StackContentHandler {
 	}
 
 	private void applyCache(Object object) {
-		for (CachedElement el : cache) {
+		for (int i = 0; i < cacheSize; i++) {
+			CachedElement el = cache.get(i);
 			StringConsumer consumer = config.getValues().get(el.getElement());
 			if (consumer != null) {
 				try {
-					consumer.accept(el.getValue());
+					consumer.accept(el.getChars(), 0, el.getLength());
 				} catch (Exception e) {
-					LOG.error("error accepting: " + el.getElement() + " = " + value + " " + getName(), e);
+					LOG.error("error accepting: " + el.getElement() + " = " + el.getValue() + " " + getName(), e);
 				}
 			}
 		}
@@ -198,10 +206,10 @@ public class AnnotationContentHandler extends StackContentHandler {
 				config = baseConfig;
 				unknownSubtype = false;
 				subtype = null;
-				cache.clear();
+				cacheSize = 0;
 			}
 
-			object = config.getObjectClass().newInstance();
+			object = config.newObject();
 		} catch (InstantiationException | IllegalAccessException e) {
 			LOG.error("error initializing object", e);
 		}
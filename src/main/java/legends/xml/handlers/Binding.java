@@ -0,0 +1,17 @@
+package legends.xml.handlers;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Access to an {@link legends.xml.annotation.Xml} annotated field or setter
+ * method of an object. For setter methods every set variant calls the method.
+ */
+public interface Binding {
+	Object get(Object target) throws IllegalAccessException;
+
+	void set(Object target, Object value) throws InvocationTargetException, IllegalAccessException;
+
+	void setInt(Object target, int value) throws InvocationTargetException, IllegalAccessException;
+
+	void setBoolean(Object target, boolean value) throws InvocationTargetException, IllegalAccessException;
+}
@@ -0,0 +1,78 @@
+package legends.xml.handlers;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Creates the {@link Binding}s and {@link ObjectFactory}s used by
+ * {@link AnnotationConfig}. The backend is selected with the system property
+ * legends.xml.binding, either "methodhandle" (default) or "reflection".
+ */
+public class Bindings {
+	private static final Log LOG = LogFactory.getLog(Bindings.class);
+
+	public static final String PROPERTY = "legends.xml.binding";
+
+	private static boolean methodHandles = !"reflection".equals(System.getProperty(PROPERTY));
+
+	public static boolean isMethodHandles() {
+		return methodHandles;
+	}
+
+	public static void setMethodHandles(boolean methodHandles) {
+		Bindings.methodHandles = methodHandles;
+	}
+
+	public static Binding of(Field field) {
+		if (methodHandles) {
+			try {
+				return new MethodHandleBinding(field);
+			} catch (IllegalAccessException | RuntimeException e) {
+				LOG.warn("no method handle for " + field + ", using reflection", e);
+			}
+		}
+		return new ReflectionBinding(field);
+	}
+
+	public static Binding of(Method method) {
+		if (methodHandles) {
+			try {
+				return new MethodHandleBinding(method);
+			} catch (IllegalAccessException | RuntimeException e) {
+				LOG.warn("no method handle for " + method + ", using reflection", e);
+			}
+		}
+		return new ReflectionBinding(method);
+	}
+
+	/**
+	 * Public classes with a public default constructor get a factory spun by
+	 * {@link LambdaMetafactory}, which is as fast as calling the constructor.
+	 */
+	public static ObjectFactory factory(Class<?> objectClass) {
+		if (methodHandles && Modifier.isPublic(objectClass.getModifiers())) {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				MethodHandle constructor = lookup.findConstructor(objectClass, MethodType.methodType(void.class));
+				CallSite site = LambdaMetafactory.metafactory(lookup, "create",
+						MethodType.methodType(ObjectFactory.class), MethodType.methodType(Object.class), constructor,
+						MethodType.methodType(objectClass));
+				return (ObjectFactory) site.getTarget().invoke();
+			} catch (NoSuchMethodException | IllegalAccessException e) {
+				// no public default constructor
+			} catch (Throwable e) {
+				LOG.warn("no factory for " + objectClass + ", using reflection", e);
+			}
+		}
+		return objectClass::newInstance;
+	}
+}
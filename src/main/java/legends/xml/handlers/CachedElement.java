@@ -1,28 +1,36 @@
 package legends.xml.handlers;
 
+/**
+ * Element value kept until the subtype of an object is known. Instances are
+ * reused, so the value is copied into an own buffer.
+ */
 public class CachedElement {
 	private String element;
-	private String value;
+	private char[] value = new char[16];
+	private int length;
 
-	public CachedElement(String element, String value) {
+	public void set(String element, char[] ch, int start, int length) {
 		this.element = element;
-		this.value = value;
+		if (value.length < length)
+			value = new char[Math.max(length, value.length * 2)];
+		System.arraycopy(ch, start, value, 0, length);
+		this.length = length;
 	}
 
 	public String getElement() {
 		return element;
 	}
 
-	public void setElement(String element) {
-		this.element = element;
+	public char[] getChars() {
+		return value;
 	}
 
-	public String getValue() {
-		return value;
+	public int getLength() {
+		return length;
 	}
 
-	public void setValue(String value) {
-		this.value = value;
+	public String getValue() {
+		return new String(value, 0, length);
 	}
 
 }
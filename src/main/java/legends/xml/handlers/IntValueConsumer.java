@@ -0,0 +1,59 @@
+package legends.xml.handlers;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Consumer for int values, parsed straight from the characters of an element
+ * without creating a String.
+ */
+public interface IntValueConsumer extends StringConsumer {
+	public void accept(int value) throws InvocationTargetException, IllegalAccessException, IllegalArgumentException;
+
+	@Override
+	public default void accept(String string)
+			throws InvocationTargetException, IllegalAccessException, IllegalArgumentException {
+		accept(Integer.parseInt(string));
+	}
+
+	@Override
+	public default void accept(char[] ch, int start, int length)
+			throws InvocationTargetException, IllegalAccessException, IllegalArgumentException {
+		accept(parseInt(ch, start, length));
+	}
+
+	/**
+	 * Same as {@link Integer#parseInt(String)} for the given characters.
+	 */
+	public static int parseInt(char[] ch, int start, int length) {
+		if (length == 0)
+			throw new NumberFormatException("For input string: \"\"");
+
+		int end = start + length;
+		int i = start;
+		boolean negative = false;
+		int limit = -Integer.MAX_VALUE;
+		char first = ch[i];
+		if (first == '-' || first == '+') {
+			if (length == 1)
+				throw new NumberFormatException("For input string: \"" + new String(ch, start, length) + "\"");
+			if (first == '-') {
+				negative = true;
+				limit = Integer.MIN_VALUE;
+			}
+			i++;
+		}
+
+		int multmin = limit / 10;
+		int result = 0;
+		for (; i < end; i++) {
+			int digit = ch[i] - '0';
+			if (digit < 0 || digit > 9 || result < multmin)
+				throw new NumberFormatException("For input string: \"" + new String(ch, start, length) + "\"");
+			result *= 10;
+			if (result < limit + digit)
+				throw new NumberFormatException("For input string: \"" + new String(ch, start, length) + "\"");
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+}
@@ -0,0 +1,112 @@
+package legends.xml.handlers;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Binding using method handles adapted to erased signatures once, so values
+ * are set with invokeExact instead of the access checks and argument
+ * unboxing of {@link Field#set} and {@link Method#invoke}.
+ */
+public class MethodHandleBinding implements Binding {
+	private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+	private static final MethodType INT_SETTER = MethodType.methodType(void.class, Object.class, int.class);
+	private static final MethodType BOOLEAN_SETTER = MethodType.methodType(void.class, Object.class, boolean.class);
+
+	private final String name;
+	private final MethodHandle getter;
+	private final MethodHandle setter;
+	private final MethodHandle intSetter;
+	private final MethodHandle booleanSetter;
+
+	public MethodHandleBinding(Field field) throws IllegalAccessException {
+		name = field.toString();
+		field.setAccessible(true);
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodHandle g = lookup.unreflectGetter(field);
+		MethodHandle s = lookup.unreflectSetter(field);
+		if (Modifier.isStatic(field.getModifiers())) {
+			g = MethodHandles.dropArguments(g, 0, Object.class);
+			s = MethodHandles.dropArguments(s, 0, Object.class);
+		}
+		getter = g.asType(GETTER);
+		setter = s.asType(SETTER);
+		intSetter = field.getType() == int.class ? s.asType(INT_SETTER) : null;
+		booleanSetter = field.getType() == boolean.class ? s.asType(BOOLEAN_SETTER) : null;
+	}
+
+	public MethodHandleBinding(Method method) throws IllegalAccessException {
+		name = method.toString();
+		method.setAccessible(true);
+		MethodHandle m = MethodHandles.lookup().unreflect(method);
+		if (Modifier.isStatic(method.getModifiers()))
+			m = MethodHandles.dropArguments(m, 0, Object.class);
+		Class<?> type = method.getParameterTypes()[0];
+		getter = null;
+		setter = m.asType(SETTER);
+		intSetter = type == int.class ? m.asType(INT_SETTER) : null;
+		booleanSetter = type == boolean.class ? m.asType(BOOLEAN_SETTER) : null;
+	}
+
+	@Override
+	public Object get(Object target) throws IllegalAccessException {
+		if (getter == null)
+			throw new IllegalAccessException("cannot read from " + name);
+		try {
+			return (Object) getter.invokeExact(target);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(name, e);
+		}
+	}
+
+	@Override
+	public void set(Object target, Object value) throws InvocationTargetException, IllegalAccessException {
+		try {
+			setter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	@Override
+	public void setInt(Object target, int value) throws InvocationTargetException, IllegalAccessException {
+		if (intSetter == null) {
+			set(target, value);
+			return;
+		}
+		try {
+			intSetter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	@Override
+	public void setBoolean(Object target, boolean value) throws InvocationTargetException, IllegalAccessException {
+		if (booleanSetter == null) {
+			set(target, value);
+			return;
+		}
+		try {
+			booleanSetter.invokeExact(target, value);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	private InvocationTargetException rethrow(Throwable e) {
+		if (e instanceof RuntimeException)
+			throw (RuntimeException) e;
+		if (e instanceof Error)
+			throw (Error) e;
+		return new InvocationTargetException(e, name);
+	}
+}
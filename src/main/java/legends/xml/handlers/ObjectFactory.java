@@ -0,0 +1,5 @@
+package legends.xml.handlers;
+
+public interface ObjectFactory {
+	Object create() throws InstantiationException, IllegalAccessException;
+}
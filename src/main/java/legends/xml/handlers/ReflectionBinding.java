@@ -0,0 +1,51 @@
+package legends.xml.handlers;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+public class ReflectionBinding implements Binding {
+	private Field field;
+	private Method method;
+
+	public ReflectionBinding(Field field) {
+		this.field = field;
+		field.setAccessible(true);
+	}
+
+	public ReflectionBinding(Method method) {
+		this.method = method;
+		method.setAccessible(true);
+	}
+
+	@Override
+	public Object get(Object target) throws IllegalAccessException {
+		if (field == null)
+			throw new IllegalAccessException("cannot read from " + method);
+		return field.get(target);
+	}
+
+	@Override
+	public void set(Object target, Object value) throws InvocationTargetException, IllegalAccessException {
+		if (field != null)
+			field.set(target, value);
+		else
+			method.invoke(target, value);
+	}
+
+	@Override
+	public void setInt(Object target, int value) throws InvocationTargetException, IllegalAccessException {
+		if (field != null)
+			field.setInt(target, value);
+		else
+			method.invoke(target, value);
+	}
+
+	@Override
+	public void setBoolean(Object target, boolean value) throws InvocationTargetException, IllegalAccessException {
+		if (field != null)
+			field.setBoolean(target, value);
+		else
+			method.invoke(target, value);
+	}
+}
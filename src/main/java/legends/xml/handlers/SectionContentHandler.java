@@ -0,0 +1,40 @@
+package legends.xml.handlers;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * Document handler for a single section of a file, pushes the section
+ * handler for the root element.
+ */
+public class SectionContentHandler extends StackContentHandler {
+	private static final Log LOG = LogFactory.getLog(SectionContentHandler.class);
+
+	private StackContentHandler sectionHandler;
+
+	public SectionContentHandler(StackContentHandler sectionHandler) {
+		super("");
+		this.sectionHandler = sectionHandler;
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+		super.startElement(uri, localName, qName, atts);
+
+		if (localName.equals(sectionHandler.getName())) {
+			pushContentHandler(sectionHandler);
+		} else {
+			LOG.warn("unknown section: " + localName);
+		}
+	}
+
+	@Override
+	public Collection<StackContentHandler> getSubHandlers() {
+		return Arrays.asList(sectionHandler);
+	}
+}
@@ -1,5 +1,6 @@
 package legends.xml.handlers;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -19,7 +20,12 @@ public class StackContentHandler implements ContentHandler {
 	protected String name;
 	protected MethodConsumer consumer;
 
-	protected String value;
+	/**
+	 * Text of the current element, reused for all elements so only consumers
+	 * that need a String create one.
+	 */
+	protected char[] text = new char[256];
+	protected int textLength;
 
 	public StackContentHandler(String name) {
 		this.name = name;
@@ -67,7 +73,7 @@ public class StackContentHandler implements ContentHandler {
 
 	@Override
 	public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
-		value = "";
+		textLength = 0;
 	}
 
 	@Override
@@ -76,13 +82,20 @@ public class StackContentHandler implements ContentHandler {
 			consume();
 			popContentHandler();
 		} else {
-			LOG.warn(name + " - unknown element: " + localName + " = " + value);
+			LOG.warn(name + " - unknown element: " + localName + " = " + getValue());
 		}
 	}
 
 	@Override
 	public void characters(char[] ch, int start, int length) throws SAXException {
-		value += new String(ch, start, length);
+		if (textLength + length > text.length)
+			text = Arrays.copyOf(text, Math.max(textLength + length, text.length * 2));
+		System.arraycopy(ch, start, text, textLength, length);
+		textLength += length;
+	}
+
+	public String getValue() {
+		return textLength == 0 ? "" : new String(text, 0, textLength);
 	}
 
 	@Override
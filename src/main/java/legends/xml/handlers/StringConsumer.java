@@ -5,4 +5,9 @@ import java.lang.reflect.InvocationTargetException;
 public interface StringConsumer {
 	public void accept(String string)
 			throws InvocationTargetException, IllegalAccessException, IllegalArgumentException;
+
+	public default void accept(char[] ch, int start, int length)
+			throws InvocationTargetException, IllegalAccessException, IllegalArgumentException {
+		accept(new String(ch, start, length));
+	}
 }
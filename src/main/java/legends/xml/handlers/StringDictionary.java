@@ -0,0 +1,74 @@
+package legends.xml.handlers;
+
+/**
+ * Shares one String instance per distinct value of low-cardinality elements
+ * like races or types.
+ *
+ * Lookups compare the characters of the element directly, so repeated values
+ * create no String at all. New values are interned, so all dictionaries hand
+ * out the same instance. Once the limit is reached new values are no longer
+ * added and simply returned as new Strings.
+ */
+public class StringDictionary {
+	private static final int LIMIT = 4096;
+
+	private String[] strings = new String[64];
+	private int size = 0;
+
+	public String get(String string) {
+		return get(string.toCharArray(), 0, string.length());
+	}
+
+	public String get(char[] ch, int start, int length) {
+		int hash = 0;
+		for (int i = start; i < start + length; i++)
+			hash = 31 * hash + ch[i];
+
+		int mask = strings.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			String string = strings[slot];
+			if (string == null)
+				return add(slot, ch, start, length);
+			if (matches(string, ch, start, length))
+				return string;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private static boolean matches(String string, char[] ch, int start, int length) {
+		if (string.length() != length)
+			return false;
+		for (int i = 0; i < length; i++)
+			if (string.charAt(i) != ch[start + i])
+				return false;
+		return true;
+	}
+
+	private String add(int slot, char[] ch, int start, int length) {
+		String string = new String(ch, start, length);
+		if (size >= LIMIT)
+			return string;
+		string = string.intern();
+		strings[slot] = string;
+		if (++size * 2 > strings.length)
+			resize();
+		return string;
+	}
+
+	private void resize() {
+		String[] oldStrings = strings;
+		strings = new String[oldStrings.length * 2];
+		int mask = strings.length - 1;
+		for (String string : oldStrings) {
+			if (string == null)
+				continue;
+			int slot = string.hashCode() & mask;
+			while (strings[slot] != null)
+				slot = (slot + 1) & mask;
+			strings[slot] = string;
+		}
+	}
+}
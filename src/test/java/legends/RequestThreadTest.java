@@ -0,0 +1,34 @@
+package legends;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class RequestThreadTest {
+	@Test
+	public void testParseRange() {
+		assertArrayEquals(new long[] { 0, 99 }, RequestThread.parseRange("bytes=0-99", 1000));
+		assertArrayEquals(new long[] { 500, 999 }, RequestThread.parseRange("bytes=500-", 1000));
+		assertArrayEquals(new long[] { 900, 999 }, RequestThread.parseRange("bytes=-100", 1000));
+		assertArrayEquals(new long[] { 0, 999 }, RequestThread.parseRange("bytes=-2000", 1000));
+		assertArrayEquals(new long[] { 990, 999 }, RequestThread.parseRange("bytes=990-2000", 1000));
+	}
+
+	@Test
+	public void testUnsatisfiableRange() {
+		assertArrayEquals(new long[0], RequestThread.parseRange("bytes=1000-", 1000));
+		assertArrayEquals(new long[0], RequestThread.parseRange("bytes=-0", 1000));
+		assertArrayEquals(new long[0], RequestThread.parseRange("bytes=0-10", 0));
+	}
+
+	@Test
+	public void testIgnoredRange() {
+		assertNull(RequestThread.parseRange(null, 1000));
+		assertNull(RequestThread.parseRange("items=0-10", 1000));
+		assertNull(RequestThread.parseRange("bytes=0-10,20-30", 1000));
+		assertNull(RequestThread.parseRange("bytes=10-5", 1000));
+		assertNull(RequestThread.parseRange("bytes=a-5", 1000));
+		assertNull(RequestThread.parseRange("bytes=5", 1000));
+	}
+}
@@ -0,0 +1,41 @@
+package legends;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import legends.helper.WorldConfig;
+import legends.model.World;
+
+/**
+ * Compares loading a world from its xml files with loading its snapshot.
+ *
+ * Usage: SnapshotBenchmark &lt;path to legends.xml&gt; [snapshot runs]
+ */
+public class SnapshotBenchmark {
+	public static void main(String[] args) throws Exception {
+		WorldConfig config = new WorldConfig(Paths.get(args[0]));
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		long start = System.nanoTime();
+		World.loadSources(config);
+		long xml = System.nanoTime() - start;
+		System.out.println("xml:      " + xml / 1000000 + " ms");
+
+		start = System.nanoTime();
+		SnapshotWriter.write(config);
+		System.out.println("write:    " + (System.nanoTime() - start) / 1000000 + " ms, "
+				+ Files.size(config.getSnapshotPath()) / 1024 + " KB");
+
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < runs; i++) {
+			start = System.nanoTime();
+			if (!SnapshotReader.read(config))
+				throw new IllegalStateException("snapshot not loaded");
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.println("snapshot: " + best / 1000000 + " ms (best of " + runs + ")");
+		System.out.println("speedup:  " + String.format("%.1f", (double) xml / best) + "x");
+		System.out.println(World.getHistoricalFigures().size() + " hfs, " + World.getHistoricalEvents().size()
+				+ " events, " + World.getHistoricalEventCollections().size() + " collections");
+	}
+}
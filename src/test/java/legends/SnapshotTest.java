@@ -0,0 +1,58 @@
+package legends;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import legends.helper.GraphOutput;
+import legends.helper.WorldConfig;
+
+public class SnapshotTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path legends;
+	private WorldConfig config;
+
+	@Before
+	public void setUp() throws IOException {
+		legends = folder.newFile("region1-00250-01-01-legends.xml").toPath();
+		Files.write(legends, "<df_world></df_world>".getBytes());
+		config = new WorldConfig(legends);
+	}
+
+	@Test
+	public void testReadsOwnSnapshot() {
+		SnapshotWriter.write(config);
+		assertTrue(SnapshotReader.read(config));
+	}
+
+	@Test
+	public void testOtherBuildIsRejected() throws IOException {
+		try (GraphOutput out = new GraphOutput(Files.newOutputStream(config.getSnapshotPath()))) {
+			out.writeString("other/build");
+		}
+		assertFalse(SnapshotReader.read(config));
+	}
+
+	@Test
+	public void testChangedSourceIsRejected() throws IOException {
+		SnapshotWriter.write(config);
+		Files.write(legends, "<df_world><name>x</name></df_world>".getBytes());
+		assertFalse(SnapshotReader.read(config));
+	}
+
+	@Test
+	public void testOtherFormatIsRejected() throws IOException {
+		Files.write(config.getSnapshotPath(), new byte[] { 0x4C, 0x42, 0x53, 0x47, 0, 0, 0, 0 });
+		assertFalse(SnapshotReader.read(config));
+	}
+}
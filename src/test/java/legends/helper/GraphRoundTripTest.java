@@ -0,0 +1,344 @@
+package legends.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.reflections.Reflections;
+import org.reflections.scanners.FieldAnnotationsScanner;
+import org.reflections.scanners.MethodAnnotationsScanner;
+import org.reflections.scanners.SubTypesScanner;
+
+import legends.model.World;
+import legends.model.collections.basic.EventCollection;
+import legends.model.events.basic.Event;
+import legends.xml.annotation.Xml;
+
+/**
+ * Writes every class mapped from the xml files, with all fields set to
+ * values other than their defaults, and compares what is read back.
+ */
+public class GraphRoundTripTest {
+	private static final CodeSource MAIN = World.class.getProtectionDomain().getCodeSource();
+
+	private static Reflections reflections;
+	private static Set<Class<?>> xmlClasses = new HashSet<>();
+
+	private int counter = 0;
+	private Set<Object> filled = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	@BeforeClass
+	public static void findClasses() {
+		reflections = new Reflections("legends", new FieldAnnotationsScanner(), new MethodAnnotationsScanner(),
+				new SubTypesScanner());
+		Stream.concat(reflections.getFieldsAnnotatedWith(Xml.class).stream(),
+				reflections.getMethodsAnnotatedWith(Xml.class).stream()).map(Member::getDeclaringClass)
+				.forEach(xmlClasses::add);
+		xmlClasses.addAll(reflections.getSubTypesOf(Event.class));
+		xmlClasses.addAll(reflections.getSubTypesOf(EventCollection.class));
+		xmlClasses.removeIf(c -> !isInstantiable(c) || !MAIN.equals(c.getProtectionDomain().getCodeSource()));
+	}
+
+	private static boolean isInstantiable(Class<?> c) {
+		return !c.isInterface() && !Modifier.isAbstract(c.getModifiers()) && !c.isEnum();
+	}
+
+	@Test
+	public void testClassesFound() {
+		assertTrue(xmlClasses.size() > 100);
+		assertTrue(xmlClasses.contains(legends.model.HistoricalFigure.class));
+		assertTrue(xmlClasses.contains(legends.model.events.HfDiedEvent.class));
+		assertTrue(xmlClasses.contains(legends.model.collections.WarCollection.class));
+	}
+
+	@Test
+	public void testXmlClasses() throws Exception {
+		List<Object> objects = new ArrayList<>();
+		for (Class<?> c : xmlClasses)
+			objects.add(create(c, 1));
+
+		List<?> read = (List<?>) roundTrip(objects);
+		assertEquals(objects.size(), read.size());
+		for (int i = 0; i < objects.size(); i++)
+			compare(objects.get(i).getClass().getName(), objects.get(i), read.get(i), new IdentityHashMap<>());
+	}
+
+	@Test
+	public void testSharedObjectsStayShared() throws Exception {
+		legends.model.HistoricalFigure hf = new legends.model.HistoricalFigure();
+		List<?> read = (List<?>) roundTrip(Arrays.asList(hf, hf));
+		assertSame(read.get(0), read.get(1));
+	}
+
+	/**
+	 * Collections are written inline without a handle, so a collection held
+	 * by two owners comes back as two copies, and lists of any kind come
+	 * back as ArrayList.
+	 */
+	@Test
+	public void testCollectionsAreCopied() throws Exception {
+		List<String> shared = new ArrayList<>(Arrays.asList("a", "b"));
+		List<?> read = (List<?>) roundTrip(Arrays.asList(shared, shared));
+		assertEquals(shared, read.get(0));
+		assertEquals(shared, read.get(1));
+		assertNotSame(read.get(0), read.get(1));
+
+		Object unmodifiable = roundTrip(Collections.unmodifiableList(shared));
+		assertEquals(ArrayList.class, unmodifiable.getClass());
+		assertEquals(shared, unmodifiable);
+		assertEquals(ArrayList.class, roundTrip(Arrays.asList("a", "b")).getClass());
+		assertEquals(LinkedList.class, roundTrip(new LinkedList<>(shared)).getClass());
+		assertEquals(HashSet.class, roundTrip(Collections.unmodifiableSet(new HashSet<>(shared))).getClass());
+	}
+
+	@Test
+	public void testOtherVersionIsRejected() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(GraphFormat.MAGIC);
+		out.writeInt(GraphFormat.VERSION + 1);
+		assertRejected(bytes.toByteArray(), "unsupported snapshot version");
+
+		bytes.reset();
+		out.writeInt(0);
+		out.writeInt(GraphFormat.VERSION);
+		assertRejected(bytes.toByteArray(), "not a snapshot file");
+	}
+
+	private static void assertRejected(byte[] bytes, String message) {
+		try (GraphInput in = new GraphInput(new ByteArrayInputStream(bytes))) {
+			fail("read " + message);
+		} catch (IOException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+
+	private static Object roundTrip(Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GraphOutput out = new GraphOutput(bytes)) {
+			out.writeObject(value);
+		}
+		try (GraphInput in = new GraphInput(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return in.readObject();
+		}
+	}
+
+	/**
+	 * Creates an object with all fields set, objects it refers to are
+	 * created down to the given depth.
+	 */
+	private Object create(Class<?> c, int depth) throws ReflectiveOperationException {
+		Constructor<?> constructor = c.getDeclaredConstructor();
+		constructor.setAccessible(true);
+		Object object = constructor.newInstance();
+		for (Field field : GraphFormat.getFields(c)) {
+			Object value = value(field.getType(), field.getGenericType(), depth);
+			if (value == null)
+				fail("cannot set " + field);
+			field.set(object, value);
+		}
+		filled.add(object);
+		return object;
+	}
+
+	private Object value(Class<?> type, Type genericType, int depth) throws ReflectiveOperationException {
+		int n = ++counter;
+		if (type == int.class || type == Integer.class)
+			return n;
+		if (type == long.class || type == Long.class)
+			return (long) n << 33;
+		if (type == short.class || type == Short.class)
+			return (short) n;
+		if (type == byte.class || type == Byte.class)
+			return (byte) n;
+		if (type == double.class || type == Double.class)
+			return n + 0.5;
+		if (type == float.class || type == Float.class)
+			return n + 0.25f;
+		if (type == boolean.class || type == Boolean.class)
+			return true;
+		if (type == char.class || type == Character.class)
+			return (char) ('a' + n % 26);
+		if (type == String.class || type == Object.class)
+			return "value " + n;
+		if (type.isEnum())
+			return type.getEnumConstants()[type.getEnumConstants().length - 1];
+		if (type == int[].class)
+			return new int[] { n, -n };
+		if (type == int[][].class)
+			return new int[][] { { n }, null, {} };
+		if (Collection.class.isAssignableFrom(type)) {
+			Collection<Object> collection = newCollection(type);
+			collection.add(value(typeArgument(genericType, 0), null, depth));
+			return collection;
+		}
+		if (Map.class.isAssignableFrom(type)) {
+			Map<Object, Object> map = newMap(type);
+			map.put(type == IdMap.class ? n : value(typeArgument(genericType, 0), null, depth),
+					value(typeArgument(genericType, type == IdMap.class ? 0 : 1), null, depth));
+			return map;
+		}
+		if (GraphFormat.isGraphClass(type)) {
+			Class<?> concrete = concrete(type);
+			if (concrete == null)
+				return null;
+			if (depth > 0)
+				return create(concrete, depth - 1);
+			Constructor<?> constructor = concrete.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return constructor.newInstance();
+		}
+		return null;
+	}
+
+	private static Class<?> concrete(Class<?> type) {
+		if (isInstantiable(type))
+			return type;
+		return reflections.getSubTypesOf(type).stream().filter(GraphRoundTripTest::isInstantiable)
+				.filter(c -> MAIN.equals(c.getProtectionDomain().getCodeSource()))
+				.sorted((c1, c2) -> c1.getName().compareTo(c2.getName())).findFirst().orElse(null);
+	}
+
+	private static Class<?> typeArgument(Type genericType, int i) {
+		if (genericType instanceof ParameterizedType) {
+			Type argument = ((ParameterizedType) genericType).getActualTypeArguments()[i];
+			if (argument instanceof Class)
+				return (Class<?>) argument;
+			if (argument instanceof ParameterizedType)
+				return (Class<?>) ((ParameterizedType) argument).getRawType();
+		}
+		return String.class;
+	}
+
+	private static Collection<Object> newCollection(Class<?> type) {
+		if (type.isAssignableFrom(ArrayList.class))
+			return new ArrayList<>();
+		if (type.isAssignableFrom(LinkedList.class))
+			return new LinkedList<>();
+		if (type.isAssignableFrom(LinkedHashSet.class))
+			return new LinkedHashSet<>();
+		if (type.isAssignableFrom(TreeSet.class))
+			return new TreeSet<>();
+		throw new IllegalArgumentException("collection " + type);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<Object, Object> newMap(Class<?> type) {
+		if (type == IdMap.class)
+			return (Map<Object, Object>) (Map<?, ?>) new IdMap<Object>();
+		if (type.isAssignableFrom(LinkedHashMap.class))
+			return new LinkedHashMap<>();
+		if (type.isAssignableFrom(TreeMap.class))
+			return new TreeMap<>();
+		throw new IllegalArgumentException("map " + type);
+	}
+
+	/**
+	 * Compares the graphs field by field, objects seen twice have to be read
+	 * as the same instance.
+	 */
+	private void compare(String path, Object expected, Object actual, Map<Object, Object> seen)
+			throws IllegalAccessException {
+		compare(path, expected, actual, seen, true);
+	}
+
+	private void compare(String path, Object expected, Object actual, Map<Object, Object> seen, boolean set)
+			throws IllegalAccessException {
+		if (expected == null) {
+			assertNull(path, actual);
+			return;
+		}
+		if (actual == null)
+			fail(path + " is null");
+		Class<?> type = expected.getClass();
+		if (GraphFormat.isGraphClass(type)) {
+			assertEquals(path, type, actual.getClass());
+			Object before = seen.put(expected, actual);
+			if (before != null) {
+				assertSame(path, before, actual);
+				return;
+			}
+			for (Field field : GraphFormat.getFields(type))
+				compare(path + "." + field.getName(), field.get(expected), field.get(actual), seen,
+						filled.contains(expected));
+		} else if (expected instanceof List) {
+			assertEquals(path, type, actual.getClass());
+			List<?> list = (List<?>) expected;
+			assertEquals(path, list.size(), ((List<?>) actual).size());
+			for (int i = 0; i < list.size(); i++)
+				compare(path + "[" + i + "]", list.get(i), ((List<?>) actual).get(i), seen);
+		} else if (expected instanceof Set) {
+			assertEquals(path, expected instanceof SortedSet ? TreeSet.class : type, actual.getClass());
+			Iterator<?> it = ((Set<?>) actual).iterator();
+			for (Object element : (Set<?>) expected)
+				compare(path + "[]", element, it.next(), seen);
+		} else if (expected instanceof Map) {
+			assertEquals(path, expected instanceof SortedMap ? TreeMap.class : type, actual.getClass());
+			Iterator<? extends Map.Entry<?, ?>> it = ((Map<?, ?>) actual).entrySet().iterator();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) expected).entrySet()) {
+				Map.Entry<?, ?> other = it.next();
+				compare(path + ".key", entry.getKey(), other.getKey(), seen);
+				compare(path + "[" + entry.getKey() + "]", entry.getValue(), other.getValue(), seen);
+			}
+		} else if (expected instanceof int[]) {
+			assertArrayEquals(path, (int[]) expected, (int[]) actual);
+		} else if (expected instanceof int[][]) {
+			assertTrue(path, Arrays.deepEquals((int[][]) expected, (int[][]) actual));
+		} else {
+			assertEquals(path, expected, actual);
+			if (set)
+				assertNotEquals(path + " has its default value", defaultValue(type), actual);
+		}
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		Map<Class<?>, Object> defaults = new HashMap<>();
+		defaults.put(Integer.class, 0);
+		defaults.put(Long.class, 0L);
+		defaults.put(Short.class, (short) 0);
+		defaults.put(Byte.class, (byte) 0);
+		defaults.put(Double.class, 0.0);
+		defaults.put(Float.class, 0.0f);
+		defaults.put(Character.class, '\0');
+		defaults.put(Boolean.class, false);
+		return defaults.get(type);
+	}
+}
@@ -0,0 +1,63 @@
+package legends.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class IdMapTest {
+	@Test
+	public void testDenseAndOverflowIds() {
+		IdMap<String> map = new IdMap<>();
+		map.put(3, "c");
+		map.put(1000000, "big");
+		map.put(-1, "unknown");
+		map.put(0, "a");
+		map.put(1, "b");
+
+		assertEquals(5, map.size());
+		assertEquals("c", map.get(3));
+		assertEquals("big", map.get(1000000));
+		assertEquals("unknown", map.get(Integer.valueOf(-1)));
+		assertNull(map.get(2));
+		assertEquals("x", map.getOrDefault(2, "x"));
+		assertEquals(Arrays.asList(-1, 0, 1, 3, 1000000), new ArrayList<>(map.keySet()));
+		assertEquals(Arrays.asList("unknown", "a", "b", "c", "big"), new ArrayList<>(map.values()));
+	}
+
+	@Test
+	public void testOverflowMovesIntoArray() {
+		IdMap<String> map = new IdMap<>();
+		map.put(100, "100");
+		for (int i = 0; i < 100; i++)
+			map.put(i, String.valueOf(i));
+		assertEquals("100", map.put(100, "new"));
+		assertEquals(101, map.size());
+
+		List<String> values = new ArrayList<>(map.values());
+		for (int i = 0; i < 100; i++)
+			assertEquals(String.valueOf(i), values.get(i));
+		assertEquals("new", values.get(100));
+	}
+
+	@Test
+	public void testRemove() {
+		IdMap<String> map = new IdMap<>();
+		map.put(0, "a");
+		map.put(1, "b");
+		map.put(-5, "c");
+		assertEquals("b", map.remove(1));
+		assertNull(map.remove(1));
+
+		Iterator<String> it = map.values().iterator();
+		assertEquals("c", it.next());
+		it.remove();
+		assertEquals(Arrays.asList("a"), new ArrayList<>(map.values()));
+		assertEquals(1, map.size());
+	}
+}
@@ -0,0 +1,61 @@
+package legends.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import legends.helper.PageCache.Page;
+
+public class PageCacheTest {
+	@Before
+	public void setUp() {
+		PageCache.setMaxSize(8192);
+		PageCache.clear();
+	}
+
+	@After
+	public void tearDown() {
+		PageCache.setMaxSize(64L << 20);
+		PageCache.clear();
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		int generation = PageCache.getGeneration();
+		for (int i = 0; i < 7; i++)
+			PageCache.put("/" + i, generation, new Page(new byte[1000], "text/html"));
+		assertEquals(7, PageCache.getPages());
+		assertNotNull(PageCache.get("/0"));
+
+		long evictions = PageCache.getEvictions();
+		PageCache.put("/7", generation, new Page(new byte[1000], "text/html"));
+		assertEquals(7, PageCache.getPages());
+		assertEquals(evictions + 1, PageCache.getEvictions());
+		assertNull(PageCache.get("/1"));
+		assertNotNull(PageCache.get("/0"));
+		assertNotNull(PageCache.get("/7"));
+	}
+
+	@Test
+	public void testLargePagesAreNotCached() {
+		PageCache.put("/large", PageCache.getGeneration(),
+				new Page(new byte[PageCache.getMaxPageSize() + 1], "text/html"));
+		assertNull(PageCache.get("/large"));
+	}
+
+	@Test
+	public void testClearDropsPagesRenderedBefore() {
+		int generation = PageCache.getGeneration();
+		PageCache.put("/a", generation, new Page(new byte[10], "text/html"));
+		PageCache.clear();
+		assertNull(PageCache.get("/a"));
+		assertEquals(0, PageCache.getSize());
+
+		PageCache.put("/b", generation, new Page(new byte[10], "text/html"));
+		assertNull(PageCache.get("/b"));
+	}
+}
@@ -0,0 +1,76 @@
+package legends.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FamilyGraphTest {
+	private List<HistoricalFigure> hfs = new ArrayList<>();
+	private FamilyGraph graph;
+
+	@Before
+	public void setUp() {
+		for (int i = 0; i < 6; i++) {
+			HistoricalFigure hf = new HistoricalFigure();
+			hf.setId(i);
+			hf.setBirthYear(10 * i);
+			hfs.add(hf);
+		}
+		link(0, "spouse", 1);
+		link(1, "spouse", 0);
+		link(0, "child", 4);
+		link(0, "child", 2);
+		link(0, "child", 3);
+		link(0, "child", 99);
+		for (int child = 2; child <= 4; child++) {
+			link(child, "father", 0);
+			link(child, "mother", 1);
+		}
+		link(5, "spouse", 4);
+		link(5, "spouse", 3);
+		graph = new FamilyGraph(hfs);
+	}
+
+	private void link(int hf, String type, int other) {
+		HistoricalFigureLink link = new HistoricalFigureLink();
+		link.setLinkType(type);
+		link.setHistoricalFigureId(other);
+		hfs.get(hf).getHistoricalFigureLinks().add(link);
+	}
+
+	private static List<Integer> ids(List<HistoricalFigure> hfs) {
+		return hfs.stream().map(HistoricalFigure::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testRelations() {
+		assertEquals(0, graph.getFather(hfs.get(3)).getId());
+		assertEquals(1, graph.getMother(hfs.get(3)).getId());
+		assertEquals(1, graph.getSpouse(hfs.get(0)).getId());
+		assertEquals(3, graph.getSpouse(hfs.get(5)).getId());
+		assertEquals(-1, graph.getFather(hfs.get(0)).getId());
+	}
+
+	@Test
+	public void testChildrenByAge() {
+		assertEquals(Arrays.asList(2, 3, 4), ids(graph.getChildren(hfs.get(0))));
+		assertTrue(graph.getChildren(hfs.get(2)).isEmpty());
+		assertTrue(graph.hasChildren(hfs.get(0)));
+		assertTrue(graph.hasParents(hfs.get(2)));
+		assertFalse(graph.hasParents(hfs.get(0)));
+	}
+
+	@Test
+	public void testUnknown() {
+		assertTrue(graph.getChildren(World.UNKNOWN_HISTORICAL_FIGURE).isEmpty());
+		assertEquals(-1, graph.getSpouse(World.UNKNOWN_HISTORICAL_FIGURE).getId());
+	}
+}
@@ -0,0 +1,72 @@
+package legends.model;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import legends.model.HistoricalFigureIndex.Flag;
+import legends.model.HistoricalFigureIndex.Query;
+import legends.model.HistoricalFigureIndex.Sort;
+
+/**
+ * Filters and sorts made up historical figures like /hfs did, by looking at
+ * every figure and sorting the matches, and with the index, which also
+ * counts the facets. Reports the time per list.
+ *
+ * Usage: HistoricalFigureIndexBenchmark [figures] [rounds]
+ */
+public class HistoricalFigureIndexBenchmark {
+	private static final String[] RACES = { "dwarf", "elf", "human", "goblin", "kobold", "dragon", "giant" };
+
+	public static void main(String[] args) {
+		int figures = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		Random random = new Random(42);
+		List<HistoricalFigure> hfs = new ArrayList<>();
+		for (int i = 0; i < figures; i++) {
+			HistoricalFigure hf = new HistoricalFigure();
+			hf.setId(i);
+			hf.setName("urist " + Integer.toString(random.nextInt(), 36));
+			hf.setRace(RACES[random.nextInt(RACES.length)]);
+			hf.setDeity(random.nextInt(100) == 0);
+			hf.setLeader(random.nextInt(20) == 0);
+			hf.setBirthYear(random.nextInt(250));
+			hf.setDeathYear(random.nextBoolean() ? -1 : 250);
+			hf.setKills(random.nextInt(5));
+			hfs.add(hf);
+		}
+		long start = System.currentTimeMillis();
+		HistoricalFigureIndex index = new HistoricalFigureIndex(hfs);
+		System.out.println("index built in " + (System.currentTimeMillis() - start) + " ms");
+
+		Set<Flag> flags = EnumSet.of(Flag.ALIVE);
+		for (int round = 0; round < rounds; round++) {
+			start = System.nanoTime();
+			List<HistoricalFigure> scanned = hfs.stream()
+					.filter(hf -> hf.getDeathYear() == -1 && "dwarf".equals(hf.getRace()))
+					.sorted((h1, h2) -> h1.getName().compareToIgnoreCase(h2.getName())).collect(Collectors.toList());
+			long scan = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			Query query = index.query(flags, "dwarf");
+			List<HistoricalFigure> page = query.getPage(Sort.NAME, 0, 100);
+			query.getFlagCounts();
+			query.getRaceCounts();
+			long indexed = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			List<HistoricalFigure> lastPage = query.getPage(Sort.NAME, query.getCount() - 100, 100);
+			long last = System.nanoTime() - start;
+
+			System.out.println(String.format(
+					"round %d: %d matches, scan and sort %.1f ms, index with facets %.2f ms, last page %.2f ms",
+					round, scanned.size(), scan / 1e6, indexed / 1e6, last / 1e6)
+					+ (page.get(0) == scanned.get(0) && lastPage.get(99) == scanned.get(scanned.size() - 1) ? ""
+							: " MISMATCH"));
+		}
+	}
+}
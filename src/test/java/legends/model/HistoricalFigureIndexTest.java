@@ -0,0 +1,70 @@
+package legends.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import legends.model.HistoricalFigureIndex.Flag;
+import legends.model.HistoricalFigureIndex.Query;
+import legends.model.HistoricalFigureIndex.Sort;
+
+public class HistoricalFigureIndexTest {
+	private HistoricalFigureIndex index;
+
+	@Before
+	public void setUp() {
+		List<HistoricalFigure> hfs = new ArrayList<>();
+		for (int i = 0; i < 130; i++) {
+			HistoricalFigure hf = new HistoricalFigure();
+			hf.setId(i);
+			hf.setName("hf " + (900 - i));
+			hf.setRace(i % 3 == 0 ? "dwarf" : i % 3 == 1 ? "elf" : null);
+			hf.setDeity(i % 2 == 0);
+			hf.setKills(i % 10);
+			hf.setDeathYear(i < 100 ? -1 : i);
+			hfs.add(hf);
+		}
+		index = new HistoricalFigureIndex(hfs);
+	}
+
+	private static List<Integer> ids(List<HistoricalFigure> hfs) {
+		return hfs.stream().map(HistoricalFigure::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testFilters() {
+		assertEquals(130, index.query(EnumSet.noneOf(Flag.class), null).getCount());
+		assertEquals(65, index.query(EnumSet.of(Flag.DEITY), "").getCount());
+		assertEquals(50, index.query(EnumSet.of(Flag.DEITY, Flag.ALIVE), null).getCount());
+		assertEquals(17, index.query(EnumSet.of(Flag.DEITY, Flag.ALIVE), "dwarf").getCount());
+		assertEquals(43, index.query(EnumSet.noneOf(Flag.class), HistoricalFigureIndex.UNKNOWN_RACE).getCount());
+		assertEquals(0, index.query(EnumSet.of(Flag.GHOST), null).getCount());
+		assertEquals(0, index.query(EnumSet.noneOf(Flag.class), "goblin").getCount());
+	}
+
+	@Test
+	public void testPages() {
+		Query query = index.query(EnumSet.of(Flag.DEITY), null);
+		assertEquals(Arrays.asList(0, 2, 4), ids(query.getPage(null, 0, 3)));
+		assertEquals(Arrays.asList(126, 128), ids(query.getPage(null, 63, 100)));
+		assertEquals(Arrays.asList(128, 126, 124), ids(query.getPage(Sort.NAME, 0, 3)));
+		assertEquals(Arrays.asList(8, 18, 28), ids(query.getPage(Sort.KILLS, 0, 3)));
+		assertEquals(Arrays.asList(), ids(query.getPage(Sort.BIRTH, 65, 10)));
+	}
+
+	@Test
+	public void testFacetCounts() {
+		Query query = index.query(EnumSet.of(Flag.ALIVE), "elf");
+		assertEquals(Integer.valueOf(33), query.getFlagCounts().get("alive"));
+		assertEquals(Integer.valueOf(16), query.getFlagCounts().get("deity"));
+		assertEquals(Integer.valueOf(34), query.getRaceCounts().get("dwarf"));
+		assertEquals(Integer.valueOf(33), query.getRaceCounts().get("elf"));
+	}
+}
@@ -0,0 +1,53 @@
+package legends.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Sorts historical figures by their names the way /hfs?sort=name does and
+ * reports the time per sort. The names are made up like the raw names of a
+ * legends export: lower case with quoted nicknames.
+ *
+ * Usage: NameSortBenchmark [figures] [rounds]
+ */
+public class NameSortBenchmark {
+	private static final String[] SYLLABLES = { "ur", "ist", "mo", "sar", "ed", "tun", "kol", "ath", "ez", "om",
+			"rak", "ber", "lok", "del", "ast" };
+
+	public static void main(String[] args) {
+		int figures = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+		Random random = new Random(42);
+		List<HistoricalFigure> hfs = new ArrayList<>();
+		for (int i = 0; i < figures; i++) {
+			HistoricalFigure hf = new HistoricalFigure();
+			hf.setId(i);
+			String name = word(random) + " " + word(random) + word(random);
+			if (random.nextInt(4) == 0)
+				name += " `the " + word(random) + "'";
+			hf.setName(name);
+			hfs.add(hf);
+		}
+
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			List<HistoricalFigure> sorted = hfs.stream()
+					.sorted((h1, h2) -> h1.getName().compareToIgnoreCase(h2.getName())).collect(Collectors.toList());
+			long time = System.nanoTime() - start;
+			if (round >= rounds / 2 || round == 0)
+				System.out.println(String.format("round %d: %d figures sorted in %.1f ms, first %s", round,
+						sorted.size(), time / 1e6, sorted.get(0).getName()));
+		}
+	}
+
+	private static String word(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int n = 1 + random.nextInt(3);
+		for (int i = 0; i < n; i++)
+			sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		return sb.toString();
+	}
+}
@@ -0,0 +1,81 @@
+package legends.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Types queries into a search index of made up names one key at a time,
+ * like the typeahead of the search field, and compares the time per query
+ * with scanning all names. Then searches misspelled names with fuzzy
+ * matching.
+ *
+ * Usage: SearchIndexBenchmark [names] [rounds]
+ */
+public class SearchIndexBenchmark {
+	private static final String[] SYLLABLES = { "ur", "ist", "mo", "sar", "ed", "tun", "kol", "ath", "ez", "om",
+			"rak", "ber", "lok", "del", "ast" };
+	private static final String[] QUERIES = { "urist", "the kol", "mosar", "dellok", "zzz" };
+	private static final String[] MISSPELLED = { "edkol", "tunber sarlok", "mosra", "dellokez", "athom ursit" };
+
+	public static void main(String[] args) {
+		int names = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		Random random = new Random(42);
+		List<HistoricalFigure> hfs = new ArrayList<>();
+		SearchIndex.Builder builder = new SearchIndex.Builder();
+		for (int i = 0; i < names; i++) {
+			HistoricalFigure hf = new HistoricalFigure();
+			hf.setId(i);
+			String name = word(random) + " " + word(random) + word(random);
+			if (random.nextInt(4) == 0)
+				name += " the " + word(random);
+			hf.setName(name);
+			hfs.add(hf);
+			builder.add(hf, hf.getName());
+		}
+		SearchIndex index = builder.build();
+
+		for (int round = 0; round < rounds; round++) {
+			long scan = 0, indexed = 0;
+			int queries = 0;
+			for (String query : QUERIES) {
+				for (int length = 1; length <= query.length(); length++) {
+					String q = query.substring(0, length);
+					long start = System.nanoTime();
+					hfs.stream().filter(e -> e.getName().toLowerCase().contains(q))
+							.collect(Collectors.toList());
+					long middle = System.nanoTime();
+					index.search(q, SearchIndex.DEFAULT_LIMIT);
+					long end = System.nanoTime();
+					scan += middle - start;
+					indexed += end - middle;
+					queries++;
+				}
+			}
+			long fuzzy = 0, slowest = 0;
+			int results = 0;
+			for (String query : MISSPELLED) {
+				long start = System.nanoTime();
+				results += index.search(query, SearchIndex.DEFAULT_LIMIT, true).size();
+				long time = System.nanoTime() - start;
+				fuzzy += time;
+				slowest = Math.max(slowest, time);
+			}
+			System.out.println(String.format(
+					"round %d: %d queries, scan %.2f ms/query, index %.3f ms/query, fuzzy %.2f ms/query (slowest %.2f ms, %d results)",
+					round, queries, scan / 1e6 / queries, indexed / 1e6 / queries, fuzzy / 1e6 / MISSPELLED.length,
+					slowest / 1e6, results));
+		}
+	}
+
+	private static String word(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int n = 1 + random.nextInt(3);
+		for (int i = 0; i < n; i++)
+			sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		return sb.toString();
+	}
+}
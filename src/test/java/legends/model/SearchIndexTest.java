@@ -0,0 +1,100 @@
+package legends.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchIndexTest {
+	private SearchIndex index;
+
+	@Before
+	public void setUp() {
+		SearchIndex.Builder builder = new SearchIndex.Builder();
+		String[] names = { "The Golden Hammer", "Urist Mcmason", "Hammerfall", "Dumathammer", "Hammer",
+				"Tun Urist", "Kib Lokum" };
+		for (int i = 0; i < names.length; i++) {
+			Region region = new Region();
+			region.setId(i);
+			region.setName(names[i]);
+			builder.add(region, region.getName());
+		}
+		index = builder.build();
+	}
+
+	private List<String> search(String query, int limit) {
+		return search(query, limit, false);
+	}
+
+	private List<String> search(String query, int limit, boolean fuzzy) {
+		return index.search(query, limit, fuzzy).stream().map(r -> ((Region) r).getName())
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void testRanking() {
+		assertEquals(Arrays.asList("Hammer", "Hammerfall", "The Golden Hammer", "Dumathammer"),
+				search("hammer", 10));
+		assertEquals(Arrays.asList("Hammer", "Hammerfall"), search("HAMMER ", 2));
+	}
+
+	@Test
+	public void testShortQueriesMatchWordStarts() {
+		assertEquals(Arrays.asList("Urist Mcmason", "Tun Urist"), search("u", 10));
+		assertEquals(Arrays.asList("Kib Lokum"), search("lo", 10));
+	}
+
+	@Test
+	public void testSubstrings() {
+		assertEquals(Arrays.asList("Urist Mcmason"), search("mason", 10));
+		assertEquals(Arrays.asList("Tun Urist"), search("n uri", 10));
+		assertEquals(Arrays.asList(), search("xyz", 10));
+		assertEquals(Arrays.asList(), search("", 10));
+	}
+
+	@Test
+	public void testType() {
+		SearchIndex.Builder builder = new SearchIndex.Builder();
+		for (int i = 0; i < 3; i++) {
+			Region region = new Region();
+			region.setName("Hammer " + i);
+			builder.add(region, region.getName());
+		}
+		Site site = new Site();
+		site.setName("Hammerfort");
+		builder.add(site, site.getName());
+		index = builder.build();
+
+		assertEquals(Arrays.asList(site), index.search("hammer", 2, Site.class));
+		assertEquals(Arrays.asList(site), index.search("mmer", 2, Site.class));
+		assertEquals(2, index.search("hammer", 2, Region.class).size());
+	}
+
+	@Test
+	public void testDiacriticsAreFolded() {
+		SearchIndex.Builder builder = new SearchIndex.Builder();
+		Region region = new Region();
+		region.setName("\u00dbrist \u00c6sir");
+		builder.add(region, region.getName());
+		index = builder.build();
+
+		assertEquals(Arrays.asList(region.getName()), search("urist", 10));
+		assertEquals(Arrays.asList(region.getName()), search("aesir", 10));
+		assertEquals(Arrays.asList(region.getName()), search("\u00fbr", 10));
+	}
+
+	@Test
+	public void testFuzzy() {
+		assertEquals(Arrays.asList(), search("urest", 10));
+		assertEquals(Arrays.asList("Tun Urist", "Urist Mcmason"), search("urest", 10, true));
+		assertEquals(Arrays.asList("Tun Urist"), search("tum urist", 10, true));
+		assertEquals(Arrays.asList("Urist Mcmason"), search("uris mcma", 10, true));
+		assertEquals(Arrays.asList("Hammer", "Hammerfall", "The Golden Hammer", "Dumathammer"),
+				search("hammer", 10, true));
+		assertEquals(Arrays.asList("The Golden Hammer"), search("golden hamer", 10, true));
+	}
+}
@@ -0,0 +1,152 @@
+package legends.web;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Replays a browsing session against a running server like a browser with a
+ * cache would: pages are loaded with all linked scripts, stylesheets, images
+ * and the woff2 fonts of the stylesheets. Resources are taken from the cache while
+ * fresh and revalidated with If-None-Match or If-Modified-Since otherwise.
+ * Reports the requests and the bytes transferred, headers included.
+ *
+ * Usage: BrowsingSessionBenchmark [base url] [paths...]
+ */
+public class BrowsingSessionBenchmark {
+	private static final List<String> SESSION = Arrays.asList("/", "/hfs", "/hf/1", "/hf/2", "/sites", "/site/1",
+			"/entities", "/events", "/hf/3", "/");
+
+	private static final Pattern LINK = Pattern.compile("(?:src|href)=\"([^\"]*/(?:resources/|map|sitemap/)[^\"]*)\"");
+	private static final Pattern CSS_URL = Pattern.compile("url\\(['\"]?([^'\")#]+)");
+
+	private static class Entry {
+		String etag;
+		String lastModified;
+		long expires;
+	}
+
+	private final Map<String, Entry> cache = new HashMap<>();
+	private int requests, notModified, fromCache;
+	private long bytes;
+
+	public static void main(String[] args) throws Exception {
+		String base = args.length > 0 ? args[0] : "http://localhost:58881";
+		List<String> session = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : SESSION;
+
+		BrowsingSessionBenchmark browser = new BrowsingSessionBenchmark();
+		for (int visit = 1; visit <= 2; visit++) {
+			browser.requests = browser.notModified = browser.fromCache = 0;
+			browser.bytes = 0;
+			for (String path : session)
+				browser.load(new URL(base + path));
+			System.out.println(String.format(
+					"visit %d: %d pages, %d requests, %d not modified, %d from cache, %.1f KB transferred", visit,
+					session.size(), browser.requests, browser.notModified, browser.fromCache,
+					browser.bytes / 1024.0));
+		}
+	}
+
+	private void load(URL page) throws IOException {
+		byte[] content = fetch(page, false);
+		if (content == null)
+			return;
+		Set<URL> resources = new LinkedHashSet<>();
+		Matcher m = LINK.matcher(new String(content, StandardCharsets.UTF_8));
+		while (m.find())
+			resources.add(new URL(page, m.group(1).replace("&amp;", "&")));
+		for (URL resource : resources) {
+			byte[] resourceContent = fetch(resource, true);
+			if (resourceContent != null && resource.getPath().endsWith(".css")) {
+				Matcher css = CSS_URL.matcher(new String(resourceContent, StandardCharsets.UTF_8));
+				Set<URL> fonts = new LinkedHashSet<>();
+				while (css.find())
+					if (css.group(1).contains(".woff2"))
+						fonts.add(new URL(resource, css.group(1)));
+				for (URL font : fonts)
+					fetch(font, true);
+			}
+		}
+	}
+
+	/**
+	 * @return the content of a 200 response, or null
+	 */
+	private byte[] fetch(URL url, boolean cacheable) throws IOException {
+		Entry entry = cacheable ? cache.get(url.toString()) : null;
+		if (entry != null && entry.expires > System.currentTimeMillis()) {
+			fromCache++;
+			return null;
+		}
+
+		HttpURLConnection c = (HttpURLConnection) url.openConnection();
+		c.setRequestProperty("Accept-Encoding", "gzip, deflate");
+		if (entry != null) {
+			if (entry.etag != null)
+				c.setRequestProperty("If-None-Match", entry.etag);
+			if (entry.lastModified != null)
+				c.setRequestProperty("If-Modified-Since", entry.lastModified);
+		}
+		requests++;
+		int code = c.getResponseCode();
+		for (Map.Entry<String, List<String>> header : c.getHeaderFields().entrySet())
+			for (String value : header.getValue())
+				bytes += (header.getKey() != null ? header.getKey().length() + 2 : 0) + value.length() + 2;
+
+		byte[] content = new byte[0];
+		try (InputStream in = code < 400 ? c.getInputStream() : c.getErrorStream()) {
+			if (in != null)
+				content = readAll(in);
+		}
+		bytes += content.length;
+		if (code == 304) {
+			notModified++;
+			return null;
+		}
+
+		if (cacheable && code == 200) {
+			entry = new Entry();
+			entry.etag = c.getHeaderField("ETag");
+			entry.lastModified = c.getHeaderField("Last-Modified");
+			entry.expires = System.currentTimeMillis() + maxAge(c.getHeaderField("Cache-Control")) * 1000;
+			cache.put(url.toString(), entry);
+		}
+		if ("gzip".equals(c.getContentEncoding()))
+			content = readAll(new GZIPInputStream(new ByteArrayInputStream(content)));
+		else if ("deflate".equals(c.getContentEncoding()))
+			content = readAll(new InflaterInputStream(new ByteArrayInputStream(content)));
+		return code == 200 ? content : null;
+	}
+
+	private static long maxAge(String cacheControl) {
+		if (cacheControl == null)
+			return 0;
+		for (String directive : cacheControl.split(","))
+			if (directive.trim().startsWith("max-age="))
+				return Long.parseLong(directive.trim().substring("max-age=".length()));
+		return 0;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1 << 14];
+		int n;
+		while ((n = in.read(buffer)) != -1)
+			bytes.write(buffer, 0, n);
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,36 @@
+package legends.web;
+
+import java.nio.file.Paths;
+
+import legends.helper.WorldConfig;
+import legends.model.HistoricalFigure;
+import legends.model.World;
+
+/**
+ * Builds and lays out the family tree of every historical figure of a world,
+ * as the page of each figure does when it is not cached.
+ *
+ * Usage: FamilyTreeBenchmark &lt;path to legends.xml&gt; [rounds] [depth]
+ */
+public class FamilyTreeBenchmark {
+	public static void main(String[] args) throws Exception {
+		WorldConfig config = new WorldConfig(Paths.get(args[0]));
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int depth = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+		World.loadSources(config);
+		World.linkFamilies();
+
+		HfsController controller = new HfsController();
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			int members = 0;
+			for (HistoricalFigure hf : World.getHistoricalFigures())
+				members += controller.new Family(hf, false, depth).getMembers().size();
+			long time = System.nanoTime() - start;
+			System.out.println(String.format("round %d: %d trees with %d members in %d ms, %.1f us per tree", round,
+					World.getHistoricalFigures().size(), members, time / 1000000,
+					time / 1000.0 / World.getHistoricalFigures().size()));
+		}
+	}
+}
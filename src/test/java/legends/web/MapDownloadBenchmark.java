@@ -0,0 +1,63 @@
+package legends.web;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads a file of a running server from several threads at once and
+ * reports the requests and the throughput. With a range only that part of
+ * the file is requested.
+ *
+ * Usage: MapDownloadBenchmark [url] [threads] [seconds] [range]
+ */
+public class MapDownloadBenchmark {
+	public static void main(String[] args) throws Exception {
+		URL url = new URL(args.length > 0 ? args[0] : "http://localhost:58881/map");
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		String range = args.length > 3 ? args[3] : null;
+
+		AtomicLong requests = new AtomicLong();
+		AtomicLong bytes = new AtomicLong();
+		long end = System.currentTimeMillis() + seconds * 1000L;
+		List<Thread> workers = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			Thread worker = new Thread(() -> {
+				byte[] buffer = new byte[1 << 16];
+				try {
+					while (System.currentTimeMillis() < end) {
+						HttpURLConnection c = (HttpURLConnection) url.openConnection();
+						if (range != null)
+							c.setRequestProperty("Range", "bytes=" + range);
+						int expected = range != null ? 206 : 200;
+						if (c.getResponseCode() != expected)
+							throw new IllegalStateException("status " + c.getResponseCode());
+						long n = 0;
+						try (InputStream in = c.getInputStream()) {
+							int read;
+							while ((read = in.read(buffer)) != -1)
+								n += read;
+						}
+						if (n != c.getContentLengthLong())
+							throw new IllegalStateException(n + " of " + c.getContentLengthLong() + " bytes");
+						requests.incrementAndGet();
+						bytes.addAndGet(n);
+					}
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			});
+			workers.add(worker);
+			worker.start();
+		}
+		for (Thread worker : workers)
+			worker.join();
+
+		System.out.println(String.format("%d threads: %d requests, %.1f requests/s, %.1f MB/s", threads,
+				requests.get(), requests.get() / (double) seconds, bytes.get() / 1048576.0 / seconds));
+	}
+}
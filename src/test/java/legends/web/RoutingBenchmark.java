@@ -0,0 +1,98 @@
+package legends.web;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.reflections.ReflectionUtils;
+import org.reflections.Reflections;
+
+import com.google.common.base.Predicate;
+
+import legends.WorldState;
+import legends.web.basic.Controller;
+import legends.web.basic.RequestMapping;
+import legends.web.basic.RouteTable;
+
+/**
+ * Compares finding the controller method of a request by scanning all
+ * annotated methods, as done before the route table, with a route table
+ * lookup. Handlers are not called, so only the routing cost is measured.
+ *
+ * Usage: RoutingBenchmark [iterations]
+ */
+public class RoutingBenchmark {
+	private static final String[] PATHS = { "/hfs", "/hf/1234", "/popover/hf/1234", "/popover/site/12",
+			"/entity/7", "/search.json", "/year/250", "/type/hf died", "/", "/unknown" };
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+		Reflections reflections = new Reflections("legends.web");
+		Set<Class<?>> controllers = reflections.getTypesAnnotatedWith(Controller.class);
+		// leave out the controllers of the tests
+		controllers.removeIf(c -> !c.getPackage().getName().equals("legends.web"));
+		Map<WorldState, RouteTable> tables = RouteTable.build(controllers);
+		RouteTable table = tables.get(WorldState.READY);
+
+		for (int run = 0; run < 3; run++) {
+			long start = System.nanoTime();
+			int found = 0;
+			for (int i = 0; i < iterations; i++)
+				for (String path : PATHS)
+					if (scan(reflections, path) != null)
+						found++;
+			long scan = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < iterations * 100; i++)
+				for (String path : PATHS)
+					if (table.find(path) != null)
+						found++;
+			long lookup = (System.nanoTime() - start) / 100;
+
+			int requests = iterations * PATHS.length;
+			System.out.println(String.format("scan: %.2f us/request, route table: %.3f us/request (%d)",
+					scan / 1000.0 / requests, lookup / 1000.0 / requests, found));
+		}
+	}
+
+	/**
+	 * Routing as it was done per request before.
+	 */
+	private static Object scan(Reflections reflections, String path) throws ReflectiveOperationException {
+		Predicate<AnnotatedElement> withMapping = ReflectionUtils.withAnnotation(RequestMapping.class);
+		List<Method> methods = new ArrayList<Method>();
+		for (Class<?> controller : reflections.getTypesAnnotatedWith(Controller.class)) {
+			if (!controller.getPackage().getName().equals("legends.web"))
+				continue;
+			WorldState state = controller.getAnnotation(Controller.class).state();
+			if (state != WorldState.READY && state != WorldState.ANY)
+				continue;
+			methods.addAll(ReflectionUtils.getAllMethods(controller, withMapping));
+		}
+		Collections.sort(methods, (m1, m2) -> {
+			String map1 = m1.getAnnotation(RequestMapping.class).value();
+			String map2 = m2.getAnnotation(RequestMapping.class).value();
+			return map1.length() < map2.length() ? 1 : -1;
+		});
+
+		Method defaultMethod = null;
+		for (Method method : methods) {
+			String mapping = method.getAnnotation(RequestMapping.class).value();
+			if (mapping.equals("")) {
+				defaultMethod = method;
+				continue;
+			}
+			if (mapping.endsWith("{id}") || mapping.endsWith("{name}"))
+				mapping = mapping.substring(0, mapping.lastIndexOf('{'));
+			if (path.startsWith(mapping))
+				return method.getDeclaringClass().newInstance();
+		}
+		return defaultMethod != null ? defaultMethod.getDeclaringClass().newInstance() : null;
+	}
+}
@@ -0,0 +1,96 @@
+package legends.web.basic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.velocity.VelocityContext;
+import org.junit.Test;
+
+import legends.WorldState;
+
+public class RouteTableTest {
+	@Controller
+	public static class PagesController {
+		@RequestMapping("")
+		public String index(VelocityContext context) {
+			return "index";
+		}
+
+		@RequestMapping("/hfs")
+		public String hfs(VelocityContext context) {
+			return "hfs";
+		}
+
+		@RequestMapping("/hf/{id}")
+		public String hf(VelocityContext context, int id) {
+			return "hf " + id;
+		}
+
+		@RequestMapping("/search")
+		public String search(VelocityContext context) {
+			return "search";
+		}
+
+		@RequestMapping("/search.json")
+		public String searchJson(VelocityContext context) {
+			return "search.json";
+		}
+
+		@RequestMapping("/type/{name}")
+		public String type(VelocityContext context, String name) {
+			return "type " + name;
+		}
+	}
+
+	@Controller(state = WorldState.ANY)
+	public static class AnyController {
+		@RequestMapping("/exit")
+		public String exit(VelocityContext context) {
+			return "exit";
+		}
+	}
+
+	@Controller(state = WorldState.LOADING)
+	public static class LoadingController {
+		@RequestMapping("")
+		public String loading(VelocityContext context) {
+			return "loading";
+		}
+	}
+
+	private static Map<WorldState, RouteTable> tables;
+
+	private static Object get(WorldState state, String path) throws Exception {
+		if (tables == null)
+			tables = RouteTable.build(Arrays.asList(PagesController.class, AnyController.class, LoadingController.class));
+		RouteTable.Route route = tables.get(state).find(path);
+		return route != null ? route.invoke(new VelocityContext(), path) : null;
+	}
+
+	@Test
+	public void testLongestMappingWins() throws Exception {
+		assertEquals("hfs", get(WorldState.READY, "/hfs"));
+		assertEquals("hf 12", get(WorldState.READY, "/hf/12"));
+		assertEquals("search", get(WorldState.READY, "/search"));
+		assertEquals("search.json", get(WorldState.READY, "/search.json"));
+		assertEquals("type hf died", get(WorldState.READY, "/type/hf died"));
+		assertEquals("index", get(WorldState.READY, "/unknown"));
+		assertEquals("index", get(WorldState.READY, "/"));
+	}
+
+	@Test
+	public void testStates() throws Exception {
+		assertEquals("exit", get(WorldState.READY, "/exit"));
+		assertEquals("exit", get(WorldState.LOADING, "/exit"));
+		assertEquals("loading", get(WorldState.LOADING, "/hfs"));
+		assertNull(get(WorldState.FILE_SELECT, "/hfs"));
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testInvalidId() throws Exception {
+		get(WorldState.READY, "/hf/x");
+	}
+}
@@ -0,0 +1,60 @@
+package legends.xml;
+
+import java.util.Arrays;
+import java.util.List;
+
+import legends.xml.classes.SimpleClassWithComponent;
+import legends.xml.classes.SimpleClassWithMultipleComponent;
+import legends.xml.classes.SimpleComponent;
+import legends.xml.handlers.AnnotationConfig;
+import legends.xml.handlers.Bindings;
+import legends.xml.handlers.StringConsumer;
+
+/**
+ * Measures the consumers {@link AnnotationConfig} builds for the test classes.
+ * Run once per binding backend, each in its own JVM so the call sites do not
+ * see both implementations:
+ *
+ * java -Dlegends.xml.binding=reflection|methodhandle AnnotationConfigBenchmark
+ * [values per run] [runs]
+ */
+public class AnnotationConfigBenchmark {
+	public static void main(String[] args) throws Exception {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		SimpleComponent component = new SimpleComponent();
+		SimpleClassWithComponent withComponent = new SimpleClassWithComponent();
+		SimpleClassWithMultipleComponent withMultiple = new SimpleClassWithMultipleComponent();
+		AnnotationConfig[] configs = { new AnnotationConfig(SimpleComponent.class, () -> component),
+				new AnnotationConfig(SimpleClassWithComponent.class, () -> withComponent),
+				new AnnotationConfig(SimpleClassWithMultipleComponent.class, () -> withMultiple) };
+
+		long[] best = new long[configs.length];
+		Arrays.fill(best, Long.MAX_VALUE);
+		for (int i = 0; i < runs; i++)
+			for (int c = 0; c < configs.length; c++)
+				best[c] = Math.min(best[c], feed(configs[c], count, withMultiple.getComponents()));
+
+		System.out.println("binding: " + (Bindings.isMethodHandles() ? "methodhandle" : "reflection"));
+		for (int c = 0; c < configs.length; c++)
+			System.out.println(String.format("%-34s %5.1f ns/value", configs[c].getObjectClass().getSimpleName(),
+					(double) best[c] / count));
+	}
+
+	private static long feed(AnnotationConfig config, int count, List<?> consumed) throws Exception {
+		StringConsumer value1 = config.getValues().get("value1");
+		StringConsumer value2 = config.getValues().get("value2");
+		String[] values = { "1", "12", "123", "1234", "12345" };
+
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i += 2) {
+			String v = values[i % values.length];
+			value1.accept(v);
+			value2.accept(v);
+			if (consumed.size() > 1000)
+				consumed.clear();
+		}
+		return System.nanoTime() - start;
+	}
+}
@@ -40,6 +40,39 @@ public class AnnotationConfigSimpleTest {
 		assertEquals(instance.value, 123);
 	}
 
+	@Test
+	public void testClassWithIntFromChars()
+			throws InvocationTargetException, IllegalAccessException, IllegalArgumentException {
+
+		class SimpleClass {
+			@Xml("value")
+			int value = -1;
+		}
+		SimpleClass instance = new SimpleClass();
+
+		AnnotationConfig config = new AnnotationConfig(SimpleClass.class, () -> instance);
+		char[] text = "<value>-2147483648</value>".toCharArray();
+		config.getValues().get("value").accept(text, 7, 11);
+		assertEquals(instance.value, Integer.MIN_VALUE);
+		config.getValues().get("value").accept(text, 8, 3);
+		assertEquals(instance.value, 214);
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testClassWithInvalidIntFromChars()
+			throws InvocationTargetException, IllegalAccessException, IllegalArgumentException {
+
+		class SimpleClass {
+			@Xml("value")
+			int value = -1;
+		}
+		SimpleClass instance = new SimpleClass();
+
+		AnnotationConfig config = new AnnotationConfig(SimpleClass.class, () -> instance);
+		char[] text = "2147483648".toCharArray();
+		config.getValues().get("value").accept(text, 0, text.length);
+	}
+
 	@Test
 	public void testClassWithString()
 			throws InvocationTargetException, IllegalAccessException, IllegalArgumentException {
@@ -0,0 +1,75 @@
+package legends.xml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.XMLReaderFactory;
+
+public class MappedXmlReaderTest {
+	private static final String XML = "<?xml version=\"1.0\" encoding='UTF-8'?>\r\n<df_world>\r\n"
+			+ "<name>D&amp;D &lt;&#65;&#x42;&gt; éût</name>\r\n<!-- comment -->\r\n"
+			+ "<sites><site><id>1</id><deity/><text>line1\r\nline2\rline3</text></site></sites>\r\n"
+			+ "<cdata><![CDATA[a <b> &amp;]]></cdata>\r\n</df_world>\r\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static class Recorder extends DefaultHandler {
+		StringBuilder events = new StringBuilder();
+		StringBuilder text = new StringBuilder();
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes atts) {
+			flush();
+			events.append("<").append(localName).append(">");
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			flush();
+			events.append("</").append(localName).append(">");
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			text.append(ch, start, length);
+		}
+
+		void flush() {
+			if (text.toString().trim().length() > 0)
+				events.append("[").append(text).append("]");
+			text.setLength(0);
+		}
+	}
+
+	@Test
+	public void testSameEventsAsSax() throws IOException, SAXException {
+		Path path = folder.newFile("legends.xml").toPath();
+		Files.write(path, XML.getBytes(StandardCharsets.UTF_8));
+
+		Recorder sax = new Recorder();
+		XMLReader saxReader = XMLReaderFactory.createXMLReader();
+		saxReader.setContentHandler(sax);
+		saxReader.parse(new InputSource(new StringReader(XML)));
+
+		Recorder mapped = new Recorder();
+		MappedXmlReader mappedReader = new MappedXmlReader(StandardCharsets.UTF_8);
+		mappedReader.setContentHandler(mapped);
+		mappedReader.parse(path);
+
+		assertEquals(sax.events.toString(), mapped.events.toString());
+	}
+}
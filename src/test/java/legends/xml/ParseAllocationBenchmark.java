@@ -0,0 +1,36 @@
+package legends.xml;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import legends.LegendsReader;
+
+/**
+ * Measures time and bytes allocated by the parsing thread while reading a
+ * legends.xml file.
+ *
+ * Usage: ParseAllocationBenchmark &lt;path to legends.xml&gt;
+ */
+public class ParseAllocationBenchmark {
+	public static void main(String[] args) throws Exception {
+		Path path = Paths.get(args[0]);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		LegendsReader.read(path, Charset.forName("UTF-8"));
+		long time = System.nanoTime() - start;
+		allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+		double mb = Files.size(path) / 1024.0 / 1024.0;
+		System.out.println(String.format("input:     %.1f MB", mb));
+		System.out.println(String.format("time:      %d ms, %.1f MB/s", time / 1000000, mb * 1e9 / time));
+		System.out.println(String.format("allocated: %.1f MB, %.2f bytes per input byte", allocated / 1024.0 / 1024.0,
+				allocated / (mb * 1024 * 1024)));
+	}
+}
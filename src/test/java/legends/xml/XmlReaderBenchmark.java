@@ -0,0 +1,72 @@
+package legends.xml;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.XMLReaderFactory;
+
+/**
+ * Compares the throughput of the SAX parser as used by LegendsReader with
+ * {@link MappedXmlReader}, both driving a handler that only counts events.
+ *
+ * Usage: XmlReaderBenchmark &lt;path to legends.xml&gt; [runs]
+ */
+public class XmlReaderBenchmark {
+	private static class Counter extends DefaultHandler {
+		long elements, chars;
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes atts) {
+			elements++;
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			chars += length;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Path path = Paths.get(args[0]);
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		double mb = Files.size(path) / 1024.0 / 1024.0;
+
+		long sax = Long.MAX_VALUE;
+		long mapped = Long.MAX_VALUE;
+		Counter saxCounter = null;
+		Counter mappedCounter = null;
+		for (int i = 0; i < runs; i++) {
+			saxCounter = new Counter();
+			long start = System.nanoTime();
+			XMLReader xmlReader = XMLReaderFactory.createXMLReader();
+			xmlReader.setContentHandler(saxCounter);
+			CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+			decoder.onMalformedInput(CodingErrorAction.IGNORE);
+			xmlReader.parse(new InputSource(
+					new BufferedReader(new InputStreamReader(Files.newInputStream(path), decoder))));
+			sax = Math.min(sax, System.nanoTime() - start);
+
+			mappedCounter = new Counter();
+			start = System.nanoTime();
+			MappedXmlReader mappedReader = new MappedXmlReader(StandardCharsets.UTF_8);
+			mappedReader.setContentHandler(mappedCounter);
+			mappedReader.parse(path);
+			mapped = Math.min(mapped, System.nanoTime() - start);
+		}
+
+		System.out.println(String.format("sax:    %6.1f MB/s, %d elements, %d chars", mb * 1e9 / sax,
+				saxCounter.elements, saxCounter.chars));
+		System.out.println(String.format("mapped: %6.1f MB/s, %d elements, %d chars (whitespace before start tags skipped)",
+				mb * 1e9 / mapped, mappedCounter.elements, mappedCounter.chars));
+	}
+}
@@ -0,0 +1,34 @@
+package legends.xml.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class StringDictionaryTest {
+	@Test
+	public void testSharedInstances() {
+		StringDictionary dictionary = new StringDictionary();
+		char[] text = "xxDWARFxxELFxx".toCharArray();
+
+		String dwarf = dictionary.get(text, 2, 5);
+		assertEquals("DWARF", dwarf);
+		assertSame(dwarf, dictionary.get(new String("DWARF")));
+		assertSame(dwarf, dictionary.get("DWARF".toCharArray(), 0, 5));
+		assertSame(dwarf, new StringDictionary().get(text, 2, 5));
+		assertEquals("ELF", dictionary.get(text, 9, 3));
+		assertEquals("", dictionary.get(text, 0, 0));
+		assertEquals(3, dictionary.size());
+	}
+
+	@Test
+	public void testResize() {
+		StringDictionary dictionary = new StringDictionary();
+		String[] values = new String[1000];
+		for (int i = 0; i < values.length; i++)
+			values[i] = dictionary.get(("value " + i).toCharArray(), 0, ("value " + i).length());
+		for (int i = 0; i < values.length; i++)
+			assertSame(values[i], dictionary.get("value " + i));
+		assertEquals(1000, dictionary.size());
+	}
+}